@@ -0,0 +1,312 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+import components.statement.StatementKernel.Kind;
+import components.utilities.Reporter;
+
+/**
+ * Utility class with BL statement parsing over a {@code TokenSource}, for any
+ * {@code Statement} implementation. {@code Statement2} objects are handed to
+ * their own parser, which builds the representation directly; all others are
+ * built through the kernel methods. Either way, open statements are kept on
+ * an explicit stack rather than on the call stack.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class BLParser {
+
+    /**
+     * A statement whose parsing has started but not finished, kept on the
+     * explicit stack used by {@code parseStatements}.
+     */
+    private static final class ParseFrame {
+
+        /**
+         * Kind of the statement being parsed: BLOCK for the outermost frame,
+         * IF or WHILE otherwise. An IF becomes an IF_ELSE when its ELSE is
+         * seen.
+         */
+        private final Kind kind;
+
+        /**
+         * Condition of the IF or WHILE being parsed.
+         */
+        private final Condition condition;
+
+        /**
+         * The THEN block of an IF once its ELSE has been seen, null otherwise.
+         */
+        private Statement thenBlock;
+
+        /**
+         * The block currently being filled.
+         */
+        private Statement block;
+
+        /**
+         * Constructor.
+         *
+         * @param k
+         *            the kind of statement
+         * @param c
+         *            the condition, or null for the outermost frame
+         * @param b
+         *            the empty block to fill
+         */
+        private ParseFrame(Kind k, Condition c, Statement b) {
+            this.kind = k;
+            this.condition = c;
+            this.block = b;
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BLParser() {
+    }
+
+    /**
+     * Dequeues the next token and reports a fatal error if it is not the
+     * keyword with code {@code expected}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param expected
+     *            the code of the keyword that must come next
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures #tokens = <TokenCodes.spelling(expected)> * tokens
+     */
+    static void expect(TokenSource tokens, int expected) {
+        int code = tokens.code();
+        String token = tokens.dequeue();
+        Reporter.assertElseFatalError(code == expected,
+                "Expected \"" + TokenCodes.spelling(expected)
+                        + "\", found: \"" + token + "\"");
+    }
+
+    /**
+     * Dequeues the next token and reports a fatal error if it is not the
+     * IDENTIFIER {@code name}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param name
+     *            the IDENTIFIER that must come next
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures #tokens = <name> * tokens
+     */
+    static void expectName(TokenSource tokens, String name) {
+        int code = tokens.code();
+        String token = tokens.dequeue();
+        Reporter.assertElseFatalError(
+                code == TokenCodes.IDENTIFIER && token.equals(name),
+                "Expected \"" + name + "\", found: \"" + token + "\"");
+    }
+
+    /**
+     * Dequeues an IDENTIFIER and returns it, reporting a fatal error if the
+     * next token is not an IDENTIFIER.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param what
+     *            what the IDENTIFIER names, for the error message
+     * @return the IDENTIFIER
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures #tokens = <identifier> * tokens
+     */
+    static String identifier(TokenSource tokens, String what) {
+        int code = tokens.code();
+        String token = tokens.dequeue();
+        Reporter.assertElseFatalError(code == TokenCodes.IDENTIFIER,
+                "Expected an IDENTIFIER as the " + what + ", found: \""
+                        + token + "\"");
+        return token;
+    }
+
+    /**
+     * Dequeues a condition token followed by the keyword with code
+     * {@code keyword} and returns the condition.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param keyword
+     *            the code of the keyword that must follow the condition
+     * @return the condition
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures #tokens = <[condition string], TokenCodes.spelling(keyword)> *
+     *          tokens
+     */
+    static Condition conditionFollowedBy(TokenSource tokens, int keyword) {
+        int code = tokens.code();
+        String c = tokens.dequeue();
+        Reporter.assertElseFatalError(TokenCodes.isCondition(code),
+                "Expected condition, found: \"" + c + "\"");
+        expect(tokens, keyword);
+        return TokenCodes.condition(code);
+    }
+
+    /**
+     * Reports a fatal error unless the front of {@code tokens} can start a
+     * statement.
+     *
+     * @param tokens
+     *            the input tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     */
+    static void checkStatementStart(TokenSource tokens) {
+        int code = tokens.code();
+        Reporter.assertElseFatalError(
+                code == TokenCodes.IF || code == TokenCodes.WHILE
+                        || code == TokenCodes.IDENTIFIER,
+                "Expected \"IF\", \"WHILE\" or an IDENTIFIER, found: \""
+                        + tokens.front() + "\"");
+    }
+
+    /**
+     * Parses statements from {@code tokens} into a new BLOCK of the dynamic
+     * type of {@code proto}, through the kernel methods. Parsing stops at the
+     * first token that cannot start a statement at the outermost level or, if
+     * {@code single}, right after the first complete statement.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param single
+     *            whether to stop after one statement
+     * @param proto
+     *            an instance of the type of statement to build
+     * @return the BLOCK of parsed statements
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     */
+    private static Statement parseStatements(TokenSource tokens,
+            boolean single, Statement proto) {
+        Deque<ParseFrame> open = new ArrayDeque<>();
+        ParseFrame outer = new ParseFrame(Kind.BLOCK, null,
+                proto.newInstance());
+        open.push(outer);
+        boolean done = false;
+        while (!done) {
+            ParseFrame top = open.peek();
+            int code = tokens.code();
+            Statement finished = null;
+            if (code == TokenCodes.IDENTIFIER) {
+                finished = proto.newInstance();
+                finished.assembleCall(tokens.dequeue());
+            } else if (code == TokenCodes.IF) {
+                tokens.dequeue();
+                Condition c = conditionFollowedBy(tokens, TokenCodes.THEN);
+                open.push(new ParseFrame(Kind.IF, c, proto.newInstance()));
+            } else if (code == TokenCodes.WHILE) {
+                tokens.dequeue();
+                Condition c = conditionFollowedBy(tokens, TokenCodes.DO);
+                open.push(new ParseFrame(Kind.WHILE, c, proto.newInstance()));
+            } else if (top == outer) {
+                done = true;
+            } else if (top.kind == Kind.IF && top.thenBlock == null
+                    && code == TokenCodes.ELSE) {
+                tokens.dequeue();
+                top.thenBlock = top.block;
+                top.block = proto.newInstance();
+            } else {
+                open.pop();
+                finished = proto.newInstance();
+                expect(tokens, TokenCodes.END);
+                if (top.kind == Kind.WHILE) {
+                    expect(tokens, TokenCodes.WHILE);
+                    finished.assembleWhile(top.condition, top.block);
+                } else {
+                    expect(tokens, TokenCodes.IF);
+                    if (top.thenBlock == null) {
+                        finished.assembleIf(top.condition, top.block);
+                    } else {
+                        finished.assembleIfElse(top.condition, top.thenBlock,
+                                top.block);
+                    }
+                }
+            }
+            if (finished != null) {
+                Statement block = open.peek().block;
+                block.addToBlock(block.lengthOfBlock(), finished);
+                done = single && open.peek() == outer;
+            }
+        }
+        return outer.block;
+    }
+
+    /**
+     * Parses a single BL statement from {@code tokens} into {@code s}, as
+     * {@code s.parse} does from a queue of tokens.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param s
+     *            the statement to replace
+     * @updates tokens
+     * @replaces s
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [an is-statement string is a proper prefix of #tokens]  then
+     *  s = [Statement corresponding to the statement string at the start
+     *       of #tokens]  and
+     *  #tokens = [statement string at start of #tokens] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate
+     *   client]
+     * </pre>
+     */
+    public static void parse(TokenSource tokens, Statement s) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert s != null : "Violation of: s is not null";
+
+        if (s instanceof Statement2) {
+            ((Statement2) s).parse(tokens);
+        } else {
+            checkStatementStart(tokens);
+            s.transferFrom(parseStatements(tokens, true, s).removeFromBlock(0));
+        }
+    }
+
+    /**
+     * Parses a maximal sequence of BL statements from {@code tokens} into the
+     * BLOCK {@code s}, as {@code s.parseBlock} does from a queue of tokens.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param s
+     *            the statement to replace
+     * @updates tokens
+     * @replaces s
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string which is a proper prefix of #tokens]  then
+     *  s = [BLOCK Statement corresponding to the longest such block
+     *       string]  and
+     *  #tokens = [that block string] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate
+     *   client]
+     * </pre>
+     */
+    public static void parseBlock(TokenSource tokens, Statement s) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert s != null : "Violation of: s is not null";
+
+        if (s instanceof Statement2) {
+            ((Statement2) s).parseBlock(tokens);
+        } else {
+            s.transferFrom(parseStatements(tokens, false, s));
+        }
+    }
+
+}
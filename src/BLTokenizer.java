@@ -0,0 +1,424 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import components.utilities.Reporter;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code TokenSource} that scans BL text in place, in a {@code ByteBuffer} or
+ * a memory-mapped file, producing one token at a time. The front token is
+ * described by its kind, offset and length in the text. Its String form, from
+ * {@code front}, is a shared constant for keywords and conditions, and an
+ * interned String for everything else, made only the first time the name is
+ * seen. Memory use is therefore bounded by the number of distinct names, not
+ * by the size of the input. Once the input is exhausted the front is
+ * {@code Tokenizer.END_OF_INPUT} and stays so.
+ *
+ * <p>
+ * Tokens are as for {@code Tokenizer.tokens}: maximal runs of letters, digits
+ * and '-', and every other non-whitespace character on its own. BL text is
+ * ASCII, so it is scanned byte by byte.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class BLTokenizer implements TokenSource {
+
+    /**
+     * Kinds of tokens.
+     */
+    public enum TokenKind {
+        /**
+         * A BL keyword such as IF or END.
+         */
+        KEYWORD,
+        /**
+         * A BL condition such as next-is-empty.
+         */
+        CONDITION,
+        /**
+         * An IDENTIFIER.
+         */
+        IDENTIFIER,
+        /**
+         * Anything else, which is always an error in BL.
+         */
+        OTHER,
+        /**
+         * The end of the input, reported as {@code Tokenizer.END_OF_INPUT}.
+         */
+        END_OF_INPUT
+    }
+
+    /**
+     * Number of distinct single-byte values.
+     */
+    private static final int BYTE_VALUES = 256;
+
+    /**
+     * Single-character tokens, indexed by byte value.
+     */
+    private static final String[] SINGLES = new String[BYTE_VALUES];
+
+    static {
+        for (int b = 0; b < BYTE_VALUES; b++) {
+            SINGLES[b] = String.valueOf((char) b).intern();
+        }
+    }
+
+    /**
+     * Initial capacity of the name table; a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Multiplier of the hash of a name.
+     */
+    private static final int HASH_MULTIPLIER = 31;
+
+    /**
+     * The text being scanned.
+     */
+    private final ByteBuffer text;
+
+    /**
+     * Index just past the last byte of the text.
+     */
+    private final int limit;
+
+    /**
+     * Index of the first byte not yet scanned.
+     */
+    private int next;
+
+    /**
+     * Code of the front token.
+     */
+    private int code;
+
+    /**
+     * Offset of the front token in the text.
+     */
+    private int offset;
+
+    /**
+     * Length of the front token.
+     */
+    private int length;
+
+    /**
+     * The front token as a String, taken from the name table.
+     */
+    private String token;
+
+    /**
+     * Open-addressing table of the names seen so far, including all keywords
+     * and conditions; null marks a free slot.
+     */
+    private String[] names;
+
+    /**
+     * Codes of the names in {@code names}.
+     */
+    private int[] codes;
+
+    /**
+     * Hashes of the names in {@code names}.
+     */
+    private int[] hashes;
+
+    /**
+     * Number of names in {@code names}.
+     */
+    private int size;
+
+    /**
+     * Maps the file named {@code fileName} into memory, read-only.
+     *
+     * @param fileName
+     *            the name of the file
+     * @return the contents of the file
+     * @requires [fileName names a readable file of at most Integer.MAX_VALUE
+     *           bytes]
+     */
+    private static ByteBuffer map(String fileName) {
+        ByteBuffer result = null;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.READ)) {
+            result = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Cannot read file: " + fileName);
+        }
+        return result;
+    }
+
+    /**
+     * Reports whether byte {@code b} can be part of a multi-character token.
+     *
+     * @param b
+     *            the byte
+     * @return true iff b is an ASCII letter, digit or '-'
+     */
+    private static boolean isWordByte(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')
+                || (b >= '0' && b <= '9') || b == '-';
+    }
+
+    /**
+     * Reports whether byte {@code b} is whitespace.
+     *
+     * @param b
+     *            the byte
+     * @return true iff b is an ASCII whitespace character
+     */
+    private static boolean isSpaceByte(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    /**
+     * Adds {@code name}, of code {@code c} and hash {@code h}, to the name
+     * table, growing it if needed.
+     *
+     * @param name
+     *            the name
+     * @param c
+     *            its code
+     * @param h
+     *            its hash
+     * @return the slot now holding name
+     * @requires [name is not in the table]
+     */
+    private int insert(String name, int c, int h) {
+        if (2 * (this.size + 1) > this.names.length) {
+            String[] oldNames = this.names;
+            int[] oldCodes = this.codes;
+            int[] oldHashes = this.hashes;
+            this.names = new String[2 * oldNames.length];
+            this.codes = new int[2 * oldNames.length];
+            this.hashes = new int[2 * oldNames.length];
+            this.size = 0;
+            for (int i = 0; i < oldNames.length; i++) {
+                if (oldNames[i] != null) {
+                    this.insert(oldNames[i], oldCodes[i], oldHashes[i]);
+                }
+            }
+        }
+        int mask = this.names.length - 1;
+        int i = h & mask;
+        while (this.names[i] != null) {
+            i = (i + 1) & mask;
+        }
+        this.names[i] = name;
+        this.codes[i] = c;
+        this.hashes[i] = h;
+        this.size++;
+        return i;
+    }
+
+    /**
+     * Reports the hash of {@code name}, the same as that of the bytes of its
+     * spelling in the text.
+     *
+     * @param name
+     *            the name
+     * @return the hash of name
+     */
+    private static int hashOf(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = h * HASH_MULTIPLIER + name.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * Returns the slot of the name table holding the word of length
+     * {@code len} at offset {@code off} in the text, adding the word first if
+     * it has not been seen before.
+     *
+     * @param off
+     *            the offset of the word
+     * @param len
+     *            the length of the word
+     * @return the slot holding the word
+     */
+    private int lookUp(int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = h * HASH_MULTIPLIER + this.text.get(i);
+        }
+        int mask = this.names.length - 1;
+        int i = h & mask;
+        while (this.names[i] != null) {
+            if (this.hashes[i] == h && this.sameWord(this.names[i], off, len)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        char[] chars = new char[len];
+        for (int j = 0; j < len; j++) {
+            chars[j] = (char) this.text.get(off + j);
+        }
+        String name = new String(chars).intern();
+        return this.insert(name, TokenCodes.codeOf(name), h);
+    }
+
+    /**
+     * Reports whether {@code name} is spelled by the {@code len} bytes at
+     * offset {@code off} in the text.
+     *
+     * @param name
+     *            the name
+     * @param off
+     *            the offset of the word
+     * @param len
+     *            the length of the word
+     * @return true iff name is the word
+     */
+    private boolean sameWord(String name, int off, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int j = 0; j < len; j++) {
+            if (name.charAt(j) != this.text.get(off + j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scans the token that follows the current one and makes it the front.
+     */
+    private void advance() {
+        int i = this.next;
+        while (i < this.limit && isSpaceByte(this.text.get(i))) {
+            i++;
+        }
+        this.offset = i;
+        if (i == this.limit) {
+            this.code = TokenCodes.END_OF_INPUT;
+            this.length = 0;
+            this.token = Tokenizer.END_OF_INPUT;
+        } else {
+            int b = this.text.get(i) & (BYTE_VALUES - 1);
+            int j = i + 1;
+            if (isWordByte(b)) {
+                while (j < this.limit && isWordByte(this.text.get(j))) {
+                    j++;
+                }
+                int slot = this.lookUp(i, j - i);
+                this.code = this.codes[slot];
+                this.token = this.names[slot];
+            } else {
+                this.code = TokenCodes.OTHER;
+                this.token = SINGLES[b];
+            }
+            this.length = j - i;
+        }
+        this.next = this.offset + this.length;
+    }
+
+    /**
+     * Constructor from text already in memory. The tokenizer reads
+     * {@code text} from its position to its limit without changing either.
+     *
+     * @param text
+     *            the BL text, in ASCII
+     * @aliases reference text
+     */
+    public BLTokenizer(ByteBuffer text) {
+        assert text != null : "Violation of: text is not null";
+        this.text = text;
+        this.limit = text.limit();
+        this.next = text.position();
+        this.names = new String[INITIAL_CAPACITY];
+        this.codes = new int[INITIAL_CAPACITY];
+        this.hashes = new int[INITIAL_CAPACITY];
+        for (int c = TokenCodes.PROGRAM; c < TokenCodes.LIMIT; c++) {
+            if (c != TokenCodes.IDENTIFIER && c != TokenCodes.OTHER) {
+                String spelling = TokenCodes.spelling(c);
+                this.insert(spelling, c, hashOf(spelling));
+            }
+        }
+        this.advance();
+    }
+
+    /**
+     * Constructor from the file named {@code fileName}, which is mapped into
+     * memory rather than read.
+     *
+     * @param fileName
+     *            the name of the file
+     * @requires [fileName names a readable file of at most Integer.MAX_VALUE
+     *           bytes]
+     */
+    public BLTokenizer(String fileName) {
+        this(map(fileName));
+    }
+
+    /**
+     * Reports the kind of the front token.
+     *
+     * @return the kind of the front token
+     */
+    public TokenKind kind() {
+        TokenKind result;
+        if (this.code == TokenCodes.END_OF_INPUT) {
+            result = TokenKind.END_OF_INPUT;
+        } else if (this.code == TokenCodes.IDENTIFIER) {
+            result = TokenKind.IDENTIFIER;
+        } else if (this.code == TokenCodes.OTHER) {
+            result = TokenKind.OTHER;
+        } else if (TokenCodes.isCondition(this.code)) {
+            result = TokenKind.CONDITION;
+        } else {
+            result = TokenKind.KEYWORD;
+        }
+        return result;
+    }
+
+    /**
+     * Reports the offset in the text of the front token.
+     *
+     * @return the offset of the front token
+     */
+    public int offset() {
+        return this.offset;
+    }
+
+    /**
+     * Reports the length in the text of the front token, which is 0 at the
+     * end of the input.
+     *
+     * @return the length of the front token
+     */
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public String front() {
+        return this.token;
+    }
+
+    @Override
+    public int code() {
+        return this.code;
+    }
+
+    @Override
+    public String dequeue() {
+        String result = this.token;
+        if (this.code != TokenCodes.END_OF_INPUT) {
+            this.advance();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,445 @@
+import java.util.Arrays;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * BL program compiled to a flat array of ints, run by {@code BytecodeMachine}.
+ * The body of the program comes first and ends with {@code HALT}; the body of
+ * every instruction it can call follows, once, and ends with {@code RETURN}.
+ * Each operation is an opcode followed by its operands:
+ *
+ * <pre>
+ * MOVE .. SKIP          the primitive with that SymbolTable id
+ * BRANCH c target       test Condition.values()[c], go to target if false
+ * CALL target           call the instruction body starting at target
+ * UNDEFINED symbol      call the instruction SymbolTable.name(symbol),
+ *                       which is not in the context
+ * JUMP target           go to target
+ * RETURN                return to the operation after the last CALL
+ * HALT                  end of the program
+ * </pre>
+ *
+ * The operations with opcodes up to {@code UNDEFINED} are steps, as for
+ * {@code Engine}; the others cost nothing. A compiled program never changes
+ * and can be shared by any number of machines.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class Bytecode {
+
+    /**
+     * Opcode of {@code move}.
+     */
+    public static final int MOVE = SymbolTable.MOVE;
+
+    /**
+     * Opcode of {@code turnleft}.
+     */
+    public static final int TURNLEFT = SymbolTable.TURNLEFT;
+
+    /**
+     * Opcode of {@code turnright}.
+     */
+    public static final int TURNRIGHT = SymbolTable.TURNRIGHT;
+
+    /**
+     * Opcode of {@code infect}.
+     */
+    public static final int INFECT = SymbolTable.INFECT;
+
+    /**
+     * Opcode of {@code skip}.
+     */
+    public static final int SKIP = SymbolTable.SKIP;
+
+    /**
+     * Opcode of a condition test with a jump if it fails.
+     */
+    public static final int BRANCH = 5;
+
+    /**
+     * Opcode of a call of an instruction in the context.
+     */
+    public static final int CALL = 6;
+
+    /**
+     * Opcode of a call of an instruction not in the context.
+     */
+    public static final int UNDEFINED = 7;
+
+    /**
+     * Opcode of an unconditional jump.
+     */
+    public static final int JUMP = 8;
+
+    /**
+     * Opcode of the return from an instruction.
+     */
+    public static final int RETURN = 9;
+
+    /**
+     * Opcode of the end of the program.
+     */
+    public static final int HALT = 10;
+
+    /**
+     * Initial capacity of the code while compiling.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The operations.
+     */
+    private final int[] code;
+
+    /**
+     * Compiler state: the code emitted so far, the start of the body of each
+     * instruction compiled or pending by symbol, and the CALL operands to fill
+     * in once all the bodies have been placed.
+     */
+    private static final class Compiler {
+
+        /**
+         * The context of the program.
+         */
+        private final Map<String, Statement> context;
+
+        /**
+         * The code emitted so far.
+         */
+        private int[] code;
+
+        /**
+         * Number of ints of code emitted.
+         */
+        private int length;
+
+        /**
+         * Whether the instruction with each symbol has been queued for
+         * compilation.
+         */
+        private boolean[] queued;
+
+        /**
+         * Start of the body of the instruction with each symbol, once
+         * compiled.
+         */
+        private int[] starts;
+
+        /**
+         * Symbols of the instructions queued for compilation, in order.
+         */
+        private int[] pending;
+
+        /**
+         * Number of symbols in {@code pending}.
+         */
+        private int pendingLength;
+
+        /**
+         * Constructor.
+         *
+         * @param context
+         *            the context of the program
+         */
+        private Compiler(Map<String, Statement> context) {
+            this.context = context;
+            this.code = new int[INITIAL_CAPACITY];
+            this.length = 0;
+            this.queued = new boolean[SymbolTable.PRIMITIVES];
+            this.starts = new int[SymbolTable.PRIMITIVES];
+            this.pending = new int[SymbolTable.PRIMITIVES];
+            this.pendingLength = 0;
+        }
+
+        /**
+         * Appends {@code x} to the code and returns its position.
+         *
+         * @param x
+         *            the int to append
+         * @return the position of x
+         */
+        private int emit(int x) {
+            if (this.length == this.code.length) {
+                this.code = Arrays.copyOf(this.code, 2 * this.length);
+            }
+            this.code[this.length] = x;
+            this.length++;
+            return this.length - 1;
+        }
+
+        /**
+         * Queues the instruction with symbol {@code symbol} for compilation
+         * unless it already is.
+         *
+         * @param symbol
+         *            the symbol of the instruction
+         */
+        private void queue(int symbol) {
+            if (symbol >= this.queued.length) {
+                int capacity = Math.max(2 * this.queued.length, symbol + 1);
+                this.queued = Arrays.copyOf(this.queued, capacity);
+                this.starts = Arrays.copyOf(this.starts, capacity);
+            }
+            if (!this.queued[symbol]) {
+                this.queued[symbol] = true;
+                if (this.pendingLength == this.pending.length) {
+                    this.pending = Arrays.copyOf(this.pending,
+                            2 * this.pendingLength);
+                }
+                this.pending[this.pendingLength] = symbol;
+                this.pendingLength++;
+            }
+        }
+
+        /**
+         * Emits the code of {@code s}, going through the kernel methods and
+         * leaving {@code s} as it was.
+         *
+         * @param s
+         *            the statement to compile
+         */
+        private void compile(Statement s) {
+            switch (s.kind()) {
+                case BLOCK: {
+                    for (int i = 0; i < s.lengthOfBlock(); i++) {
+                        Statement child = s.removeFromBlock(i);
+                        this.compile(child);
+                        s.addToBlock(i, child);
+                    }
+                    break;
+                }
+                case IF: {
+                    Statement body = s.newInstance();
+                    Condition c = s.disassembleIf(body);
+                    this.emit(BRANCH);
+                    this.emit(c.ordinal());
+                    int end = this.emit(0);
+                    this.compile(body);
+                    this.code[end] = this.length;
+                    s.assembleIf(c, body);
+                    break;
+                }
+                case IF_ELSE: {
+                    Statement thenBody = s.newInstance();
+                    Statement elseBody = s.newInstance();
+                    Condition c = s.disassembleIfElse(thenBody, elseBody);
+                    this.emit(BRANCH);
+                    this.emit(c.ordinal());
+                    int otherwise = this.emit(0);
+                    this.compile(thenBody);
+                    this.emit(JUMP);
+                    int end = this.emit(0);
+                    this.code[otherwise] = this.length;
+                    this.compile(elseBody);
+                    this.code[end] = this.length;
+                    s.assembleIfElse(c, thenBody, elseBody);
+                    break;
+                }
+                case WHILE: {
+                    Statement body = s.newInstance();
+                    Condition c = s.disassembleWhile(body);
+                    int test = this.emit(BRANCH);
+                    this.emit(c.ordinal());
+                    int end = this.emit(0);
+                    this.compile(body);
+                    this.emit(JUMP);
+                    this.emit(test);
+                    this.code[end] = this.length;
+                    s.assembleWhile(c, body);
+                    break;
+                }
+                default: {
+                    String name = s.disassembleCall();
+                    int symbol = SymbolTable.intern(name);
+                    if (SymbolTable.isPrimitive(symbol)) {
+                        this.emit(symbol);
+                    } else if (this.context.hasKey(name)) {
+                        this.queue(symbol);
+                        this.emit(CALL);
+                        /*
+                         * The operand holds the symbol until the body has
+                         * been placed.
+                         */
+                        this.emit(symbol);
+                    } else {
+                        this.emit(UNDEFINED);
+                        this.emit(symbol);
+                    }
+                    s.assembleCall(name);
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Emits the code of {@code body} followed by {@code HALT}, then the
+         * code of every instruction it can call, and fills in the CALL
+         * targets.
+         *
+         * @param body
+         *            the body of the program
+         */
+        private void compileProgram(Statement body) {
+            this.compile(body);
+            this.emit(HALT);
+            for (int i = 0; i < this.pendingLength; i++) {
+                int symbol = this.pending[i];
+                this.starts[symbol] = this.length;
+                this.compile(this.context.value(SymbolTable.name(symbol)));
+                this.emit(RETURN);
+            }
+            int pc = 0;
+            while (pc < this.length) {
+                int op = this.code[pc];
+                if (op == CALL) {
+                    this.code[pc + 1] = this.starts[this.code[pc + 1]];
+                }
+                pc += size(op);
+            }
+        }
+
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param code
+     *            the operations
+     */
+    private Bytecode(int[] code) {
+        this.code = code;
+    }
+
+    /**
+     * Reports the number of ints taken by the operation with opcode
+     * {@code op} and its operands.
+     *
+     * @param op
+     *            the opcode
+     * @return the size of the operation
+     */
+    static int size(int op) {
+        int result;
+        switch (op) {
+            case BRANCH:
+                result = 3;
+                break;
+            case CALL:
+            case UNDEFINED:
+            case JUMP:
+                result = 2;
+                break;
+            default:
+                result = 1;
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Compiles the body of {@code p} with its context.
+     *
+     * @param p
+     *            the program
+     * @return the compiled program
+     * @ensures [compile runs as p would]
+     */
+    public static Bytecode compile(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+        p.swapContext(context);
+        p.swapBody(body);
+        Bytecode result = compile(body, context);
+        p.swapBody(body);
+        p.swapContext(context);
+        return result;
+    }
+
+    /**
+     * Compiles {@code body} with the instructions in {@code context}.
+     *
+     * @param body
+     *            the statement to compile
+     * @param context
+     *            the instructions body can call
+     * @return the compiled statement
+     * @ensures [compile runs as body would with the instructions in context]
+     */
+    public static Bytecode compile(Statement body,
+            Map<String, Statement> context) {
+        assert body != null : "Violation of: body is not null";
+        assert context != null : "Violation of: context is not null";
+
+        Compiler compiler = new Compiler(context);
+        compiler.compileProgram(body);
+        return new Bytecode(Arrays.copyOf(compiler.code, compiler.length));
+    }
+
+    /**
+     * Returns the operations.
+     *
+     * @return the operations
+     * @aliases reference returned by code
+     */
+    int[] code() {
+        return this.code;
+    }
+
+    /**
+     * Reports the number of ints of code.
+     *
+     * @return the length of the code
+     */
+    public int length() {
+        return this.code.length;
+    }
+
+    @Override
+    public String toString() {
+        Condition[] conditions = Condition.values();
+        StringBuilder result = new StringBuilder();
+        int pc = 0;
+        while (pc < this.code.length) {
+            int op = this.code[pc];
+            result.append(pc).append(": ");
+            switch (op) {
+                case BRANCH:
+                    result.append("BRANCH ")
+                            .append(conditions[this.code[pc + 1]])
+                            .append(' ').append(this.code[pc + 2]);
+                    break;
+                case CALL:
+                    result.append("CALL ").append(this.code[pc + 1]);
+                    break;
+                case UNDEFINED:
+                    result.append("UNDEFINED ")
+                            .append(SymbolTable.name(this.code[pc + 1]));
+                    break;
+                case JUMP:
+                    result.append("JUMP ").append(this.code[pc + 1]);
+                    break;
+                case RETURN:
+                    result.append("RETURN");
+                    break;
+                case HALT:
+                    result.append("HALT");
+                    break;
+                default:
+                    result.append(SymbolTable.name(op));
+                    break;
+            }
+            result.append('\n');
+            pc += size(op);
+        }
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,220 @@
+import java.util.Arrays;
+
+import components.statement.StatementKernel.Condition;
+import components.utilities.Reporter;
+
+/**
+ * {@code Engine} running a {@code Bytecode} program in a {@code World} with a
+ * switch-dispatch loop. The state of a running program is the position of
+ * the next operation and the stack of return positions of the calls in
+ * progress; the code itself is shared and never changes. Each primitive
+ * executed is recorded in a {@code PrimitiveTrace}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class BytecodeMachine implements Engine {
+
+    /**
+     * Initial capacity of the return stack.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * The conditions, indexed by the operands of {@code BRANCH}.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * The operations.
+     */
+    private final int[] code;
+
+    /**
+     * The world the program runs in.
+     */
+    private final World world;
+
+    /**
+     * The trace primitives are recorded in, or null.
+     */
+    private final PrimitiveTrace trace;
+
+    /**
+     * Position of the next operation.
+     */
+    private int pc;
+
+    /**
+     * Return positions of the calls in progress.
+     */
+    private int[] returns;
+
+    /**
+     * Number of calls in progress.
+     */
+    private int depth;
+
+    /**
+     * Symbol of the last primitive executed, or -1.
+     */
+    private int last;
+
+    /**
+     * Number of steps taken so far.
+     */
+    private long steps;
+
+    /**
+     * Runs the program until it finishes or {@code budget} more steps have
+     * been taken, or, if {@code pause}, until a primitive has been executed,
+     * and reports the number of steps taken.
+     *
+     * @param budget
+     *            the largest number of steps to take
+     * @param pause
+     *            whether to stop after the first primitive
+     * @return the number of steps taken
+     */
+    private long execute(long budget, boolean pause) {
+        final int[] code = this.code;
+        final World w = this.world;
+        int pc = this.pc;
+        long taken = 0;
+        boolean running = true;
+        while (running) {
+            int op = code[pc];
+            if (op <= Bytecode.UNDEFINED && taken == budget) {
+                running = false;
+            } else {
+                switch (op) {
+                    case Bytecode.MOVE:
+                    case Bytecode.TURNLEFT:
+                    case Bytecode.TURNRIGHT:
+                    case Bytecode.INFECT:
+                    case Bytecode.SKIP: {
+                        taken++;
+                        Interpreter.primitive(w, op);
+                        if (this.trace != null) {
+                            this.trace.add(op);
+                        }
+                        this.last = op;
+                        pc++;
+                        running = !pause;
+                        break;
+                    }
+                    case Bytecode.BRANCH: {
+                        taken++;
+                        if (w.test(CONDITIONS[code[pc + 1]])) {
+                            pc += 3;
+                        } else {
+                            pc = code[pc + 2];
+                        }
+                        break;
+                    }
+                    case Bytecode.CALL: {
+                        taken++;
+                        if (this.depth == this.returns.length) {
+                            this.returns = Arrays.copyOf(this.returns,
+                                    2 * this.depth);
+                        }
+                        this.returns[this.depth] = pc + 2;
+                        this.depth++;
+                        pc = code[pc + 1];
+                        break;
+                    }
+                    case Bytecode.UNDEFINED: {
+                        String name = SymbolTable.name(code[pc + 1]);
+                        Reporter.assertElseFatalError(false,
+                                "Undefined instruction: \"" + name + "\"");
+                        break;
+                    }
+                    case Bytecode.JUMP: {
+                        pc = code[pc + 1];
+                        break;
+                    }
+                    case Bytecode.RETURN: {
+                        this.depth--;
+                        pc = this.returns[this.depth];
+                        break;
+                    }
+                    default: {
+                        running = false;
+                        break;
+                    }
+                }
+            }
+        }
+        this.pc = pc;
+        this.steps += taken;
+        return taken;
+    }
+
+    /**
+     * Constructor of a machine about to run {@code code} from its start in
+     * {@code w}.
+     *
+     * @param code
+     *            the program
+     * @param w
+     *            the world
+     * @param trace
+     *            the trace to record primitives in, or null not to record
+     *            them
+     */
+    public BytecodeMachine(Bytecode code, World w, PrimitiveTrace trace) {
+        assert code != null : "Violation of: code is not null";
+        assert w != null : "Violation of: w is not null";
+        this.code = code.code();
+        this.world = w;
+        this.trace = trace;
+        this.pc = 0;
+        this.returns = new int[INITIAL_DEPTH];
+        this.depth = 0;
+        this.last = -1;
+        this.steps = 0;
+    }
+
+    @Override
+    public boolean isDone() {
+        return this.code[this.pc] == Bytecode.HALT;
+    }
+
+    @Override
+    public long steps() {
+        return this.steps;
+    }
+
+    @Override
+    public long run(long budget) {
+        assert budget >= 0 : "Violation of: budget >= 0";
+
+        return this.execute(budget, false);
+    }
+
+    /**
+     * Runs the program until it executes a primitive, finishes, or has taken
+     * {@code budget} more steps, and reports the primitive executed. This
+     * lets a simulation give each creature one primitive per turn.
+     *
+     * @param budget
+     *            the largest number of steps to take
+     * @return the symbol of the primitive executed, or -1 if none was
+     * @updates this, [the world], [the trace]
+     * @requires budget >= 0
+     * @ensures <pre>
+     * [at most budget steps are taken]  and
+     * (nextPrimitive = -1 implies [program finished or budget steps were
+     *   taken])
+     * </pre>
+     */
+    public int nextPrimitive(long budget) {
+        assert budget >= 0 : "Violation of: budget >= 0";
+
+        this.last = -1;
+        this.execute(budget, true);
+        return this.last;
+    }
+
+}
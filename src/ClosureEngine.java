@@ -0,0 +1,442 @@
+import java.util.Arrays;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+import components.utilities.Reporter;
+
+/**
+ * Execution of a BL program compiled once into nested closures, one per
+ * statement, bound to the {@code World} it runs in. The world, each
+ * condition and each primitive are fixed when a closure is made, so the JIT
+ * can inline a whole instruction body. Steps are as for {@code Engine}, and
+ * the world receives the same calls as from {@code Interpreter}.
+ *
+ * <p>
+ * The closures run on the Java stack, so, unlike an {@code Engine}, a run
+ * cannot stop in the middle and carry on later: each call of {@code run}
+ * starts the program again from the beginning, in the world as it is then,
+ * and ends when the program does or when the step budget runs out.
+ *
+ * <p>
+ * A call that is the last thing its instruction does does not nest: it
+ * leaves the callee in {@code pending} and returns, and the call that started
+ * the chain runs the pending bodies one after the other. So an instruction
+ * that ends by calling itself, directly or through others, runs for any
+ * budget. Other calls run on the Java stack, and nesting them more than
+ * {@code MAX_CALL_DEPTH} deep, or deeply enough to run out of Java stack
+ * before that, is reported as a fatal error.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class ClosureEngine {
+
+    /**
+     * Compiled statement.
+     */
+    private interface Action {
+
+        /**
+         * Executes the statement.
+         */
+        void run();
+
+    }
+
+    /**
+     * Compiled body of an instruction, filled in once it has been compiled.
+     */
+    private static final class Body {
+
+        /**
+         * The compiled body.
+         */
+        private Action action;
+
+    }
+
+    /**
+     * Thrown to unwind the closures when the step budget runs out.
+     */
+    private static final class OutOfSteps extends RuntimeException {
+
+        /**
+         * Serial version, for {@code Serializable}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor, without a message or stack trace.
+         */
+        private OutOfSteps() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    /**
+     * The one {@code OutOfSteps}, thrown every time.
+     */
+    private static final OutOfSteps OUT_OF_STEPS = new OutOfSteps();
+
+    /**
+     * Largest number of calls, other than calls in tail position, that may
+     * be running at once.
+     */
+    static final int MAX_CALL_DEPTH = 1000;
+
+    /**
+     * The world the program runs in.
+     */
+    private final World world;
+
+    /**
+     * The trace primitives are recorded in, or null.
+     */
+    private final PrimitiveTrace trace;
+
+    /**
+     * The context of the program while it is being compiled, else null.
+     */
+    private Map<String, Statement> context;
+
+    /**
+     * Compiled instruction bodies, indexed by the symbol of their names.
+     */
+    private Body[] bodies;
+
+    /**
+     * The compiled body of the program.
+     */
+    private final Action body;
+
+    /**
+     * The body a call in tail position has left to be run next, or null.
+     */
+    private Body pending;
+
+    /**
+     * Number of calls, other than calls in tail position, running now.
+     */
+    private int depth;
+
+    /**
+     * Largest number of steps the current run may take.
+     */
+    private long budget;
+
+    /**
+     * Number of steps taken by the current run.
+     */
+    private long taken;
+
+    /**
+     * Whether the last run reached the end of the program.
+     */
+    private boolean done;
+
+    /**
+     * Counts one step, or ends the run if the budget has run out.
+     */
+    private void step() {
+        if (this.taken == this.budget) {
+            throw OUT_OF_STEPS;
+        }
+        this.taken++;
+    }
+
+    /**
+     * Returns the action executing the primitive with symbol {@code symbol}.
+     *
+     * @param symbol
+     *            the symbol of the primitive
+     * @return the action
+     * @requires SymbolTable.isPrimitive(symbol)
+     */
+    private Action primitive(int symbol) {
+        final World w = this.world;
+        final PrimitiveTrace t = this.trace;
+        Action result;
+        switch (symbol) {
+            case SymbolTable.MOVE:
+                result = () -> {
+                    this.step();
+                    w.move();
+                    if (t != null) {
+                        t.add(SymbolTable.MOVE);
+                    }
+                };
+                break;
+            case SymbolTable.TURNLEFT:
+                result = () -> {
+                    this.step();
+                    w.turnLeft();
+                    if (t != null) {
+                        t.add(SymbolTable.TURNLEFT);
+                    }
+                };
+                break;
+            case SymbolTable.TURNRIGHT:
+                result = () -> {
+                    this.step();
+                    w.turnRight();
+                    if (t != null) {
+                        t.add(SymbolTable.TURNRIGHT);
+                    }
+                };
+                break;
+            case SymbolTable.INFECT:
+                result = () -> {
+                    this.step();
+                    w.infect();
+                    if (t != null) {
+                        t.add(SymbolTable.INFECT);
+                    }
+                };
+                break;
+            default:
+                result = () -> {
+                    this.step();
+                    w.skip();
+                    if (t != null) {
+                        t.add(SymbolTable.SKIP);
+                    }
+                };
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the action calling the instruction named {@code name},
+     * compiling its body the first time it is called. The body is read from
+     * its {@code Body} when the call runs, so that instructions can call each
+     * other. A call in tail position only leaves the body in {@code pending};
+     * any other call runs the body and then whatever it leaves pending.
+     *
+     * @param name
+     *            the name of the instruction
+     * @param tail
+     *            whether the call is the last thing its instruction does
+     * @return the action
+     */
+    private Action call(String name, boolean tail) {
+        final int symbol = SymbolTable.intern(name);
+        if (!this.context.hasKey(name)) {
+            return () -> {
+                this.step();
+                Reporter.assertElseFatalError(false,
+                        "Undefined instruction: \"" + name + "\"");
+            };
+        }
+        if (symbol >= this.bodies.length) {
+            this.bodies = Arrays.copyOf(this.bodies,
+                    Math.max(2 * this.bodies.length, symbol + 1));
+        }
+        Body target = this.bodies[symbol];
+        if (target == null) {
+            /*
+             * Recorded before compiling the body, so that a recursive call
+             * finds it and does not compile it again.
+             */
+            target = new Body();
+            this.bodies[symbol] = target;
+            target.action = this.compile(this.context.value(name), true);
+        }
+        final Body callee = target;
+        if (tail) {
+            return () -> {
+                this.step();
+                this.pending = callee;
+            };
+        }
+        return () -> {
+            this.step();
+            Reporter.assertElseFatalError(this.depth < MAX_CALL_DEPTH,
+                    "Instruction calls nested more than " + MAX_CALL_DEPTH
+                            + " deep");
+            this.depth++;
+            Body next = callee;
+            do {
+                this.pending = null;
+                next.action.run();
+                next = this.pending;
+            } while (next != null);
+            this.depth--;
+        };
+    }
+
+    /**
+     * Returns the action executing {@code s}, going through the kernel
+     * methods and leaving {@code s} as it was.
+     *
+     * @param s
+     *            the statement to compile
+     * @param tail
+     *            whether nothing is left for the instruction to do after
+     *            {@code s}
+     * @return the action
+     */
+    private Action compile(Statement s, boolean tail) {
+        final World w = this.world;
+        Action result;
+        switch (s.kind()) {
+            case BLOCK: {
+                final Action[] children = new Action[s.lengthOfBlock()];
+                for (int i = 0; i < children.length; i++) {
+                    Statement child = s.removeFromBlock(i);
+                    children[i] = this.compile(child,
+                            tail && i == children.length - 1);
+                    s.addToBlock(i, child);
+                }
+                if (children.length == 1) {
+                    result = children[0];
+                } else if (children.length == 2) {
+                    final Action first = children[0];
+                    final Action second = children[1];
+                    result = () -> {
+                        first.run();
+                        second.run();
+                    };
+                } else {
+                    result = () -> {
+                        for (Action child : children) {
+                            child.run();
+                        }
+                    };
+                }
+                break;
+            }
+            case IF: {
+                Statement body = s.newInstance();
+                final Condition c = s.disassembleIf(body);
+                final Action then = this.compile(body, tail);
+                s.assembleIf(c, body);
+                result = () -> {
+                    this.step();
+                    if (w.test(c)) {
+                        then.run();
+                    }
+                };
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBody = s.newInstance();
+                Statement elseBody = s.newInstance();
+                final Condition c = s.disassembleIfElse(thenBody, elseBody);
+                final Action then = this.compile(thenBody, tail);
+                final Action otherwise = this.compile(elseBody, tail);
+                s.assembleIfElse(c, thenBody, elseBody);
+                result = () -> {
+                    this.step();
+                    if (w.test(c)) {
+                        then.run();
+                    } else {
+                        otherwise.run();
+                    }
+                };
+                break;
+            }
+            case WHILE: {
+                Statement body = s.newInstance();
+                final Condition c = s.disassembleWhile(body);
+                final Action loop = this.compile(body, false);
+                s.assembleWhile(c, body);
+                result = () -> {
+                    this.step();
+                    while (w.test(c)) {
+                        loop.run();
+                        this.step();
+                    }
+                };
+                break;
+            }
+            default: {
+                String name = s.disassembleCall();
+                s.assembleCall(name);
+                int symbol = SymbolTable.intern(name);
+                if (SymbolTable.isPrimitive(symbol)) {
+                    result = this.primitive(symbol);
+                } else {
+                    result = this.call(name, tail);
+                }
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Constructor compiling {@code p} to run in {@code w}. The bodies of the
+     * instructions the program can call are compiled along with it.
+     *
+     * @param p
+     *            the program
+     * @param w
+     *            the world
+     * @param trace
+     *            the trace to record primitives in, or null not to record
+     *            them
+     */
+    public ClosureEngine(Program p, World w, PrimitiveTrace trace) {
+        assert p != null : "Violation of: p is not null";
+        assert w != null : "Violation of: w is not null";
+        this.world = w;
+        this.trace = trace;
+        this.bodies = new Body[SymbolTable.PRIMITIVES];
+        Map<String, Statement> programContext = p.newContext();
+        Statement programBody = p.newBody();
+        p.swapContext(programContext);
+        p.swapBody(programBody);
+        this.context = programContext;
+        this.body = this.compile(programBody, false);
+        this.context = null;
+        p.swapBody(programBody);
+        p.swapContext(programContext);
+        this.done = false;
+    }
+
+    /**
+     * Runs the program from its beginning until it finishes or
+     * {@code budget} steps have been taken, whichever comes first, and
+     * reports the number of steps taken.
+     *
+     * @param budget
+     *            the largest number of steps to take
+     * @return the number of steps taken
+     * @updates this, [the world], [the trace]
+     * @requires budget >= 0
+     * @ensures run <= budget and (run < budget implies isDone())
+     */
+    public long run(long budget) {
+        assert budget >= 0 : "Violation of: budget >= 0";
+
+        this.budget = budget;
+        this.taken = 0;
+        this.pending = null;
+        this.depth = 0;
+        try {
+            this.body.run();
+            this.done = true;
+        } catch (OutOfSteps e) {
+            this.done = false;
+        } catch (StackOverflowError e) {
+            Reporter.assertElseFatalError(false,
+                    "Instruction calls nested too deeply for the Java stack");
+        }
+        return this.taken;
+    }
+
+    /**
+     * Reports whether the last run reached the end of the program.
+     *
+     * @return true iff the last run finished the program
+     */
+    public boolean isDone() {
+        return this.done;
+    }
+
+}
@@ -0,0 +1,304 @@
+import components.statement.StatementKernel.Condition;
+import components.utilities.Reporter;
+
+/**
+ * Base of the classes {@code JavaBackend} generates from BL programs. A
+ * generated class implements {@code body} with one Java statement per BL
+ * statement and one method per instruction, built on the protected methods
+ * here, each of which takes one step as for {@code Engine}. The world
+ * receives the same calls as from {@code Interpreter}.
+ *
+ * <p>
+ * As with {@code ClosureEngine}, the program runs on the Java stack, so each
+ * call of {@code run} starts it again from the beginning, in the world as it
+ * is then, and ends when the program does or when the step budget runs out.
+ * Calls are handled as there too: a call that is the last thing its
+ * instruction does goes through {@code tailCall}, which only records the
+ * callee, and every other call is followed by {@code drain}, which runs the
+ * recorded callees through {@code dispatch} one after the other. Nesting
+ * other calls more than {@code MAX_CALL_DEPTH} deep, or deeply enough to run
+ * out of Java stack before that, is reported as a fatal error.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public abstract class CompiledProgram {
+
+    /**
+     * Thrown to unwind the generated code when the step budget runs out.
+     */
+    private static final class OutOfSteps extends RuntimeException {
+
+        /**
+         * Serial version, for {@code Serializable}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor, without a message or stack trace.
+         */
+        private OutOfSteps() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    /**
+     * The one {@code OutOfSteps}, thrown every time.
+     */
+    private static final OutOfSteps OUT_OF_STEPS = new OutOfSteps();
+
+    /**
+     * The conditions, indexed by the arguments of {@code test}.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * Largest number of calls, other than calls in tail position, that may
+     * be running at once.
+     */
+    static final int MAX_CALL_DEPTH = 1000;
+
+    /**
+     * Value of {@code next} when no call in tail position is waiting.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The world the program runs in.
+     */
+    private final World world;
+
+    /**
+     * The trace primitives are recorded in, or null.
+     */
+    private final PrimitiveTrace trace;
+
+    /**
+     * Symbol of the instruction a call in tail position has left to be run
+     * next, or {@code NONE}.
+     */
+    private int next;
+
+    /**
+     * Number of calls, other than calls in tail position, running now.
+     */
+    private int depth;
+
+    /**
+     * Largest number of steps the current run may take.
+     */
+    private long budget;
+
+    /**
+     * Number of steps taken by the current run.
+     */
+    private long taken;
+
+    /**
+     * Whether the last run reached the end of the program.
+     */
+    private boolean done;
+
+    /**
+     * Counts one step, or ends the run if the budget has run out.
+     */
+    private void step() {
+        if (this.taken == this.budget) {
+            throw OUT_OF_STEPS;
+        }
+        this.taken++;
+    }
+
+    /**
+     * Constructor of a program about to run in {@code w}.
+     *
+     * @param w
+     *            the world
+     * @param trace
+     *            the trace to record primitives in, or null not to record
+     *            them
+     */
+    protected CompiledProgram(World w, PrimitiveTrace trace) {
+        assert w != null : "Violation of: w is not null";
+        this.world = w;
+        this.trace = trace;
+        this.next = NONE;
+        this.done = false;
+    }
+
+    /**
+     * Executes the body of the program.
+     */
+    protected abstract void body();
+
+    /**
+     * Executes the body of the instruction with symbol {@code symbol}.
+     *
+     * @param symbol
+     *            the symbol of the instruction name
+     * @requires [symbol has been passed to tailCall by the generated code]
+     */
+    protected abstract void dispatch(int symbol);
+
+    /**
+     * Executes {@code move}.
+     */
+    protected final void move() {
+        this.step();
+        this.world.move();
+        if (this.trace != null) {
+            this.trace.add(SymbolTable.MOVE);
+        }
+    }
+
+    /**
+     * Executes {@code turnleft}.
+     */
+    protected final void turnLeft() {
+        this.step();
+        this.world.turnLeft();
+        if (this.trace != null) {
+            this.trace.add(SymbolTable.TURNLEFT);
+        }
+    }
+
+    /**
+     * Executes {@code turnright}.
+     */
+    protected final void turnRight() {
+        this.step();
+        this.world.turnRight();
+        if (this.trace != null) {
+            this.trace.add(SymbolTable.TURNRIGHT);
+        }
+    }
+
+    /**
+     * Executes {@code infect}.
+     */
+    protected final void infect() {
+        this.step();
+        this.world.infect();
+        if (this.trace != null) {
+            this.trace.add(SymbolTable.INFECT);
+        }
+    }
+
+    /**
+     * Executes {@code skip}.
+     */
+    protected final void skip() {
+        this.step();
+        this.world.skip();
+        if (this.trace != null) {
+            this.trace.add(SymbolTable.SKIP);
+        }
+    }
+
+    /**
+     * Tests the condition with ordinal {@code c}.
+     *
+     * @param c
+     *            the ordinal of the condition
+     * @return true iff the condition holds
+     */
+    protected final boolean test(int c) {
+        this.step();
+        return this.world.test(CONDITIONS[c]);
+    }
+
+    /**
+     * Takes the step of a call of an instruction in the context, other than
+     * in tail position, which the generated code follows with the body of
+     * the instruction and then {@code drain}.
+     */
+    protected final void call() {
+        this.step();
+        Reporter.assertElseFatalError(this.depth < MAX_CALL_DEPTH,
+                "Instruction calls nested more than " + MAX_CALL_DEPTH
+                        + " deep");
+        this.depth++;
+    }
+
+    /**
+     * Ends a call started by {@code call}, first running the instructions
+     * left by calls in tail position until none is left.
+     */
+    protected final void drain() {
+        while (this.next != NONE) {
+            int symbol = this.next;
+            this.next = NONE;
+            this.dispatch(symbol);
+        }
+        this.depth--;
+    }
+
+    /**
+     * Takes the step of a call, in tail position, of the instruction with
+     * symbol {@code symbol}, which is in the context, and leaves it to be
+     * run by {@code drain}.
+     *
+     * @param symbol
+     *            the symbol of the instruction name
+     */
+    protected final void tailCall(int symbol) {
+        this.step();
+        this.next = symbol;
+    }
+
+    /**
+     * Calls the instruction with symbol {@code symbol}, which is not in the
+     * context.
+     *
+     * @param symbol
+     *            the symbol of the instruction name
+     */
+    protected final void undefined(int symbol) {
+        this.step();
+        Reporter.assertElseFatalError(false, "Undefined instruction: \""
+                + SymbolTable.name(symbol) + "\"");
+    }
+
+    /**
+     * Runs the program from its beginning until it finishes or
+     * {@code budget} steps have been taken, whichever comes first, and
+     * reports the number of steps taken.
+     *
+     * @param budget
+     *            the largest number of steps to take
+     * @return the number of steps taken
+     * @updates this, [the world], [the trace]
+     * @requires budget >= 0
+     * @ensures run <= budget and (run < budget implies isDone())
+     */
+    public final long run(long budget) {
+        assert budget >= 0 : "Violation of: budget >= 0";
+
+        this.budget = budget;
+        this.taken = 0;
+        this.next = NONE;
+        this.depth = 0;
+        try {
+            this.body();
+            this.done = true;
+        } catch (OutOfSteps e) {
+            this.done = false;
+        } catch (StackOverflowError e) {
+            Reporter.assertElseFatalError(false,
+                    "Instruction calls nested too deeply for the Java stack");
+        }
+        return this.taken;
+    }
+
+    /**
+     * Reports whether the last run reached the end of the program.
+     *
+     * @return true iff the last run finished the program
+     */
+    public final boolean isDone() {
+        return this.done;
+    }
+
+}
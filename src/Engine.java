@@ -0,0 +1,44 @@
+/**
+ * Execution of one BL program in one {@code World}, in steps. A step is one
+ * primitive instruction, one condition test or one call of an instruction
+ * from the context, so every program that does not terminate takes
+ * infinitely many steps and running within a step budget always returns.
+ * All engines running the same program in equal worlds take the same steps
+ * and make the same calls to their worlds.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public interface Engine {
+
+    /**
+     * Reports whether the program has run to its end.
+     *
+     * @return true iff the program has finished
+     */
+    boolean isDone();
+
+    /**
+     * Reports the number of steps taken so far.
+     *
+     * @return the number of steps taken
+     */
+    long steps();
+
+    /**
+     * Runs the program until it finishes or {@code budget} more steps have
+     * been taken, whichever comes first, and reports the number of steps
+     * taken. Stops before the step that would go over the budget, so a later
+     * call carries on exactly where this one stopped.
+     *
+     * @param budget
+     *            the largest number of steps to take
+     * @return the number of steps taken
+     * @updates this, [the world], [the trace]
+     * @requires budget >= 0
+     * @ensures run <= budget and (run < budget implies [program finished])
+     */
+    long run(long budget);
+
+}
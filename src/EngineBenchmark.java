@@ -0,0 +1,350 @@
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.StatementKernel.Condition;
+import components.utilities.Tokenizer;
+
+/**
+ * Simple timing harness for the engines executing BL programs in this
+ * project, reporting primitives executed and steps taken per second in a
+ * {@code GridWorld}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class EngineBenchmark {
+
+    /**
+     * Number of untimed runs before each timed run, to let the JIT settle.
+     */
+    private static final int WARMUP_RUNS = 3;
+
+    /**
+     * Number of steps taken per timed run.
+     */
+    private static final long STEPS = 20000000L;
+
+    /**
+     * Number of steps taken per call of {@code Engine.run}.
+     */
+    private static final long CHUNK = 100000L;
+
+    /**
+     * Number of columns and rows of the world.
+     */
+    private static final int SIDE = 64;
+
+    /**
+     * Seed of the world.
+     */
+    private static final long SEED = 42L;
+
+    /**
+     * Largest size {@code Inliner} may grow a body to.
+     */
+    private static final int INLINE_SIZE = 1000;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * The programs timed; they never finish, and every instruction they call
+     * is defined.
+     */
+    private static final String[] PROGRAMS = { "data/program-sample.bl",
+            "data/program-OneInstruction.bl",
+            "data/program-TwoInstructions.bl" };
+
+    /**
+     * A program that wanders around the world infecting the enemies it meets,
+     * with tokens separated by spaces. Unlike the programs in data, it keeps
+     * executing primitives after it has dealt with its neighbourhood.
+     */
+    private static final String WANDER = "PROGRAM Wander IS"
+            + " INSTRUCTION turn IS IF random THEN turnleft ELSE turnright"
+            + " END IF END turn BEGIN WHILE true DO IF next-is-enemy THEN"
+            + " infect ELSE IF next-is-empty THEN move IF random THEN turn"
+            + " END IF ELSE turn END IF END IF END WHILE END Wander";
+
+    /**
+     * {@code World} passing every call on to another world and counting the
+     * primitives, so that engines can be timed without recording a trace.
+     */
+    private static final class CountingWorld implements World {
+
+        /**
+         * The world calls are passed on to.
+         */
+        private final World world;
+
+        /**
+         * Number of primitives received.
+         */
+        private long primitives;
+
+        /**
+         * Constructor.
+         *
+         * @param world
+         *            the world to pass calls on to
+         */
+        private CountingWorld(World world) {
+            this.world = world;
+            this.primitives = 0;
+        }
+
+        @Override
+        public void move() {
+            this.primitives++;
+            this.world.move();
+        }
+
+        @Override
+        public void turnLeft() {
+            this.primitives++;
+            this.world.turnLeft();
+        }
+
+        @Override
+        public void turnRight() {
+            this.primitives++;
+            this.world.turnRight();
+        }
+
+        @Override
+        public void infect() {
+            this.primitives++;
+            this.world.infect();
+        }
+
+        @Override
+        public void skip() {
+            this.primitives++;
+            this.world.skip();
+        }
+
+        @Override
+        public boolean test(Condition c) {
+            return this.world.test(c);
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private EngineBenchmark() {
+    }
+
+    /**
+     * Returns the program in file {@code fileName}, with a
+     * {@code ValidatedContext} and {@code Statement2} bodies.
+     *
+     * @param fileName
+     *            the name of the file
+     * @return the program
+     * @requires [fileName holds a valid BL program]
+     */
+    private static Program2 load(String fileName) {
+        Program2 p = new Program2(new ValidatedContext(), new Statement2());
+        p.parse(new TokenStream(fileName));
+        return p;
+    }
+
+    /**
+     * Returns the program {@code text}, whose tokens are separated by spaces,
+     * with a {@code ValidatedContext} and {@code Statement2} bodies.
+     *
+     * @param text
+     *            the program
+     * @return the program
+     * @requires [text is a valid BL program]
+     */
+    private static Program2 parse(String text) {
+        Queue<String> tokens = new Queue1L<>();
+        for (String token : text.split(" ")) {
+            tokens.enqueue(token);
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        Program2 p = new Program2(new ValidatedContext(), new Statement2());
+        p.parse(new TokenStream(tokens));
+        return p;
+    }
+
+    /**
+     * Reports the rates of primitives and steps of a timed run.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the engine
+     * @param primitives
+     *            the number of primitives executed
+     * @param steps
+     *            the number of steps taken
+     * @param elapsed
+     *            the time taken, in nanoseconds
+     * @updates out.content
+     * @requires out.is_open and elapsed > 0
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void report(SimpleWriter out, String label,
+            long primitives, long steps, long elapsed) {
+        out.println("    " + label + ": "
+                + (long) (primitives * NANOS_PER_SECOND / elapsed)
+                + " primitives/s, "
+                + (long) (steps * NANOS_PER_SECOND / elapsed) + " steps/s");
+    }
+
+    /**
+     * Times {@code STEPS} steps of {@code e}, after {@code WARMUP_RUNS}
+     * untimed runs of as many steps, or until it finishes.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the engine
+     * @param e
+     *            the engine
+     * @param w
+     *            the world e runs in
+     * @updates out.content, e, w
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeEngine(SimpleWriter out, String label, Engine e,
+            CountingWorld w) {
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            long primitives = w.primitives;
+            long steps = 0;
+            long start = System.nanoTime();
+            while (steps < STEPS && !e.isDone()) {
+                steps += e.run(CHUNK);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (run == WARMUP_RUNS) {
+                report(out, label, w.primitives - primitives, steps, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Times a run of {@code STEPS} steps of {@code ClosureEngine} running
+     * {@code p}, after {@code WARMUP_RUNS} untimed runs of as many steps. As
+     * runs of a {@code ClosureEngine} cannot be resumed, each starts afresh
+     * in a new world; compiling is not timed.
+     *
+     * @param out
+     *            the output stream
+     * @param p
+     *            the program
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeClosures(SimpleWriter out, Program2 p) {
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            CountingWorld w = new CountingWorld(
+                    new GridWorld(SIDE, SIDE, SEED));
+            ClosureEngine engine = new ClosureEngine(p, w, null);
+            long start = System.nanoTime();
+            long steps = engine.run(STEPS);
+            long elapsed = System.nanoTime() - start;
+            if (run == WARMUP_RUNS) {
+                report(out, "ClosureEngine", w.primitives, steps, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Times a run of {@code STEPS} steps of the class {@code JavaBackend}
+     * generates from {@code p}, after {@code WARMUP_RUNS} untimed runs of as
+     * many steps, each in a new world. Reports the time taken to compile the
+     * class, unless it was already cached, and to find it in the cache.
+     *
+     * @param out
+     *            the output stream
+     * @param p
+     *            the program
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report lines]
+     */
+    private static void timeGenerated(SimpleWriter out, Program2 p) {
+        long start = System.nanoTime();
+        JavaBackend.compile(p);
+        long compiled = System.nanoTime();
+        JavaBackend.compile(p);
+        long cached = System.nanoTime();
+        out.println("    JavaBackend.compile: " + (compiled - start)
+                / NANOS_PER_MILLI + " ms, cached: "
+                + (cached - compiled) / NANOS_PER_MILLI + " ms");
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            CountingWorld w = new CountingWorld(
+                    new GridWorld(SIDE, SIDE, SEED));
+            CompiledProgram program = JavaBackend.newProgram(p, w, null);
+            long runStart = System.nanoTime();
+            long steps = program.run(STEPS);
+            long elapsed = System.nanoTime() - runStart;
+            if (run == WARMUP_RUNS) {
+                report(out, "CompiledProgram", w.primitives, steps, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Times each engine running {@code p} in a {@code GridWorld}.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the program
+     * @param p
+     *            the program
+     * @updates out.content
+     * @requires out.is_open and [the bodies of p are Statement2s]
+     * @ensures out.content = #out.content * [timing report lines]
+     */
+    private static void timeEngines(SimpleWriter out, String label,
+            Program2 p) {
+        out.println("  " + label + ":");
+        CountingWorld w = new CountingWorld(new GridWorld(SIDE, SIDE, SEED));
+        timeEngine(out, "Interpreter", new Interpreter(p, w, null), w);
+        w = new CountingWorld(new GridWorld(SIDE, SIDE, SEED));
+        Program2 inlined = (Program2) Inliner.inline(p, INLINE_SIZE);
+        timeEngine(out, "Interpreter, inlined",
+                new Interpreter(inlined, w, null), w);
+        w = new CountingWorld(new GridWorld(SIDE, SIDE, SEED));
+        timeEngine(out, "BytecodeMachine",
+                new BytecodeMachine(Bytecode.compile(p), w, null), w);
+        timeClosures(out, p);
+        timeGenerated(out, p);
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        out.println(STEPS + " steps in a " + SIDE + "x" + SIDE
+                + " GridWorld:");
+        for (String fileName : PROGRAMS) {
+            timeEngines(out, fileName, load(fileName));
+        }
+        timeEngines(out, "Wander", parse(WANDER));
+        out.close();
+    }
+
+}
@@ -0,0 +1,280 @@
+import components.statement.StatementKernel.Condition;
+
+/**
+ * {@code World} held in memory: a rectangular grid of cells, each empty or
+ * holding a friend or an enemy of the creature running the program, and
+ * surrounded by walls. The creature starts in the middle of the grid facing
+ * north. The enemies and the answers to the {@code random} condition come
+ * from a seeded generator, so two worlds built with the same arguments and
+ * given the same calls behave the same.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class GridWorld implements World {
+
+    /**
+     * Cell contents: nobody.
+     */
+    public static final int EMPTY = 0;
+
+    /**
+     * Cell contents: a creature of the same species as the one running.
+     */
+    public static final int FRIEND = 1;
+
+    /**
+     * Cell contents: a creature of another species.
+     */
+    public static final int ENEMY = 2;
+
+    /**
+     * One cell in this many starts with an enemy.
+     */
+    private static final int ENEMY_ODDS = 8;
+
+    /**
+     * Column offsets of the cell ahead, indexed by direction: north, east,
+     * south, west.
+     */
+    private static final int[] DX = { 0, 1, 0, -1 };
+
+    /**
+     * Row offsets of the cell ahead, indexed by direction; rows grow
+     * southwards.
+     */
+    private static final int[] DY = { -1, 0, 1, 0 };
+
+    /**
+     * Number of directions.
+     */
+    private static final int DIRECTIONS = 4;
+
+    /**
+     * First shift of the xorshift generator.
+     */
+    private static final int SHIFT_A = 13;
+
+    /**
+     * Second shift of the xorshift generator.
+     */
+    private static final int SHIFT_B = 7;
+
+    /**
+     * Third shift of the xorshift generator.
+     */
+    private static final int SHIFT_C = 17;
+
+    /**
+     * Number of columns.
+     */
+    private final int width;
+
+    /**
+     * Number of rows.
+     */
+    private final int height;
+
+    /**
+     * Contents of the cells, row by row.
+     */
+    private final byte[] cells;
+
+    /**
+     * Column of the creature.
+     */
+    private int x;
+
+    /**
+     * Row of the creature.
+     */
+    private int y;
+
+    /**
+     * Direction the creature faces: 0 north, 1 east, 2 south, 3 west.
+     */
+    private int direction;
+
+    /**
+     * State of the xorshift generator; never 0.
+     */
+    private long random;
+
+    /**
+     * Returns the next value of the generator.
+     *
+     * @return the next pseudo-random value
+     */
+    private long nextRandom() {
+        long r = this.random;
+        r ^= r << SHIFT_A;
+        r ^= r >>> SHIFT_B;
+        r ^= r << SHIFT_C;
+        this.random = r;
+        return r;
+    }
+
+    /**
+     * Returns the contents of the cell ahead of the creature, or -1 for a
+     * wall.
+     *
+     * @return the contents of the next cell, or -1
+     */
+    private int next() {
+        int nx = this.x + DX[this.direction];
+        int ny = this.y + DY[this.direction];
+        if (nx < 0 || nx >= this.width || ny < 0 || ny >= this.height) {
+            return -1;
+        }
+        return this.cells[ny * this.width + nx];
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param width
+     *            the number of columns
+     * @param height
+     *            the number of rows
+     * @param seed
+     *            the seed of the generator placing enemies and answering
+     *            {@code random}
+     * @requires width > 0 and height > 0
+     */
+    public GridWorld(int width, int height, long seed) {
+        assert width > 0 && height > 0 : ""
+                + "Violation of: width > 0 and height > 0";
+        this.width = width;
+        this.height = height;
+        this.cells = new byte[width * height];
+        this.random = seed | 1;
+        for (int i = 0; i < this.cells.length; i++) {
+            if (Math.floorMod(this.nextRandom(), ENEMY_ODDS) == 0) {
+                this.cells[i] = ENEMY;
+            }
+        }
+        this.x = width / 2;
+        this.y = height / 2;
+        this.direction = 0;
+        this.cells[this.y * width + this.x] = FRIEND;
+    }
+
+    /**
+     * Reports the column of the creature.
+     *
+     * @return the column of the creature
+     */
+    public int x() {
+        return this.x;
+    }
+
+    /**
+     * Reports the row of the creature.
+     *
+     * @return the row of the creature
+     */
+    public int y() {
+        return this.y;
+    }
+
+    /**
+     * Reports the direction the creature faces: 0 north, 1 east, 2 south, 3
+     * west.
+     *
+     * @return the direction of the creature
+     */
+    public int direction() {
+        return this.direction;
+    }
+
+    /**
+     * Reports the contents of the cell at column {@code col} and row
+     * {@code row}: {@code EMPTY}, {@code FRIEND} or {@code ENEMY}.
+     *
+     * @param col
+     *            the column
+     * @param row
+     *            the row
+     * @return the contents of the cell
+     * @requires 0 <= col < width and 0 <= row < height
+     */
+    public int cell(int col, int row) {
+        assert 0 <= col && col < this.width : "Violation of: 0 <= col < width";
+        assert 0 <= row && row < this.height : ""
+                + "Violation of: 0 <= row < height";
+        return this.cells[row * this.width + col];
+    }
+
+    @Override
+    public void move() {
+        if (this.next() == EMPTY) {
+            this.cells[this.y * this.width + this.x] = EMPTY;
+            this.x += DX[this.direction];
+            this.y += DY[this.direction];
+            this.cells[this.y * this.width + this.x] = FRIEND;
+        }
+    }
+
+    @Override
+    public void turnLeft() {
+        this.direction = (this.direction + DIRECTIONS - 1) % DIRECTIONS;
+    }
+
+    @Override
+    public void turnRight() {
+        this.direction = (this.direction + 1) % DIRECTIONS;
+    }
+
+    @Override
+    public void infect() {
+        if (this.next() == ENEMY) {
+            int nx = this.x + DX[this.direction];
+            int ny = this.y + DY[this.direction];
+            this.cells[ny * this.width + nx] = FRIEND;
+        }
+    }
+
+    @Override
+    public void skip() {
+    }
+
+    @Override
+    public boolean test(Condition c) {
+        boolean result;
+        switch (c) {
+            case NEXT_IS_EMPTY:
+                result = this.next() == EMPTY;
+                break;
+            case NEXT_IS_NOT_EMPTY:
+                result = this.next() != EMPTY;
+                break;
+            case NEXT_IS_WALL:
+                result = this.next() < 0;
+                break;
+            case NEXT_IS_NOT_WALL:
+                result = this.next() >= 0;
+                break;
+            case NEXT_IS_FRIEND:
+                result = this.next() == FRIEND;
+                break;
+            case NEXT_IS_NOT_FRIEND:
+                result = this.next() != FRIEND;
+                break;
+            case NEXT_IS_ENEMY:
+                result = this.next() == ENEMY;
+                break;
+            case NEXT_IS_NOT_ENEMY:
+                result = this.next() != ENEMY;
+                break;
+            case RANDOM:
+                result = (this.nextRandom() & 1) == 0;
+                break;
+            default:
+                result = true;
+                break;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,371 @@
+import java.util.Arrays;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+import components.statement.StatementKernel.Kind;
+
+/**
+ * Utility class replacing calls of instructions by copies of their bodies.
+ * Each body is expanded while it has at most a given number of statements, so
+ * programs made of small instructions lose most of their calls while large
+ * ones do not blow up. A call inside the body of an instruction that is
+ * itself being inlined at that point is left alone, so recursive
+ * instructions stay calls, as do calls of instructions not in the context.
+ *
+ * <p>
+ * An inlined program executes the same primitives in the same order as the
+ * original, and tests the same conditions; it takes fewer steps, since the
+ * calls that were inlined are no longer steps.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class Inliner {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Inliner() {
+    }
+
+    /**
+     * Reports the number of non-BLOCK statements in {@code s}, going through
+     * the kernel methods and leaving {@code s} as it was.
+     *
+     * @param s
+     *            the statement
+     * @return the number of non-BLOCK statements in s
+     * @ensures size = [number of non-BLOCK statements in s]
+     */
+    static int size(Statement s) {
+        int result = 0;
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    result += size(child);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement body = s.newInstance();
+                Condition c = s.disassembleIf(body);
+                result = 1 + size(body);
+                s.assembleIf(c, body);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBody = s.newInstance();
+                Statement elseBody = s.newInstance();
+                Condition c = s.disassembleIfElse(thenBody, elseBody);
+                result = 1 + size(thenBody) + size(elseBody);
+                s.assembleIfElse(c, thenBody, elseBody);
+                break;
+            }
+            case WHILE: {
+                Statement body = s.newInstance();
+                Condition c = s.disassembleWhile(body);
+                result = 1 + size(body);
+                s.assembleWhile(c, body);
+                break;
+            }
+            default: {
+                result = 1;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of {@code s}, of the same dynamic type, going through
+     * the kernel methods and leaving {@code s} as it was.
+     *
+     * @param s
+     *            the statement to copy
+     * @return a copy of s
+     * @ensures copy = s
+     */
+    static Statement copy(Statement s) {
+        Statement result = s.newInstance();
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    result.addToBlock(i, copy(child));
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement body = s.newInstance();
+                Condition c = s.disassembleIf(body);
+                result.assembleIf(c, copy(body));
+                s.assembleIf(c, body);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBody = s.newInstance();
+                Statement elseBody = s.newInstance();
+                Condition c = s.disassembleIfElse(thenBody, elseBody);
+                result.assembleIfElse(c, copy(thenBody), copy(elseBody));
+                s.assembleIfElse(c, thenBody, elseBody);
+                break;
+            }
+            case WHILE: {
+                Statement body = s.newInstance();
+                Condition c = s.disassembleWhile(body);
+                result.assembleWhile(c, copy(body));
+                s.assembleWhile(c, body);
+                break;
+            }
+            default: {
+                String name = s.disassembleCall();
+                result.assembleCall(name);
+                s.assembleCall(name);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inlining state: the instructions that may be inlined and those being
+     * inlined at the point reached.
+     */
+    private static final class Expander {
+
+        /**
+         * The instructions of the program.
+         */
+        private final Map<String, Statement> context;
+
+        /**
+         * Whether the instruction with each symbol is being inlined.
+         */
+        private boolean[] active;
+
+        /**
+         * Constructor.
+         *
+         * @param context
+         *            the instructions of the program
+         */
+        private Expander(Map<String, Statement> context) {
+            this.context = context;
+            this.active = new boolean[SymbolTable.PRIMITIVES];
+        }
+
+        /**
+         * Reports whether the instruction with symbol {@code symbol} is being
+         * inlined.
+         *
+         * @param symbol
+         *            the symbol of the instruction
+         * @return true iff the instruction is being inlined
+         */
+        private boolean isActive(int symbol) {
+            return symbol < this.active.length && this.active[symbol];
+        }
+
+        /**
+         * Records whether the instruction with symbol {@code symbol} is being
+         * inlined.
+         *
+         * @param symbol
+         *            the symbol of the instruction
+         * @param value
+         *            whether it is being inlined
+         */
+        private void setActive(int symbol, boolean value) {
+            if (symbol >= this.active.length) {
+                this.active = Arrays.copyOf(this.active,
+                        Math.max(2 * this.active.length, symbol + 1));
+            }
+            this.active[symbol] = value;
+        }
+
+        /**
+         * Replaces, in place, calls in {@code s} by copies of the bodies of
+         * the instructions they call, expanded in turn, as long as the size
+         * of {@code s} stays at most {@code cap}, and reports the size of
+         * {@code s} afterwards.
+         *
+         * @param s
+         *            the statement to expand
+         * @param size
+         *            the size of s
+         * @param cap
+         *            the largest size s may grow to
+         * @return the new size of s
+         * @updates s
+         * @requires size = size(s) <= cap
+         * @ensures expand = size(s) <= cap
+         */
+        private int expand(Statement s, int size, int cap) {
+            int result = size;
+            switch (s.kind()) {
+                case BLOCK: {
+                    int i = 0;
+                    while (i < s.lengthOfBlock()) {
+                        Statement child = s.removeFromBlock(i);
+                        int inlined = this.inline(child, result, cap);
+                        if (inlined < 0) {
+                            int childSize = size(child);
+                            int expanded = this.expand(child, childSize,
+                                    cap - result + childSize);
+                            s.addToBlock(i, child);
+                            result += expanded - childSize;
+                            i++;
+                        } else {
+                            /*
+                             * child now holds the expanded body, a BLOCK
+                             * whose statements take the place of the call.
+                             */
+                            result += size(child) - 1;
+                            for (int j = 0; j < inlined; j++) {
+                                s.addToBlock(i, child.removeFromBlock(
+                                        child.lengthOfBlock() - 1));
+                            }
+                            i += inlined;
+                        }
+                    }
+                    break;
+                }
+                case IF: {
+                    Statement body = s.newInstance();
+                    Condition c = s.disassembleIf(body);
+                    result = 1 + this.expand(body, size - 1, cap - 1);
+                    s.assembleIf(c, body);
+                    break;
+                }
+                case IF_ELSE: {
+                    Statement thenBody = s.newInstance();
+                    Statement elseBody = s.newInstance();
+                    Condition c = s.disassembleIfElse(thenBody, elseBody);
+                    int elseSize = size(elseBody);
+                    int thenSize = this.expand(thenBody, size - 1 - elseSize,
+                            cap - 1 - elseSize);
+                    elseSize = this.expand(elseBody, elseSize,
+                            cap - 1 - thenSize);
+                    result = 1 + thenSize + elseSize;
+                    s.assembleIfElse(c, thenBody, elseBody);
+                    break;
+                }
+                case WHILE: {
+                    Statement body = s.newInstance();
+                    Condition c = s.disassembleWhile(body);
+                    result = 1 + this.expand(body, size - 1, cap - 1);
+                    s.assembleWhile(c, body);
+                    break;
+                }
+                default: {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * If {@code s} is a call that can be inlined in a BLOCK of size
+         * {@code size} without it growing over {@code cap}, replaces
+         * {@code s} by the expanded body of the instruction called and
+         * reports its length, else leaves {@code s} alone and reports -1.
+         *
+         * @param s
+         *            a statement of the BLOCK
+         * @param size
+         *            the size of the BLOCK
+         * @param cap
+         *            the largest size the BLOCK may grow to
+         * @return the number of statements replacing s, or -1
+         * @updates s
+         */
+        private int inline(Statement s, int size, int cap) {
+            if (s.kind() != Kind.CALL) {
+                return -1;
+            }
+            String name = s.disassembleCall();
+            s.assembleCall(name);
+            int symbol = SymbolTable.intern(name);
+            if (SymbolTable.isPrimitive(symbol) || this.isActive(symbol)
+                    || !this.context.hasKey(name)) {
+                return -1;
+            }
+            Statement body = this.context.value(name);
+            int bodySize = size(body);
+            if (size - 1 + bodySize > cap) {
+                return -1;
+            }
+            Statement expanded = copy(body);
+            this.setActive(symbol, true);
+            this.expand(expanded, bodySize, cap - size + 1);
+            this.setActive(symbol, false);
+            s.transferFrom(expanded);
+            return s.lengthOfBlock();
+        }
+
+    }
+
+    /**
+     * Returns a new program equal to {@code p} except that, in its body and
+     * in each of its instruction bodies, calls are replaced by copies of the
+     * bodies they call, expanded in turn, while the body has at most
+     * {@code maxSize} statements. The new program keeps all the instructions
+     * of {@code p}.
+     *
+     * @param p
+     *            the program
+     * @param maxSize
+     *            the largest number of non-BLOCK statements inlining may grow
+     *            a body to
+     * @return the inlined program
+     * @requires maxSize >= 0
+     * @ensures <pre>
+     * inline.name = p.name  and
+     * DOMAIN(inline.context) = DOMAIN(p.context)  and
+     * [inline executes the same primitives and condition tests as p]
+     * </pre>
+     */
+    public static Program inline(Program p, int maxSize) {
+        assert p != null : "Violation of: p is not null";
+        assert maxSize >= 0 : "Violation of: maxSize >= 0";
+
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+        p.swapContext(context);
+        p.swapBody(body);
+
+        Expander expander = new Expander(context);
+        Map<String, Statement> newContext = p.newContext();
+        for (Map.Pair<String, Statement> pair : context) {
+            Statement newBody = copy(pair.value());
+            int symbol = SymbolTable.intern(pair.key());
+            expander.setActive(symbol, true);
+            int size = size(newBody);
+            if (size <= maxSize) {
+                expander.expand(newBody, size, maxSize);
+            }
+            expander.setActive(symbol, false);
+            newContext.add(pair.key(), newBody);
+        }
+        Statement newBody = copy(body);
+        int size = size(newBody);
+        if (size <= maxSize) {
+            expander.expand(newBody, size, maxSize);
+        }
+
+        p.swapBody(body);
+        p.swapContext(context);
+        Program result = p.newInstance();
+        result.setName(p.name());
+        result.swapContext(newContext);
+        result.swapBody(newBody);
+        return result;
+    }
+
+}
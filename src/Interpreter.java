@@ -0,0 +1,328 @@
+import java.util.Arrays;
+
+import components.map.Map;
+import components.statement.Statement;
+import components.utilities.Reporter;
+
+/**
+ * Tree-walking {@code Engine} running the body of a {@code Program2} against
+ * its context in a {@code World}. It walks the statements in place with
+ * {@code Statement2.Cursor}s, keeping the statements being executed on an
+ * explicit stack of frames, one per instruction call, so it can stop after any
+ * step and carry on later from the same point. Each primitive executed is
+ * recorded in a {@code PrimitiveTrace}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class Interpreter implements Engine {
+
+    /**
+     * Initial capacity of the frame stack.
+     */
+    private static final int INITIAL_FRAMES = 16;
+
+    /**
+     * Initial capacity of the state of a frame.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * The world the program runs in.
+     */
+    private final World world;
+
+    /**
+     * The trace primitives are recorded in, or null.
+     */
+    private final PrimitiveTrace trace;
+
+    /**
+     * The context of the program.
+     */
+    private final Map<String, Statement> context;
+
+    /**
+     * Instruction bodies found so far, indexed by the symbol of their names.
+     */
+    private Statement2[] bodies;
+
+    /**
+     * Cursor of each frame, at the node being executed in that frame.
+     */
+    private Statement2.Cursor[] cursors;
+
+    /**
+     * State of each frame, indexed by depth: for a BLOCK the position of the
+     * next child to run, for an IF or IF_ELSE 1 once a branch has been
+     * entered.
+     */
+    private int[][] states;
+
+    /**
+     * Number of frames in use; 0 once the program has finished.
+     */
+    private int frames;
+
+    /**
+     * Number of steps taken so far.
+     */
+    private long steps;
+
+    /**
+     * Executes the primitive instruction with symbol {@code symbol} in
+     * {@code w}.
+     *
+     * @param w
+     *            the world
+     * @param symbol
+     *            the symbol of the primitive
+     * @updates w
+     * @requires SymbolTable.isPrimitive(symbol)
+     */
+    static void primitive(World w, int symbol) {
+        switch (symbol) {
+            case SymbolTable.MOVE:
+                w.move();
+                break;
+            case SymbolTable.TURNLEFT:
+                w.turnLeft();
+                break;
+            case SymbolTable.TURNRIGHT:
+                w.turnRight();
+                break;
+            case SymbolTable.INFECT:
+                w.infect();
+                break;
+            default:
+                w.skip();
+                break;
+        }
+    }
+
+    /**
+     * Returns the body of the instruction whose name has symbol
+     * {@code symbol}, reporting a fatal error if the context has none.
+     *
+     * @param symbol
+     *            the symbol of the instruction name
+     * @return the body of the instruction
+     */
+    private Statement2 resolve(int symbol) {
+        if (symbol < this.bodies.length && this.bodies[symbol] != null) {
+            return this.bodies[symbol];
+        }
+        Statement body;
+        if (this.context instanceof ValidatedContext) {
+            ValidatedContext c = (ValidatedContext) this.context;
+            Reporter.assertElseFatalError(c.hasKey(symbol),
+                    "Undefined instruction: \"" + SymbolTable.name(symbol)
+                            + "\"");
+            body = c.value(symbol);
+        } else {
+            String name = SymbolTable.name(symbol);
+            Reporter.assertElseFatalError(this.context.hasKey(name),
+                    "Undefined instruction: \"" + name + "\"");
+            body = this.context.value(name);
+        }
+        assert body instanceof Statement2 : ""
+                + "Violation of: [the instruction bodies are Statement2s]";
+        if (symbol >= this.bodies.length) {
+            this.bodies = Arrays.copyOf(this.bodies,
+                    Math.max(2 * this.bodies.length, symbol + 1));
+        }
+        this.bodies[symbol] = (Statement2) body;
+        return this.bodies[symbol];
+    }
+
+    /**
+     * Pushes a frame running {@code body} from its start.
+     *
+     * @param body
+     *            the BLOCK to run
+     */
+    private void push(Statement2 body) {
+        if (this.frames == this.cursors.length) {
+            this.cursors = Arrays.copyOf(this.cursors, 2 * this.frames);
+            this.states = Arrays.copyOf(this.states, 2 * this.frames);
+        }
+        this.cursors[this.frames] = body.cursor();
+        if (this.states[this.frames] == null) {
+            this.states[this.frames] = new int[INITIAL_DEPTH];
+        }
+        this.states[this.frames][0] = 0;
+        this.frames++;
+    }
+
+    /**
+     * Moves the cursor of the top frame to child {@code pos} of its current
+     * node, to start running it.
+     *
+     * @param pos
+     *            the position of the child
+     */
+    private void enter(int pos) {
+        int f = this.frames - 1;
+        Statement2.Cursor c = this.cursors[f];
+        c.toChild(pos);
+        int d = c.depth();
+        if (d == this.states[f].length) {
+            this.states[f] = Arrays.copyOf(this.states[f], 2 * d);
+        }
+        this.states[f][d] = 0;
+    }
+
+    /**
+     * Finishes the node the cursor of the top frame is at: moves to its
+     * parent, or, if it is the body of the frame, pops the frame and finishes
+     * the CALL that pushed it.
+     */
+    private void finish() {
+        boolean done = false;
+        while (!done) {
+            Statement2.Cursor c = this.cursors[this.frames - 1];
+            if (c.depth() > 0) {
+                c.toParent();
+                done = true;
+            } else {
+                this.frames--;
+                this.cursors[this.frames] = null;
+                done = this.frames == 0;
+            }
+        }
+    }
+
+    /**
+     * Constructor of an interpreter about to run {@code p} from the start of
+     * its body in {@code w}. The program is read in place, so it must not be
+     * changed while the interpreter is in use.
+     *
+     * @param p
+     *            the program
+     * @param w
+     *            the world
+     * @param trace
+     *            the trace to record primitives in, or null not to record
+     *            them
+     * @requires [the body and the instruction bodies of p are Statement2s]
+     */
+    public Interpreter(Program2 p, World w, PrimitiveTrace trace) {
+        assert p != null : "Violation of: p is not null";
+        assert w != null : "Violation of: w is not null";
+        assert p.body() instanceof Statement2 : ""
+                + "Violation of: [the body of p is a Statement2]";
+        this.world = w;
+        this.trace = trace;
+        this.context = p.context();
+        this.bodies = new Statement2[SymbolTable.PRIMITIVES];
+        this.cursors = new Statement2.Cursor[INITIAL_FRAMES];
+        this.states = new int[INITIAL_FRAMES][];
+        this.frames = 0;
+        this.steps = 0;
+        this.push((Statement2) p.body());
+    }
+
+    @Override
+    public boolean isDone() {
+        return this.frames == 0;
+    }
+
+    @Override
+    public long steps() {
+        return this.steps;
+    }
+
+    @Override
+    public long run(long budget) {
+        assert budget >= 0 : "Violation of: budget >= 0";
+
+        long taken = 0;
+        while (this.frames > 0) {
+            int f = this.frames - 1;
+            Statement2.Cursor c = this.cursors[f];
+            int[] state = this.states[f];
+            int d = c.depth();
+            switch (c.kind()) {
+                case BLOCK: {
+                    int pos = state[d];
+                    if (pos < c.numberOfChildren()) {
+                        state[d] = pos + 1;
+                        this.enter(pos);
+                    } else {
+                        this.finish();
+                    }
+                    break;
+                }
+                case IF: {
+                    if (state[d] != 0) {
+                        this.finish();
+                    } else if (taken == budget) {
+                        this.steps += taken;
+                        return taken;
+                    } else {
+                        taken++;
+                        state[d] = 1;
+                        if (this.world.test(c.condition())) {
+                            this.enter(0);
+                        } else {
+                            this.finish();
+                        }
+                    }
+                    break;
+                }
+                case IF_ELSE: {
+                    if (state[d] != 0) {
+                        this.finish();
+                    } else if (taken == budget) {
+                        this.steps += taken;
+                        return taken;
+                    } else {
+                        taken++;
+                        state[d] = 1;
+                        if (this.world.test(c.condition())) {
+                            this.enter(0);
+                        } else {
+                            this.enter(1);
+                        }
+                    }
+                    break;
+                }
+                case WHILE: {
+                    if (taken == budget) {
+                        this.steps += taken;
+                        return taken;
+                    }
+                    taken++;
+                    if (this.world.test(c.condition())) {
+                        this.enter(0);
+                    } else {
+                        this.finish();
+                    }
+                    break;
+                }
+                default: {
+                    if (taken == budget) {
+                        this.steps += taken;
+                        return taken;
+                    }
+                    taken++;
+                    int symbol = c.symbol();
+                    if (SymbolTable.isPrimitive(symbol)) {
+                        primitive(this.world, symbol);
+                        if (this.trace != null) {
+                            this.trace.add(symbol);
+                        }
+                        this.finish();
+                    } else {
+                        this.push(this.resolve(symbol));
+                    }
+                    break;
+                }
+            }
+        }
+        this.steps += taken;
+        return taken;
+    }
+
+}
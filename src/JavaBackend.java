@@ -0,0 +1,635 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+import components.utilities.Reporter;
+
+/**
+ * Utility class turning BL programs into Java classes extending
+ * {@code CompiledProgram}, compiled in memory with the JDK compiler and
+ * loaded by a class loader of their own. The body of the program and of each
+ * instruction it can call become methods with Java {@code if} and
+ * {@code while} statements in place of the BL ones. A call in tail position,
+ * the last thing its instruction does, becomes a {@code tailCall}, and the
+ * class gets a {@code dispatch} method to run the instructions so called.
+ *
+ * <p>
+ * Classes are cached by a hash of the generated methods, which are
+ * determined by the content of the program, so equal programs are compiled
+ * once per JVM. Compiling needs a JDK, and the generated code is compiled
+ * against the class path of the JVM.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class JavaBackend {
+
+    /**
+     * Prefix of the names of the generated classes.
+     */
+    private static final String CLASS_PREFIX = "CompiledBL";
+
+    /**
+     * Number of hex digits of the hash of the methods in a class name.
+     */
+    private static final int NAME_DIGITS = 16;
+
+    /**
+     * Indentation of the statements of a method body.
+     */
+    private static final int METHOD_INDENT = 2;
+
+    /**
+     * Number of spaces per level of indentation.
+     */
+    private static final int INDENT_SPACES = 4;
+
+    /**
+     * Largest number of statements of a BLOCK emitted inline; larger BLOCKs
+     * are split into helper methods, so that no method grows past the limit
+     * the JVM puts on the size of its code.
+     */
+    private static final int METHOD_STATEMENTS = 1000;
+
+    /**
+     * Generated classes by the hash of their methods.
+     */
+    private static final ConcurrentHashMap<String, Class<? extends CompiledProgram>> CLASSES = new ConcurrentHashMap<>();
+
+    /**
+     * Source of a generated class, held in memory.
+     */
+    private static final class Source extends SimpleJavaFileObject {
+
+        /**
+         * The source code.
+         */
+        private final String code;
+
+        /**
+         * Constructor.
+         *
+         * @param className
+         *            the name of the class
+         * @param code
+         *            the source code
+         */
+        private Source(String className, String code) {
+            super(URI.create("string:///" + className
+                    + JavaFileObject.Kind.SOURCE.extension),
+                    JavaFileObject.Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return this.code;
+        }
+
+    }
+
+    /**
+     * Class file written by the compiler, held in memory.
+     */
+    private static final class ClassFile extends SimpleJavaFileObject {
+
+        /**
+         * The bytes written.
+         */
+        private final ByteArrayOutputStream bytes;
+
+        /**
+         * Constructor.
+         *
+         * @param className
+         *            the name of the class
+         */
+        private ClassFile(String className) {
+            super(URI.create("bytes:///" + className
+                    + JavaFileObject.Kind.CLASS.extension),
+                    JavaFileObject.Kind.CLASS);
+            this.bytes = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return this.bytes;
+        }
+
+    }
+
+    /**
+     * File manager keeping the class files written by the compiler in memory.
+     */
+    private static final class MemoryFileManager
+            extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        /**
+         * The class file written, once it has been.
+         */
+        private ClassFile output;
+
+        /**
+         * Constructor.
+         *
+         * @param fileManager
+         *            the file manager to read the class path through
+         */
+        private MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(
+                JavaFileManager.Location location, String className,
+                JavaFileObject.Kind kind, FileObject sibling) {
+            this.output = new ClassFile(className);
+            return this.output;
+        }
+
+    }
+
+    /**
+     * Class loader defining one generated class from its bytes, and
+     * delegating everything else to the loader of {@code CompiledProgram}.
+     */
+    private static final class GeneratedClassLoader extends ClassLoader {
+
+        /**
+         * Constructor.
+         */
+        private GeneratedClassLoader() {
+            super(CompiledProgram.class.getClassLoader());
+        }
+
+        /**
+         * Defines the class {@code name} from {@code bytes}.
+         *
+         * @param name
+         *            the name of the class
+         * @param bytes
+         *            the class file
+         * @return the class
+         */
+        private Class<?> define(String name, byte[] bytes) {
+            return this.defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+    /**
+     * Generator of the methods of a class: the Java code emitted so far, the
+     * helper methods large BLOCKs have been split into, and the symbols of
+     * the instructions for which methods have been or are to be emitted.
+     */
+    private static final class Generator {
+
+        /**
+         * The context of the program.
+         */
+        private final Map<String, Statement> context;
+
+        /**
+         * The source of the method being emitted.
+         */
+        private StringBuilder out;
+
+        /**
+         * The source of the helper methods emitted so far.
+         */
+        private final StringBuilder helpers;
+
+        /**
+         * Number of helper methods emitted so far.
+         */
+        private int helperCount;
+
+        /**
+         * Whether the instruction with each symbol has been queued.
+         */
+        private boolean[] queued;
+
+        /**
+         * Symbols of the instructions queued, in order.
+         */
+        private int[] pending;
+
+        /**
+         * Number of symbols in {@code pending}.
+         */
+        private int pendingLength;
+
+        /**
+         * Constructor.
+         *
+         * @param context
+         *            the context of the program
+         */
+        private Generator(Map<String, Statement> context) {
+            this.context = context;
+            this.out = new StringBuilder();
+            this.helpers = new StringBuilder();
+            this.helperCount = 0;
+            this.queued = new boolean[SymbolTable.PRIMITIVES];
+            this.pending = new int[SymbolTable.PRIMITIVES];
+            this.pendingLength = 0;
+        }
+
+        /**
+         * Emits {@code line} at indentation level {@code level}.
+         *
+         * @param level
+         *            the indentation level
+         * @param line
+         *            the line
+         */
+        private void line(int level, String line) {
+            for (int i = 0; i < level * INDENT_SPACES; i++) {
+                this.out.append(' ');
+            }
+            this.out.append(line).append('\n');
+        }
+
+        /**
+         * Queues the instruction with symbol {@code symbol} unless it already
+         * is.
+         *
+         * @param symbol
+         *            the symbol of the instruction
+         */
+        private void queue(int symbol) {
+            if (symbol >= this.queued.length) {
+                this.queued = Arrays.copyOf(this.queued,
+                        Math.max(2 * this.queued.length, symbol + 1));
+            }
+            if (!this.queued[symbol]) {
+                this.queued[symbol] = true;
+                if (this.pendingLength == this.pending.length) {
+                    this.pending = Arrays.copyOf(this.pending,
+                            2 * this.pendingLength);
+                }
+                this.pending[this.pendingLength] = symbol;
+                this.pendingLength++;
+            }
+        }
+
+        /**
+         * Emits the Java statements of {@code s} at indentation level
+         * {@code level}, going through the kernel methods and leaving
+         * {@code s} as it was.
+         *
+         * @param s
+         *            the statement
+         * @param level
+         *            the indentation level
+         * @param tail
+         *            whether nothing is left for the instruction to do after
+         *            {@code s}
+         */
+        private void statement(Statement s, int level, boolean tail) {
+            switch (s.kind()) {
+                case BLOCK: {
+                    if (Inliner.size(s) > METHOD_STATEMENTS) {
+                        this.split(s, level, tail);
+                    } else {
+                        int last = s.lengthOfBlock() - 1;
+                        for (int i = 0; i <= last; i++) {
+                            Statement child = s.removeFromBlock(i);
+                            this.statement(child, level, tail && i == last);
+                            s.addToBlock(i, child);
+                        }
+                    }
+                    break;
+                }
+                case IF: {
+                    Statement body = s.newInstance();
+                    Condition c = s.disassembleIf(body);
+                    this.line(level, "if (test(" + c.ordinal() + ")) {");
+                    this.statement(body, level + 1, tail);
+                    this.line(level, "}");
+                    s.assembleIf(c, body);
+                    break;
+                }
+                case IF_ELSE: {
+                    Statement thenBody = s.newInstance();
+                    Statement elseBody = s.newInstance();
+                    Condition c = s.disassembleIfElse(thenBody, elseBody);
+                    this.line(level, "if (test(" + c.ordinal() + ")) {");
+                    this.statement(thenBody, level + 1, tail);
+                    this.line(level, "} else {");
+                    this.statement(elseBody, level + 1, tail);
+                    this.line(level, "}");
+                    s.assembleIfElse(c, thenBody, elseBody);
+                    break;
+                }
+                case WHILE: {
+                    Statement body = s.newInstance();
+                    Condition c = s.disassembleWhile(body);
+                    this.line(level, "while (test(" + c.ordinal() + ")) {");
+                    this.statement(body, level + 1, false);
+                    this.line(level, "}");
+                    s.assembleWhile(c, body);
+                    break;
+                }
+                default: {
+                    String name = s.disassembleCall();
+                    int symbol = SymbolTable.intern(name);
+                    switch (symbol) {
+                        case SymbolTable.MOVE:
+                            this.line(level, "move();");
+                            break;
+                        case SymbolTable.TURNLEFT:
+                            this.line(level, "turnLeft();");
+                            break;
+                        case SymbolTable.TURNRIGHT:
+                            this.line(level, "turnRight();");
+                            break;
+                        case SymbolTable.INFECT:
+                            this.line(level, "infect();");
+                            break;
+                        case SymbolTable.SKIP:
+                            this.line(level, "skip();");
+                            break;
+                        default:
+                            if (!this.context.hasKey(name)) {
+                                this.line(level, "undefined(" + symbol + ");");
+                            } else if (tail) {
+                                this.queue(symbol);
+                                this.line(level, "tailCall(" + symbol + ");");
+                            } else {
+                                this.queue(symbol);
+                                this.line(level, "call();");
+                                this.line(level, "i" + symbol + "();");
+                                this.line(level, "drain();");
+                            }
+                            break;
+                    }
+                    s.assembleCall(name);
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Emits the statements of the BLOCK {@code s} as calls, at
+         * indentation level {@code level}, of helper methods each holding a
+         * run of consecutive statements of at most {@code METHOD_STATEMENTS}
+         * statements in all, or a single larger statement, going through the
+         * kernel methods and leaving {@code s} as it was.
+         *
+         * @param s
+         *            the BLOCK
+         * @param level
+         *            the indentation level
+         * @param tail
+         *            whether nothing is left for the instruction to do after
+         *            {@code s}
+         * @requires [s is a BLOCK]
+         */
+        private void split(Statement s, int level, boolean tail) {
+            StringBuilder caller = this.out;
+            int last = s.lengthOfBlock() - 1;
+            int i = 0;
+            while (i < s.lengthOfBlock()) {
+                String helper = "b" + this.helperCount;
+                this.helperCount++;
+                this.out = new StringBuilder();
+                this.line(1, "private void " + helper + "() {");
+                int size = 0;
+                boolean full = false;
+                while (i < s.lengthOfBlock() && !full) {
+                    Statement child = s.removeFromBlock(i);
+                    int childSize = Inliner.size(child);
+                    full = size > 0 && size + childSize > METHOD_STATEMENTS;
+                    if (!full) {
+                        this.statement(child, METHOD_INDENT,
+                                tail && i == last);
+                        size += childSize;
+                    }
+                    s.addToBlock(i, child);
+                    if (!full) {
+                        i++;
+                    }
+                }
+                this.line(1, "}");
+                this.helpers.append(this.out);
+                this.out = caller;
+                this.line(level, helper + "();");
+            }
+        }
+
+        /**
+         * Emits the methods of the class running {@code body}: its
+         * {@code body} method, one for every instruction it can call, and
+         * {@code dispatch}.
+         *
+         * @param body
+         *            the body of the program
+         */
+        private void methods(Statement body) {
+            this.line(1, "@Override");
+            this.line(1, "protected void body() {");
+            this.statement(body, METHOD_INDENT, false);
+            this.line(1, "}");
+            for (int i = 0; i < this.pendingLength; i++) {
+                int symbol = this.pending[i];
+                this.line(1, "private void i" + symbol + "() {");
+                this.statement(this.context.value(SymbolTable.name(symbol)),
+                        METHOD_INDENT, true);
+                this.line(1, "}");
+            }
+            this.line(1, "@Override");
+            this.line(1, "protected void dispatch(int symbol) {");
+            this.line(2, "switch (symbol) {");
+            for (int i = 0; i < this.pendingLength; i++) {
+                int symbol = this.pending[i];
+                this.line(3, "case " + symbol + ":");
+                this.line(4, "i" + symbol + "();");
+                this.line(4, "break;");
+            }
+            this.line(3, "default:");
+            this.line(4, "break;");
+            this.line(2, "}");
+            this.line(1, "}");
+            this.out.append(this.helpers);
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private JavaBackend() {
+    }
+
+    /**
+     * Returns the hex SHA-256 hash of {@code text}.
+     *
+     * @param text
+     *            the text to hash
+     * @return the hash of text
+     */
+    private static String hash(String text) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256")
+                    .digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is not available");
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the Java source of the methods of the class generated from
+     * {@code p}, which do not depend on the name of the class.
+     *
+     * @param p
+     *            the program
+     * @return the source of the methods
+     */
+    static String methods(Program p) {
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+        p.swapContext(context);
+        p.swapBody(body);
+        Generator generator = new Generator(context);
+        generator.methods(body);
+        p.swapBody(body);
+        p.swapContext(context);
+        return generator.out.toString();
+    }
+
+    /**
+     * Returns the Java source of the class {@code className} with the methods
+     * {@code methods}.
+     *
+     * @param className
+     *            the name of the class
+     * @param methods
+     *            the source of the methods
+     * @return the source of the class
+     */
+    private static String source(String className, String methods) {
+        return "public final class " + className
+                + " extends CompiledProgram {\n" + "    public " + className
+                + "(World w, PrimitiveTrace trace) {\n"
+                + "        super(w, trace);\n" + "    }\n" + methods + "}\n";
+    }
+
+    /**
+     * Compiles the class {@code className} from {@code code} and loads it
+     * with a new class loader. If it does not compile, reports the
+     * diagnostics of the compiler as a fatal error.
+     *
+     * @param className
+     *            the name of the class
+     * @param code
+     *            the source of the class
+     * @return the class
+     */
+    private static Class<? extends CompiledProgram> load(String className,
+            String code) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Reporter.assertElseFatalError(compiler != null,
+                "No Java compiler available: run on a JDK");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        MemoryFileManager fileManager = new MemoryFileManager(
+                compiler.getStandardFileManager(diagnostics, null, null));
+        List<String> options = Arrays.asList("-classpath",
+                System.getProperty("java.class.path"));
+        boolean compiled = compiler
+                .getTask(null, fileManager, diagnostics, options, null,
+                        Collections.singletonList(new Source(className, code)))
+                .call();
+        if (!compiled || fileManager.output == null) {
+            Reporter.assertElseFatalError(false, "Cannot compile " + className
+                    + ": " + diagnostics.getDiagnostics());
+        }
+        byte[] bytes = fileManager.output.bytes.toByteArray();
+        return new GeneratedClassLoader().define(className, bytes)
+                .asSubclass(CompiledProgram.class);
+    }
+
+    /**
+     * Returns the class generated from {@code p}, compiling it unless a
+     * program with the same content has already been compiled.
+     *
+     * @param p
+     *            the program
+     * @return the class generated from p
+     * @ensures [instances of compile run as p would]
+     */
+    public static Class<? extends CompiledProgram> compile(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        String methods = methods(p);
+        String key = hash(methods);
+        Class<? extends CompiledProgram> result = CLASSES.get(key);
+        if (result == null) {
+            String className = CLASS_PREFIX + key.substring(0, NAME_DIGITS);
+            result = load(className, source(className, methods));
+            Class<? extends CompiledProgram> other = CLASSES.putIfAbsent(key,
+                    result);
+            if (other != null) {
+                result = other;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new instance of the class generated from {@code p}, about to
+     * run in {@code w}.
+     *
+     * @param p
+     *            the program
+     * @param w
+     *            the world
+     * @param trace
+     *            the trace to record primitives in, or null not to record
+     *            them
+     * @return the compiled program
+     * @ensures [newProgram runs as p would]
+     */
+    public static CompiledProgram newProgram(Program p, World w,
+            PrimitiveTrace trace) {
+        assert w != null : "Violation of: w is not null";
+
+        try {
+            Constructor<? extends CompiledProgram> constructor = compile(p)
+                    .getConstructor(World.class, PrimitiveTrace.class);
+            return constructor.newInstance(w, trace);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError("Cannot construct compiled program");
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * Sequence of the primitive instructions executed by a BL program, each
+ * recorded as its {@code SymbolTable} id, so that the executions of a program
+ * by different engines can be compared.
+ *
+ * @convention 0 <= $this.length <= |$this.symbols| and
+ *             [$this.symbols[0, $this.length) are primitive symbols]
+ * @correspondence this = $this.symbols[0, $this.length)
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class PrimitiveTrace {
+
+    /**
+     * Initial capacity of {@code symbols}.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The symbols of the primitives, in the order they were executed.
+     */
+    private int[] symbols;
+
+    /**
+     * Number of primitives recorded.
+     */
+    private int length;
+
+    /**
+     * No-argument constructor.
+     */
+    public PrimitiveTrace() {
+        this.symbols = new int[INITIAL_CAPACITY];
+        this.length = 0;
+    }
+
+    /**
+     * Records the primitive with symbol {@code symbol}.
+     *
+     * @param symbol
+     *            the symbol of the primitive
+     * @updates this
+     * @requires SymbolTable.isPrimitive(symbol)
+     * @ensures this = #this * <symbol>
+     */
+    public void add(int symbol) {
+        assert SymbolTable.isPrimitive(symbol) : ""
+                + "Violation of: symbol is a primitive";
+        if (this.length == this.symbols.length) {
+            this.symbols = Arrays.copyOf(this.symbols, 2 * this.length);
+        }
+        this.symbols[this.length] = symbol;
+        this.length++;
+    }
+
+    /**
+     * Reports the number of primitives recorded.
+     *
+     * @return |this|
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Reports the symbol of the {@code i}-th primitive recorded.
+     *
+     * @param i
+     *            the position
+     * @return the symbol at position i
+     * @requires 0 <= i < |this|
+     */
+    public int symbol(int i) {
+        assert 0 <= i && i < this.length : "Violation of: 0 <= i < |this|";
+        return this.symbols[i];
+    }
+
+    /**
+     * Removes all the primitives recorded.
+     *
+     * @clears this
+     */
+    public void clear() {
+        this.length = 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof PrimitiveTrace)) {
+            return false;
+        }
+        PrimitiveTrace other = (PrimitiveTrace) obj;
+        if (this.length != other.length) {
+            return false;
+        }
+        for (int i = 0; i < this.length; i++) {
+            if (this.symbols[i] != other.symbols[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < this.length; i++) {
+            h = 31 * h + this.symbols[i];
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("<");
+        for (int i = 0; i < this.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(SymbolTable.name(this.symbols[i]));
+        }
+        return out.append('>').toString();
+    }
+
+}
@@ -1,10 +1,22 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 import components.map.Map;
 import components.map.Map1L;
 import components.program.Program;
 import components.program.ProgramSecondary;
+import components.simplewriter.SimpleWriter;
 import components.statement.Statement;
 import components.statement.Statement1;
 import components.statement.StatementKernel.Kind;
+import components.utilities.Reporter;
 import components.utilities.Tokenizer;
 
 /**
@@ -25,6 +37,154 @@ public class Program2 extends ProgramSecondary {
      * Private members --------------------------------------------------------
      */
 
+    /**
+     * Constructors of the subclasses of {@code Program2} taking the context
+     * and body types, looked up once per class so that {@code newInstance}
+     * does not go through reflection on every call. For a subclass with no
+     * such constructor, its no-argument constructor, ignoring the types.
+     */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            try {
+                try {
+                    return lookup
+                            .findConstructor(type,
+                                    MethodType.methodType(void.class,
+                                            Map.class, Statement.class))
+                            .asType(MethodType.methodType(Program2.class,
+                                    Map.class, Statement.class));
+                } catch (NoSuchMethodException e) {
+                    MethodHandle noArgument = lookup
+                            .findConstructor(type,
+                                    MethodType.methodType(void.class))
+                            .asType(MethodType.methodType(Program2.class));
+                    return MethodHandles.dropArguments(noArgument, 0,
+                            Map.class, Statement.class);
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(
+                        "Cannot construct object of type " + type, e);
+            }
+        }
+    };
+
+    /**
+     * Task parsing one BLOCK, the body of an instruction or of the program,
+     * from its own view of a {@code TokenStream}.
+     */
+    private static final class BlockTask extends RecursiveTask<Statement> {
+
+        /**
+         * Serialization version, required of every {@code ForkJoinTask}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The tokens, starting with the first token of the block.
+         */
+        private final transient TokenStream tokens;
+
+        /**
+         * Index of the END that must follow the block.
+         */
+        private final int end;
+
+        /**
+         * The empty statement to parse the block into.
+         */
+        private final transient Statement block;
+
+        /**
+         * Constructor.
+         *
+         * @param tokens
+         *            the tokens, starting with the first token of the block
+         * @param end
+         *            the index of the END that must follow the block
+         * @param block
+         *            the empty statement to parse the block into
+         */
+        private BlockTask(TokenStream tokens, int end, Statement block) {
+            this.tokens = tokens;
+            this.end = end;
+            this.block = block;
+        }
+
+        @Override
+        protected Statement compute() {
+            BLParser.parseBlock(this.tokens, this.block);
+            Reporter.assertElseFatalError(this.tokens.position() == this.end,
+                    "Expected \"END\", found: \"" + this.tokens.front()
+                            + "\"");
+            return this.block;
+        }
+
+    }
+
+    /**
+     * Task rendering one instruction, or the program body, into its own
+     * buffer, in the format of {@code prettyPrint}.
+     */
+    private static final class RenderTask extends RecursiveTask<StringBuilder> {
+
+        /**
+         * Serialization version, required of every {@code ForkJoinTask}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The name of the instruction, or of the program for its body.
+         */
+        private final String name;
+
+        /**
+         * The body to render.
+         */
+        private final transient Statement body;
+
+        /**
+         * Whether this is an instruction rather than the program body.
+         */
+        private final boolean instruction;
+
+        /**
+         * Constructor.
+         *
+         * @param name
+         *            the name of the instruction, or of the program
+         * @param body
+         *            the body to render
+         * @param instruction
+         *            whether this is an instruction
+         */
+        private RenderTask(String name, Statement body, boolean instruction) {
+            this.name = name;
+            this.body = body;
+            this.instruction = instruction;
+        }
+
+        @Override
+        protected StringBuilder compute() {
+            StringBuilder out = new StringBuilder();
+            int indent = Statement2.INDENT_SIZE;
+            if (this.instruction) {
+                StatementPrinter.appendLine(out, indent,
+                        "INSTRUCTION " + this.name + " IS");
+                StatementPrinter.render(this.body, 2 * indent, out);
+                StatementPrinter.appendLine(out, indent, "END " + this.name);
+                out.append(Statement2.LINE_SEPARATOR);
+            } else {
+                StatementPrinter.appendLine(out, 0, "BEGIN");
+                StatementPrinter.render(this.body, indent, out);
+                StatementPrinter.appendLine(out, 0, "END " + this.name);
+            }
+            return out;
+        }
+
+    }
+
     /**
      * The program name.
      */
@@ -42,7 +202,8 @@ public class Program2 extends ProgramSecondary {
 
     /**
      * Reports whether all the names of instructions in {@code c} are valid
-     * IDENTIFIERs.
+     * IDENTIFIERs. A {@code ValidatedContext} answers from the counts it
+     * keeps; any other map is scanned.
      *
      * @param c
      *            the context to check
@@ -53,6 +214,9 @@ public class Program2 extends ProgramSecondary {
      * </pre>
      */
     private static boolean allIdentifiers(Map<String, Statement> c) {
+        if (c instanceof ValidatedContext) {
+            return ((ValidatedContext) c).allIdentifiers();
+        }
         for (Map.Pair<String, Statement> pair : c) {
             if (!Tokenizer.isIdentifier(pair.key())) {
                 return false;
@@ -75,6 +239,9 @@ public class Program2 extends ProgramSecondary {
      * </pre>
      */
     private static boolean noPrimitiveInstructions(Map<String, Statement> c) {
+        if (c instanceof ValidatedContext) {
+            return ((ValidatedContext) c).noPrimitiveInstructions();
+        }
         return !c.hasKey("move") && !c.hasKey("turnleft")
                 && !c.hasKey("turnright") && !c.hasKey("infect")
                 && !c.hasKey("skip");
@@ -82,7 +249,9 @@ public class Program2 extends ProgramSecondary {
 
     /**
      * Reports whether all the bodies of instructions in {@code c} are BLOCK
-     * statements.
+     * statements, scanning {@code c}. Bodies can be changed through the
+     * references a map hands out, so not even a {@code ValidatedContext} can
+     * keep this check up to date.
      *
      * @param c
      *            the context to check
@@ -108,10 +277,8 @@ public class Program2 extends ProgramSecondary {
     private void createNewRep() {
 
         this.name = "Unnamed";
-        this.context = new Map1L<String, Statement>();
-        this.body = new Statement1();
-        // Make sure to use Statement1 from the library
-        // Use Map1L for the context if you want the asserts below to match
+        this.context = this.context.newInstance();
+        this.body = this.body.newInstance();
 
     }
 
@@ -120,9 +287,48 @@ public class Program2 extends ProgramSecondary {
      */
 
     /**
-     * No-argument constructor.
+     * No-argument constructor. The context is a {@code Map1L} and the body a
+     * {@code Statement1}.
      */
     public Program2() {
+        this(new Map1L<String, Statement>(), new Statement1());
+    }
+
+    /**
+     * Constructor whose context, and every context returned by
+     * {@code newContext}, has the dynamic type of {@code contextType}, e.g. a
+     * {@code StringMap} for constant-time lookup of instructions in programs
+     * with many of them. Only the dynamic type of {@code contextType} is used.
+     * The body is a {@code Statement1}.
+     *
+     * @param contextType
+     *            a map of the type to use for the context
+     */
+    public Program2(Map<String, Statement> contextType) {
+        this(contextType, new Statement1());
+    }
+
+    /**
+     * Constructor whose context and body, and every context and body returned
+     * by {@code newContext} and {@code newBody}, have the dynamic types of
+     * {@code contextType} and {@code bodyType}. The instruction bodies built
+     * by {@code parse} are made with {@code newBody}, so they are of the type
+     * of {@code bodyType} too. Only the dynamic types of the arguments are
+     * used. {@code newInstance} on a subclass calls its public constructor
+     * with these parameters, if it has one, with the context and body of the
+     * program it is called on, so that new programs keep their types; else it
+     * calls its public no-argument constructor.
+     *
+     * @param contextType
+     *            a map of the type to use for the context
+     * @param bodyType
+     *            a statement of the type to use for bodies
+     */
+    public Program2(Map<String, Statement> contextType, Statement bodyType) {
+        assert contextType != null : "Violation of: contextType is not null";
+        assert bodyType != null : "Violation of: bodyType is not null";
+        this.context = contextType;
+        this.body = bodyType;
         this.createNewRep();
     }
 
@@ -132,11 +338,17 @@ public class Program2 extends ProgramSecondary {
 
     @Override
     public final Program newInstance() {
+        if (this.getClass() == Program2.class) {
+            return new Program2(this.context, this.body);
+        }
         try {
-            return this.getClass().getConstructor().newInstance();
-        } catch (ReflectiveOperationException e) {
+            return (Program2) CONSTRUCTORS.get(this.getClass())
+                    .invokeExact(this.context, this.body);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new AssertionError(
-                    "Cannot construct object of type " + this.getClass());
+                    "Cannot construct object of type " + this.getClass(), e);
         }
     }
 
@@ -188,10 +400,12 @@ public class Program2 extends ProgramSecondary {
         return this.context.newInstance();
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public final void swapContext(Map<String, Statement> c) {
         assert c != null : "Violation of: c is not null";
-        assert c instanceof Map1L<?, ?> : "Violation of: c is a Map1L<?, ?>";
+        assert c.getClass() == this.context.getClass() : ""
+                + "Violation of: c is of the dynamic type of this.context";
         assert allIdentifiers(
                 c) : "Violation of: names in c are valid IDENTIFIERs";
         assert noPrimitiveInstructions(c) : ""
@@ -200,13 +414,26 @@ public class Program2 extends ProgramSecondary {
         assert allBlocks(c) : "Violation of: bodies in c"
                 + " are all BLOCK statements";
 
-        //Create a temporary map to store this.context.
-        Map<String, Statement> tempLocalContext = this.context.newInstance();
-        tempLocalContext.transferFrom(this.context);
-        //Change the content of this.context to c.
-        this.context.transferFrom(c);
-        //Change the content of c to tempLocalContext.
-        c.transferFrom(tempLocalContext);
+        if (this.context instanceof StringMap<?> && c instanceof StringMap<?>) {
+            /*
+             * Both maps have the same representation, so exchange it in place
+             * rather than through a temporary map.
+             */
+            ((StringMap<Statement>) this.context)
+                    .swap((StringMap<Statement>) c);
+        } else if (this.context instanceof ValidatedContext
+                && c instanceof ValidatedContext) {
+            ((ValidatedContext) this.context).swap((ValidatedContext) c);
+        } else {
+            //Create a temporary map to store this.context.
+            Map<String, Statement> tempLocalContext = this.context
+                    .newInstance();
+            tempLocalContext.transferFrom(this.context);
+            //Change the content of this.context to c.
+            this.context.transferFrom(c);
+            //Change the content of c to tempLocalContext.
+            c.transferFrom(tempLocalContext);
+        }
 
     }
 
@@ -219,17 +446,255 @@ public class Program2 extends ProgramSecondary {
     @Override
     public final void swapBody(Statement b) {
         assert b != null : "Violation of: b is not null";
-        assert b instanceof Statement1 : "Violation of: b is a Statement1";
+        assert b.getClass() == this.body.getClass() : ""
+                + "Violation of: b is of the dynamic type of this.body";
         assert b.kind() == Kind.BLOCK : "Violation of: b is a BLOCK statement";
 
-        //Create a temporary statement to store this.body.
-        Statement tempLocalBody = this.body.newInstance();
-        tempLocalBody.transferFrom(this.body);
-        //Change the content of this.body to b.
-        this.body.transferFrom(b);
-        //Change the content of b to tempLocalBody.
-        b.transferFrom(tempLocalBody);
+        if (this.body instanceof Statement2 && b instanceof Statement2) {
+            /*
+             * Both statements have the same representation, so exchange it in
+             * place rather than through a temporary statement.
+             */
+            ((Statement2) this.body).swap((Statement2) b);
+        } else {
+            //Create a temporary statement to store this.body.
+            Statement tempLocalBody = this.body.newInstance();
+            tempLocalBody.transferFrom(this.body);
+            //Change the content of this.body to b.
+            this.body.transferFrom(b);
+            //Change the content of b to tempLocalBody.
+            b.transferFrom(tempLocalBody);
+        }
+
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports the body of {@code this}, for the execution engines in this
+     * package, which read it without taking it out of the program. The body
+     * must not be changed through the result.
+     *
+     * @return the body of this
+     * @aliases reference returned by body
+     * @ensures body = this.body
+     */
+    final Statement body() {
+        return this.body;
+    }
+
+    /**
+     * Reports the context of {@code this}, for the execution engines in this
+     * package. The context must not be changed through the result.
+     *
+     * @return the context of this
+     * @aliases reference returned by context
+     * @ensures context = this.context
+     */
+    final Map<String, Statement> context() {
+        return this.context;
+    }
 
+    /**
+     * Parses a BL program from {@code tokens} into {@code this}, in the same
+     * way as {@code parse(Queue<String>)}. Instruction bodies and the program
+     * body are parsed with {@code BLParser}, so a {@code BLTokenizer} over a
+     * file can be consumed without building a queue of all its tokens.
+     *
+     * @param tokens
+     *            the input tokens
+     * @updates tokens
+     * @replaces this
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [tokens is a valid BL program followed by Tokenizer.END_OF_INPUT] then
+     *  this = [the program corresponding to #tokens]
+     * else
+     *  [report an appropriate error message to the console and terminate
+     *   client]
+     * </pre>
+     */
+    public final void parse(TokenSource tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+
+        BLParser.expect(tokens, TokenCodes.PROGRAM);
+        String programName = BLParser.identifier(tokens, "program name");
+        BLParser.expect(tokens, TokenCodes.IS);
+        Map<String, Statement> c = this.newContext();
+        while (tokens.code() == TokenCodes.INSTRUCTION) {
+            tokens.dequeue();
+            String instName = BLParser.identifier(tokens, "instruction name");
+            Reporter.assertElseFatalError(!SymbolTable.isPrimitive(instName),
+                    "Instruction name is a primitive instruction: \""
+                            + instName + "\"");
+            Reporter.assertElseFatalError(!c.hasKey(instName),
+                    "Instruction is defined twice: \"" + instName + "\"");
+            BLParser.expect(tokens, TokenCodes.IS);
+            Statement instBody = this.newBody();
+            BLParser.parseBlock(tokens, instBody);
+            BLParser.expect(tokens, TokenCodes.END);
+            BLParser.expectName(tokens, instName);
+            c.add(instName, instBody);
+        }
+        BLParser.expect(tokens, TokenCodes.BEGIN);
+        Statement b = this.newBody();
+        BLParser.parseBlock(tokens, b);
+        BLParser.expect(tokens, TokenCodes.END);
+        BLParser.expectName(tokens, programName);
+        Reporter.assertElseFatalError(
+                tokens.code() == TokenCodes.END_OF_INPUT,
+                "Expected end of input, found: \"" + tokens.front() + "\"");
+        this.setName(programName);
+        this.swapContext(c);
+        this.swapBody(b);
+    }
+
+    /**
+     * Reports the index of the END that closes the BLOCK starting at index
+     * {@code start} of {@code tokens}, assuming the block is well formed: the
+     * first END that is not followed by IF or WHILE. If there is none, reports
+     * the index of the final END_OF_INPUT.
+     *
+     * @param tokens
+     *            the tokens
+     * @param start
+     *            the index of the first token of the block
+     * @return the index of the END after the block
+     */
+    private static int blockEnd(TokenStream tokens, int start) {
+        int i = start;
+        int code = tokens.codeAt(i);
+        while (code != TokenCodes.END_OF_INPUT && (code != TokenCodes.END
+                || tokens.codeAt(i + 1) == TokenCodes.IF
+                || tokens.codeAt(i + 1) == TokenCodes.WHILE)) {
+            i++;
+            code = tokens.codeAt(i);
+        }
+        return i;
+    }
+
+    /**
+     * Parses a BL program from {@code tokens} into {@code this}, with the
+     * same result as {@code parse(tokens)}, but parsing the body of every
+     * instruction and of the program as a separate task on {@code pool}. The
+     * tokens are first scanned once, sequentially, to find where each body
+     * starts and ends and to check everything outside the bodies; the bodies
+     * are then parsed in parallel from their own views of {@code tokens}, and
+     * the instructions are added to the context in program order.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param pool
+     *            the pool to parse on
+     * @updates tokens
+     * @replaces this
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [tokens is a valid BL program followed by Tokenizer.END_OF_INPUT] then
+     *  this = [the program corresponding to #tokens]
+     * else
+     *  [report an appropriate error message to the console and terminate
+     *   client]
+     * </pre>
+     */
+    public final void parse(TokenStream tokens, ForkJoinPool pool) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert pool != null : "Violation of: pool is not null";
+
+        BLParser.expect(tokens, TokenCodes.PROGRAM);
+        String programName = BLParser.identifier(tokens, "program name");
+        BLParser.expect(tokens, TokenCodes.IS);
+        Map<String, Statement> c = this.newContext();
+        List<String> instNames = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        List<BlockTask> tasks = new ArrayList<>();
+        while (tokens.code() == TokenCodes.INSTRUCTION) {
+            tokens.dequeue();
+            String instName = BLParser.identifier(tokens, "instruction name");
+            Reporter.assertElseFatalError(!SymbolTable.isPrimitive(instName),
+                    "Instruction name is a primitive instruction: \""
+                            + instName + "\"");
+            Reporter.assertElseFatalError(seen.add(instName),
+                    "Instruction is defined twice: \"" + instName + "\"");
+            BLParser.expect(tokens, TokenCodes.IS);
+            int end = blockEnd(tokens, tokens.position());
+            tasks.add(new BlockTask(tokens.view(tokens.position()), end,
+                    this.newBody()));
+            instNames.add(instName);
+            tokens.skipTo(end);
+            BLParser.expect(tokens, TokenCodes.END);
+            BLParser.expectName(tokens, instName);
+        }
+        BLParser.expect(tokens, TokenCodes.BEGIN);
+        int end = blockEnd(tokens, tokens.position());
+        BlockTask bodyTask = new BlockTask(tokens.view(tokens.position()), end,
+                this.newBody());
+        tokens.skipTo(end);
+        BLParser.expect(tokens, TokenCodes.END);
+        BLParser.expectName(tokens, programName);
+        Reporter.assertElseFatalError(
+                tokens.code() == TokenCodes.END_OF_INPUT,
+                "Expected end of input, found: \"" + tokens.front() + "\"");
+        for (BlockTask task : tasks) {
+            pool.execute(task);
+        }
+        pool.execute(bodyTask);
+        for (int i = 0; i < tasks.size(); i++) {
+            c.add(instNames.get(i), tasks.get(i).join());
+        }
+        Statement b = bodyTask.join();
+        this.setName(programName);
+        this.swapContext(c);
+        this.swapBody(b);
+    }
+
+    /**
+     * Pretty prints {@code this} to {@code out} exactly as
+     * {@code prettyPrint(out)} does, but rendering each instruction and the
+     * program body into its own buffer as a separate task on {@code pool}.
+     * The buffers are then joined in the order {@code prettyPrint} prints the
+     * instructions and written to {@code out} with a single {@code print}.
+     *
+     * @param out
+     *            the output stream
+     * @param pool
+     *            the pool to render on
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [this pretty printed]
+     */
+    public final void prettyPrint(SimpleWriter out, ForkJoinPool pool) {
+        assert out != null : "Violation of: out is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+        assert pool != null : "Violation of: pool is not null";
+
+        List<RenderTask> tasks = new ArrayList<>();
+        for (Map.Pair<String, Statement> pair : this.context) {
+            tasks.add(new RenderTask(pair.key(), pair.value(), true));
+        }
+        tasks.add(new RenderTask(this.name, this.body, false));
+        for (RenderTask task : tasks) {
+            pool.execute(task);
+        }
+        StringBuilder header = new StringBuilder();
+        StatementPrinter.appendLine(header, 0,
+                "PROGRAM " + this.name + " IS");
+        header.append(Statement2.LINE_SEPARATOR);
+        List<StringBuilder> parts = new ArrayList<>();
+        int length = header.length();
+        for (RenderTask task : tasks) {
+            StringBuilder part = task.join();
+            parts.add(part);
+            length += part.length();
+        }
+        StringBuilder all = new StringBuilder(length);
+        all.append(header);
+        for (StringBuilder part : parts) {
+            all.append(part);
+        }
+        out.print(all.toString());
     }
 
 }
@@ -0,0 +1,498 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import components.map.Map;
+import components.map.Map1L;
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+
+/**
+ * Simple timing harness for the {@code Program} kernel implementation in this
+ * project.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class ProgramBenchmark {
+
+    /**
+     * Number of untimed runs before each timed run, to let the JIT settle.
+     */
+    private static final int WARMUP_RUNS = 3;
+
+    /**
+     * Number of objects created per timed run of the newInstance benchmark.
+     */
+    private static final int INSTANCES = 1000000;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Milliseconds per second.
+     */
+    private static final double MILLIS_PER_SECOND = 1e3;
+
+    /**
+     * Number of instructions in the program parsed by the parallel parsing
+     * benchmark.
+     */
+    private static final int PARSE_INSTRUCTIONS = 4000;
+
+    /**
+     * Number of statements in the body of each of those instructions.
+     */
+    private static final int STATEMENTS_PER_INSTRUCTION = 25;
+
+    /**
+     * Pool sizes to run the parallel parsing benchmark with.
+     */
+    private static final int[] THREADS = { 1, 2, 4, 8 };
+
+    /**
+     * Number of times every instruction is looked up per timed run of the
+     * context lookup benchmark.
+     */
+    private static final int LOOKUP_ROUNDS = 50;
+
+    /**
+     * Number of calls timed per run of the swap benchmark.
+     */
+    private static final int SWAPS = 1000000;
+
+    /**
+     * Number of instructions in the context swapped by the swap benchmark.
+     */
+    private static final int SWAP_INSTRUCTIONS = 100;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ProgramBenchmark() {
+    }
+
+    /**
+     * Creates a new object of the dynamic type of {@code p} the way
+     * {@code newInstance} used to, through reflection.
+     *
+     * @param p
+     *            the program whose type to instantiate
+     * @return the new program
+     * @ensures reflectiveNewInstance = [a new object of the dynamic type of p]
+     */
+    private static Program reflectiveNewInstance(Program p) {
+        try {
+            return p.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + p.getClass());
+        }
+    }
+
+    /**
+     * Times {@code INSTANCES} calls of {@code proto.newInstance()} against
+     * the same number of reflective constructor calls.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the implementation being timed
+     * @param proto
+     *            an instance of the implementation being timed
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeNewInstance(SimpleWriter out, String label,
+            Program proto) {
+        int names = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < INSTANCES; i++) {
+                names += proto.newInstance().name().length();
+            }
+            long direct = System.nanoTime();
+            for (int i = 0; i < INSTANCES; i++) {
+                names += reflectiveNewInstance(proto).name().length();
+            }
+            long reflective = System.nanoTime();
+            if (run == WARMUP_RUNS) {
+                out.println("  " + label + ": newInstance "
+                        + (double) (direct - start) / INSTANCES
+                        + " ns/op, reflection "
+                        + (double) (reflective - direct) / INSTANCES
+                        + " ns/op");
+            }
+        }
+        assert names > 0 : "Violation of: new instances are named";
+    }
+
+    /**
+     * Writes to a new temporary file a BL program of
+     * {@code PARSE_INSTRUCTIONS} instructions, each with a body of
+     * {@code STATEMENTS_PER_INSTRUCTION} statements that call the previous
+     * instruction, and returns the file.
+     *
+     * @return the file
+     */
+    private static File writeLargeProgram() {
+        File file;
+        try {
+            file = File.createTempFile("program-benchmark", ".bl");
+        } catch (IOException e) {
+            throw new AssertionError("Cannot create temporary file");
+        }
+        file.deleteOnExit();
+        SimpleWriter out = new SimpleWriter1L(file.getPath());
+        out.println("PROGRAM Large IS");
+        String previous = "move";
+        for (int i = 0; i < PARSE_INSTRUCTIONS; i++) {
+            String name = "step" + i;
+            out.println("  INSTRUCTION " + name + " IS");
+            for (int j = 0; j < STATEMENTS_PER_INSTRUCTION; j++) {
+                out.println("    WHILE next-is-empty DO");
+                out.println("      IF random THEN " + previous
+                        + " ELSE turnleft END IF");
+                out.println("    END WHILE");
+            }
+            out.println("  END " + name);
+            previous = name;
+        }
+        out.println("BEGIN");
+        out.println("  " + previous);
+        out.println("END Large");
+        out.close();
+        return file;
+    }
+
+    /**
+     * Times {@code Program2.parse} from a {@code TokenStream} of a program
+     * with {@code PARSE_INSTRUCTIONS} instructions, sequentially and in
+     * parallel on pools of each size in {@code THREADS}. Building the token
+     * stream is not timed.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report lines]
+     */
+    private static void timeParallelParse(SimpleWriter out) {
+        File file = writeLargeProgram();
+        Program2 expected = new Program2();
+        long sequential = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            TokenStream tokens = new TokenStream(file.getPath());
+            Program2 p = new Program2();
+            long start = System.nanoTime();
+            p.parse(tokens);
+            sequential = System.nanoTime() - start;
+            expected.transferFrom(p);
+        }
+        out.println("  sequential: " + sequential / NANOS_PER_MILLI + " ms");
+        for (int threads : THREADS) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long parallel = 0;
+            boolean same = false;
+            for (int run = 0; run <= WARMUP_RUNS; run++) {
+                TokenStream tokens = new TokenStream(file.getPath());
+                Program2 p = new Program2();
+                long start = System.nanoTime();
+                p.parse(tokens, pool);
+                parallel = System.nanoTime() - start;
+                same = p.equals(expected);
+            }
+            pool.shutdown();
+            out.println("  " + threads + " threads: "
+                    + parallel / NANOS_PER_MILLI + " ms, speedup "
+                    + (double) sequential / parallel + ", equal: " + same);
+        }
+    }
+
+    /**
+     * Times {@code Program2.prettyPrint} of a program with
+     * {@code PARSE_INSTRUCTIONS} instructions to a temporary file, through the
+     * inherited sequential method and in parallel on pools of each size in
+     * {@code THREADS}.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report lines]
+     */
+    private static void timeParallelPrettyPrint(SimpleWriter out) {
+        File file = writeLargeProgram();
+        Program2 p = new Program2();
+        p.parse(new TokenStream(file.getPath()));
+        long sequential = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            SimpleWriter sink = new SimpleWriter1L(file.getPath());
+            long start = System.nanoTime();
+            p.prettyPrint(sink);
+            sink.close();
+            sequential = System.nanoTime() - start;
+        }
+        out.println("  sequential: " + sequential / NANOS_PER_MILLI + " ms");
+        for (int threads : THREADS) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long parallel = 0;
+            for (int run = 0; run <= WARMUP_RUNS; run++) {
+                SimpleWriter sink = new SimpleWriter1L(file.getPath());
+                long start = System.nanoTime();
+                p.prettyPrint(sink, pool);
+                sink.close();
+                parallel = System.nanoTime() - start;
+            }
+            pool.shutdown();
+            out.println("  " + threads + " threads: "
+                    + parallel / NANOS_PER_MILLI + " ms, speedup "
+                    + (double) sequential / parallel);
+        }
+    }
+
+    /**
+     * Times parsing a program with {@code PARSE_INSTRUCTIONS} instructions
+     * into {@code p}, then {@code LOOKUP_ROUNDS} rounds of resolving each of
+     * its instructions by name with {@code hasKey} and {@code value} on its
+     * context, as an interpreter resolving CALLs would.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the context implementation being timed
+     * @param p
+     *            an empty program with the context implementation to time
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeContextLookup(SimpleWriter out, String label,
+            Program2 p) {
+        File file = writeLargeProgram();
+        String[] names = new String[PARSE_INSTRUCTIONS];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "step" + i;
+        }
+        long parse = 0;
+        long lookup = 0;
+        int found = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            TokenStream tokens = new TokenStream(file.getPath());
+            long start = System.nanoTime();
+            p.parse(tokens);
+            long parsed = System.nanoTime();
+            Map<String, Statement> c = p.newContext();
+            p.swapContext(c);
+            long resolveStart = System.nanoTime();
+            for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+                for (String name : names) {
+                    if (c.hasKey(name)) {
+                        found += c.value(name).lengthOfBlock();
+                    }
+                }
+            }
+            lookup = System.nanoTime() - resolveStart;
+            parse = parsed - start;
+            p.swapContext(c);
+        }
+        assert found > 0 : "Violation of: instructions are found";
+        out.println("  " + label + ": parse " + parse / NANOS_PER_MILLI
+                + " ms, lookup "
+                + (double) lookup / ((long) LOOKUP_ROUNDS * names.length)
+                + " ns/op");
+    }
+
+    /**
+     * Times {@code SWAPS} calls each of {@code p.swapContext} and
+     * {@code p.swapBody}, and reports the bytes allocated per call.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the implementation being timed
+     * @param p
+     *            an empty program of the configuration to time
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeSwaps(SimpleWriter out, String label,
+            Program2 p) {
+        Map<String, Statement> c = p.newContext();
+        for (int i = 0; i < SWAP_INSTRUCTIONS; i++) {
+            c.add("step" + i, p.newBody());
+        }
+        Statement b = p.newBody();
+        long context = 0;
+        long body = 0;
+        long contextBytes = 0;
+        long bodyBytes = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            long bytes = StatementBenchmark.allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < SWAPS; i++) {
+                p.swapContext(c);
+            }
+            long swapped = System.nanoTime();
+            long contextEnd = StatementBenchmark.allocatedBytes();
+            for (int i = 0; i < SWAPS; i++) {
+                p.swapBody(b);
+            }
+            body = System.nanoTime() - swapped;
+            bodyBytes = StatementBenchmark.allocatedBytes() - contextEnd;
+            context = swapped - start;
+            contextBytes = contextEnd - bytes;
+        }
+        out.println("  " + label + ": swapContext " + (double) context / SWAPS
+                + " ns/op, " + (double) contextBytes / SWAPS
+                + " bytes/op; swapBody " + (double) body / SWAPS + " ns/op, "
+                + (double) bodyBytes / SWAPS + " bytes/op");
+    }
+
+    /**
+     * Times parsing a program with {@code PARSE_INSTRUCTIONS} instructions
+     * from a {@code TokenStream} into a new program of the configuration of
+     * {@code proto}, then pretty printing it to a temporary file, and reports
+     * each as instructions per second.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the configuration being timed
+     * @param proto
+     *            a program of the configuration to time
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeConfiguration(SimpleWriter out, String label,
+            Program proto) {
+        File file = writeLargeProgram();
+        long parse = 0;
+        long print = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            TokenStream tokens = new TokenStream(file.getPath());
+            Program2 p = (Program2) proto.newInstance();
+            long start = System.nanoTime();
+            p.parse(tokens);
+            long parsed = System.nanoTime();
+            SimpleWriter sink = new SimpleWriter1L(file.getPath());
+            p.prettyPrint(sink);
+            sink.close();
+            print = System.nanoTime() - parsed;
+            parse = parsed - start;
+        }
+        double perSecond = PARSE_INSTRUCTIONS * NANOS_PER_MILLI
+                * MILLIS_PER_SECOND;
+        out.println("  " + label + ": parse "
+                + Math.round(perSecond / parse) + " instructions/s, print "
+                + Math.round(perSecond / print) + " instructions/s");
+    }
+
+    /**
+     * Times {@code LOOKUP_ROUNDS} rounds of looking up each instruction of a
+     * {@code ValidatedContext} with {@code PARSE_INSTRUCTIONS} instructions,
+     * by name with {@code hasKey} and {@code value} and by symbol with their
+     * int overloads.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeSymbolLookup(SimpleWriter out) {
+        File file = writeLargeProgram();
+        Program2 p = new Program2(new ValidatedContext(), new Statement2());
+        p.parse(new TokenStream(file.getPath()));
+        ValidatedContext c = (ValidatedContext) p.newContext();
+        p.swapContext(c);
+        String[] names = new String[PARSE_INSTRUCTIONS];
+        int[] symbols = new int[PARSE_INSTRUCTIONS];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = new String("step" + i);
+            symbols[i] = SymbolTable.lookup(names[i]);
+        }
+        long byName = 0;
+        long bySymbol = 0;
+        int found = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            long start = System.nanoTime();
+            for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+                for (String name : names) {
+                    if (c.hasKey(name)) {
+                        found += c.value(name).lengthOfBlock();
+                    }
+                }
+            }
+            long named = System.nanoTime();
+            for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+                for (int symbol : symbols) {
+                    if (c.hasKey(symbol)) {
+                        found += c.value(symbol).lengthOfBlock();
+                    }
+                }
+            }
+            bySymbol = System.nanoTime() - named;
+            byName = named - start;
+        }
+        assert found > 0 : "Violation of: instructions are found";
+        long lookups = (long) LOOKUP_ROUNDS * names.length;
+        out.println("  by name: " + (double) byName / lookups
+                + " ns/op, by symbol: " + (double) bySymbol / lookups
+                + " ns/op");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        out.println("newInstance against reflective construction:");
+        timeNewInstance(out, "Program2", new Program2());
+        out.println("Parallel parse of " + PARSE_INSTRUCTIONS
+                + " instructions:");
+        timeParallelParse(out);
+        out.println("Parallel prettyPrint of " + PARSE_INSTRUCTIONS
+                + " instructions:");
+        timeParallelPrettyPrint(out);
+        out.println("swapContext and swapBody, with " + SWAP_INSTRUCTIONS
+                + " instructions (assertions "
+                + (Program2.class.desiredAssertionStatus() ? "on" : "off")
+                + "):");
+        timeSwaps(out, "Map1L", new Program2());
+        timeSwaps(out, "StringMap", new Program2(new StringMap<Statement>()));
+        timeSwaps(out, "ValidatedContext",
+                new Program2(new ValidatedContext()));
+        out.println("Parse and prettyPrint of " + PARSE_INSTRUCTIONS
+                + " instructions, by context and body type:");
+        timeConfiguration(out, "Map1L, Statement1", new Program2());
+        timeConfiguration(out, "Map1L, Statement2",
+                new Program2(new Map1L<String, Statement>(), new Statement2()));
+        timeConfiguration(out, "Map1L, Statement3",
+                new Program2(new Map1L<String, Statement>(), new Statement3()));
+        timeConfiguration(out, "Map1L, Statement4",
+                new Program2(new Map1L<String, Statement>(), new Statement4()));
+        timeConfiguration(out, "ValidatedContext, Statement2",
+                new Program2(new ValidatedContext(), new Statement2()));
+        out.println("Context lookup with " + PARSE_INSTRUCTIONS
+                + " instructions:");
+        timeContextLookup(out, "Map1L", new Program2());
+        timeContextLookup(out, "StringMap",
+                new Program2(new StringMap<Statement>()));
+        out.println("ValidatedContext lookup by name and by symbol:");
+        timeSymbolLookup(out);
+        out.close();
+    }
+
+}
@@ -0,0 +1,50 @@
+import components.queue.Queue;
+
+/**
+ * {@code TokenSource} reading from, and consuming, a {@code Queue<String>} of
+ * tokens such as the one returned by {@code Tokenizer.tokens}.
+ *
+ * @convention $this.tokens is not null
+ * @correspondence this = $this.tokens
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class QueueTokenSource implements TokenSource {
+
+    /**
+     * The tokens not yet consumed.
+     */
+    private final Queue<String> tokens;
+
+    /**
+     * Constructor. Tokens dequeued from the new object are dequeued from
+     * {@code tokens}.
+     *
+     * @param tokens
+     *            the tokens to read
+     * @aliases reference tokens
+     * @ensures this = tokens
+     */
+    public QueueTokenSource(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        this.tokens = tokens;
+    }
+
+    @Override
+    public String front() {
+        return this.tokens.front();
+    }
+
+    @Override
+    public int code() {
+        return TokenCodes.codeOf(this.tokens.front());
+    }
+
+    @Override
+    public String dequeue() {
+        return this.tokens.dequeue();
+    }
+
+}
@@ -1,4 +1,18 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import components.queue.Queue;
 import components.sequence.Sequence;
+import components.simplewriter.SimpleWriter;
 import components.statement.Statement;
 import components.statement.StatementSecondary;
 import components.tree.Tree;
@@ -9,7 +23,12 @@ import components.utilities.Tokenizer;
  * {@code Statement} represented as a {@code Tree<StatementLabel>} with
  * implementations of primary methods.
  *
- * @convention [$this.rep is a valid representation of a Statement]
+ * @convention [$this.rep is a valid representation of a Statement] and
+ *             [if $this.rep is a BLOCK then $this.length is the number of
+ *             children of the root of $this.rep] and [EMPTY_BLOCK, which may
+ *             appear anywhere in $this.rep, is never changed] and [if
+ *             $this.hashKnown then $this.hash is the structural hash of
+ *             $this.rep]
  * @correspondence this = $this.rep
  *
  * @author Zheyuan Gao
@@ -23,24 +42,75 @@ public class Statement2 extends StatementSecondary {
      */
 
     /**
-     * Label class for the tree representation.
+     * Label class for the tree representation. Labels are immutable and
+     * shared: there is one BLOCK label, one label per IF/IF_ELSE/WHILE kind
+     * and condition, and one label per CALL instruction name, indexed by the
+     * {@code SymbolTable} id of the name, so the kernel methods never
+     * allocate labels.
      */
     private static final class StatementLabel {
 
+        /**
+         * The only BLOCK label.
+         */
+        private static final StatementLabel BLOCK = new StatementLabel(
+                Kind.BLOCK);
+
+        /**
+         * IF/IF_ELSE/WHILE labels indexed by kind ordinal and then by
+         * condition ordinal.
+         */
+        private static final StatementLabel[][] CONDITIONAL = new StatementLabel[Kind
+                .values().length][];
+
+        /**
+         * Initial capacity of {@code calls}.
+         */
+        private static final int INITIAL_CALLS = 64;
+
+        /**
+         * CALL labels indexed by the symbol of their instruction name, null
+         * where none has been made yet. Replaced, never shrunk, when a symbol
+         * past its end is needed.
+         */
+        private static volatile StatementLabel[] calls = new StatementLabel[INITIAL_CALLS];
+
+        static {
+            for (Kind k : new Kind[] { Kind.IF, Kind.IF_ELSE, Kind.WHILE }) {
+                Condition[] conditions = Condition.values();
+                CONDITIONAL[k.ordinal()] = new StatementLabel[conditions.length];
+                for (Condition c : conditions) {
+                    CONDITIONAL[k.ordinal()][c.ordinal()] = new StatementLabel(
+                            k, c);
+                }
+            }
+        }
+
         /**
          * Statement kind.
          */
-        private Kind kind;
+        private final Kind kind;
 
         /**
          * IF/IF_ELSE/WHILE statement condition.
          */
-        private Condition condition;
+        private final Condition condition;
 
         /**
          * CALL instruction name.
          */
-        private String instruction;
+        private final String instruction;
+
+        /**
+         * {@code SymbolTable} id of the CALL instruction name, -1 for other
+         * kinds.
+         */
+        private final int symbol;
+
+        /**
+         * Contribution of this label to the structural hash of a node.
+         */
+        private final int seed;
 
         /**
          * Constructor for BLOCK.
@@ -51,6 +121,10 @@ public class Statement2 extends StatementSecondary {
         private StatementLabel(Kind k) {
             assert k == Kind.BLOCK : "Violation of: k = BLOCK";
             this.kind = k;
+            this.condition = null;
+            this.instruction = null;
+            this.symbol = -1;
+            this.seed = seedOf(k, 0);
         }
 
         /**
@@ -66,6 +140,9 @@ public class Statement2 extends StatementSecondary {
                     + "Violation of: k = IF or k = IF_ELSE or k = WHILE";
             this.kind = k;
             this.condition = c;
+            this.instruction = null;
+            this.symbol = -1;
+            this.seed = seedOf(k, c.ordinal() + 1);
         }
 
         /**
@@ -73,16 +150,100 @@ public class Statement2 extends StatementSecondary {
          *
          * @param k
          *            the kind of statement
-         * @param i
-         *            the instruction name
+         * @param symbol
+         *            the symbol of the instruction name
          */
-        private StatementLabel(Kind k, String i) {
+        private StatementLabel(Kind k, int symbol) {
             assert k == Kind.CALL : "Violation of: k = CALL";
-            assert i != null : "Violation of: i is not null";
-            assert Tokenizer
-                    .isIdentifier(i) : "Violation of: i is an IDENTIFIER";
             this.kind = k;
-            this.instruction = i;
+            this.condition = null;
+            this.instruction = SymbolTable.name(symbol);
+            assert Tokenizer.isIdentifier(this.instruction) : ""
+                    + "Violation of: [name of symbol] is an IDENTIFIER";
+            this.symbol = symbol;
+            this.seed = seedOf(k, this.instruction.hashCode());
+        }
+
+        /**
+         * Returns the structural hash seed of a label of kind {@code k} whose
+         * condition or instruction name hashes to {@code detail}.
+         *
+         * @param k
+         *            the kind of statement
+         * @param detail
+         *            the hash of the condition or instruction name
+         * @return the seed
+         */
+        private static int seedOf(Kind k, int detail) {
+            int h = (k.ordinal() + 1) * HASH_MULTIPLIER + detail;
+            return h ^ (h >>> HASH_SHIFT);
+        }
+
+        /**
+         * Returns the shared label for IF, IF_ELSE or WHILE with condition
+         * {@code c}.
+         *
+         * @param k
+         *            the kind of statement
+         * @param c
+         *            the statement condition
+         * @return the label
+         * @requires k = IF or k = IF_ELSE or k = WHILE
+         */
+        private static StatementLabel of(Kind k, Condition c) {
+            return CONDITIONAL[k.ordinal()][c.ordinal()];
+        }
+
+        /**
+         * Returns the shared label for a CALL to instruction {@code i}.
+         *
+         * @param i
+         *            the instruction name
+         * @return the label
+         * @requires i is an IDENTIFIER
+         */
+        private static StatementLabel call(String i) {
+            return call(SymbolTable.intern(i));
+        }
+
+        /**
+         * Returns the shared label for a CALL to the instruction whose symbol
+         * is {@code symbol}.
+         *
+         * @param symbol
+         *            the symbol of the instruction name
+         * @return the label
+         * @requires [the name with id symbol is an IDENTIFIER]
+         */
+        private static StatementLabel call(int symbol) {
+            StatementLabel[] labels = calls;
+            if (symbol < labels.length && labels[symbol] != null) {
+                return labels[symbol];
+            }
+            return newCall(symbol);
+        }
+
+        /**
+         * Makes the shared label for a CALL to the instruction whose symbol is
+         * {@code symbol}, unless another thread has just done so, and returns
+         * it. Labels have only final fields, so a label read from
+         * {@code calls} without the lock is seen fully built.
+         *
+         * @param symbol
+         *            the symbol of the instruction name
+         * @return the label
+         */
+        private static synchronized StatementLabel newCall(int symbol) {
+            StatementLabel[] labels = calls;
+            if (symbol >= labels.length) {
+                labels = Arrays.copyOf(labels,
+                        Math.max(2 * labels.length, symbol + 1));
+            }
+            if (labels[symbol] == null) {
+                labels[symbol] = new StatementLabel(Kind.CALL, symbol);
+            }
+            calls = labels;
+            return labels[symbol];
         }
 
         @Override
@@ -99,20 +260,839 @@ public class Statement2 extends StatementSecondary {
 
     }
 
+    /**
+     * Read-only cursor over the nodes of a {@code Statement2}. It reads the
+     * representation directly, so looking at a statement does not take it
+     * apart and put it back together the way the kernel methods do, and
+     * moving around allocates nothing beyond growing the path on first
+     * visiting a new depth. A cursor must not be used after the statement it
+     * was obtained from is changed.
+     */
+    public static final class Cursor {
+
+        /**
+         * Initial capacity of the path.
+         */
+        private static final int INITIAL_DEPTH = 16;
+
+        /**
+         * Trees from the root down to the current node.
+         */
+        private Tree<StatementLabel>[] path;
+
+        /**
+         * Index in {@code path} of the current node.
+         */
+        private int depth;
+
+        /**
+         * Constructor.
+         *
+         * @param root
+         *            the representation to walk
+         */
+        private Cursor(Tree<StatementLabel> root) {
+            this.path = newTreeArray(INITIAL_DEPTH);
+            this.path[0] = root;
+            this.depth = 0;
+        }
+
+        /**
+         * Reports the kind of the current node.
+         *
+         * @return the kind of the current node
+         */
+        public Kind kind() {
+            return this.path[this.depth].root().kind;
+        }
+
+        /**
+         * Reports the condition of the current node.
+         *
+         * @return the condition of the current node
+         * @requires [the current node is an IF, IF_ELSE or WHILE]
+         */
+        public Condition condition() {
+            assert this.kind() == Kind.IF || this.kind() == Kind.IF_ELSE
+                    || this.kind() == Kind.WHILE : ""
+                            + "Violation of: [current node is IF, IF_ELSE"
+                            + " or WHILE]";
+            return this.path[this.depth].root().condition;
+        }
+
+        /**
+         * Reports the instruction name of the current node.
+         *
+         * @return the instruction name of the current node
+         * @requires [the current node is a CALL]
+         */
+        public String instruction() {
+            assert this.kind() == Kind.CALL : ""
+                    + "Violation of: [current node is a CALL]";
+            return this.path[this.depth].root().instruction;
+        }
+
+        /**
+         * Reports the {@code SymbolTable} id of the instruction name of the
+         * current node.
+         *
+         * @return the symbol of the instruction name of the current node
+         * @requires [the current node is a CALL]
+         */
+        public int symbol() {
+            assert this.kind() == Kind.CALL : ""
+                    + "Violation of: [current node is a CALL]";
+            return this.path[this.depth].root().symbol;
+        }
+
+        /**
+         * Reports the number of children of the current node.
+         *
+         * @return the number of children of the current node
+         */
+        public int numberOfChildren() {
+            return childCount(this.path[this.depth]);
+        }
+
+        /**
+         * Reports how many moves down separate the current node from the
+         * root.
+         *
+         * @return the depth of the current node
+         */
+        public int depth() {
+            return this.depth;
+        }
+
+        /**
+         * Moves to the {@code pos}-th child of the current node.
+         *
+         * @param pos
+         *            the position of the child
+         * @requires 0 <= pos < [number of children of the current node]
+         */
+        public void toChild(int pos) {
+            assert 0 <= pos : "Violation of: 0 <= pos";
+            assert pos < this.numberOfChildren() : ""
+                    + "Violation of: pos < [number of children]";
+            Tree<StatementLabel> child = this.path[this.depth].subtree(pos);
+            this.depth++;
+            if (this.depth == this.path.length) {
+                this.path = Arrays.copyOf(this.path, 2 * this.depth);
+            }
+            this.path[this.depth] = child;
+        }
+
+        /**
+         * Moves to the parent of the current node.
+         *
+         * @requires [the current node is not the root]
+         */
+        public void toParent() {
+            assert this.depth > 0 : "Violation of: [current node is not root]";
+            this.path[this.depth] = null;
+            this.depth--;
+        }
+
+    }
+
+    /**
+     * A statement whose parsing has started but not finished, kept on the
+     * explicit stack used by {@code parseStatements}. The children of the
+     * block being filled are collected as finished trees and assembled once,
+     * when the block ends.
+     */
+    private static final class ParseFrame {
+
+        /**
+         * Kind of the statement being parsed: BLOCK for the outermost frame,
+         * IF or WHILE otherwise. An IF becomes an IF_ELSE when its ELSE is
+         * seen.
+         */
+        private final Kind kind;
+
+        /**
+         * Condition of the IF or WHILE being parsed.
+         */
+        private final Condition condition;
+
+        /**
+         * The THEN block of an IF once its ELSE has been seen, null otherwise.
+         */
+        private Tree<StatementLabel> thenBlock;
+
+        /**
+         * Structural hash of {@code thenBlock}.
+         */
+        private int thenHash;
+
+        /**
+         * Children of the block currently being filled.
+         */
+        private final Sequence<Tree<StatementLabel>> children;
+
+        /**
+         * Structural hash of the block currently being filled.
+         */
+        private int hash;
+
+        /**
+         * Structural hash of the last child added to the block.
+         */
+        private int lastHash;
+
+        /**
+         * Constructor.
+         *
+         * @param k
+         *            the kind of statement
+         * @param c
+         *            the condition, or null for the outermost frame
+         */
+        private ParseFrame(Kind k, Condition c) {
+            this.kind = k;
+            this.condition = c;
+            this.children = EMPTY_BLOCK.newSequenceOfTree();
+            this.hash = StatementLabel.BLOCK.seed;
+        }
+
+        /**
+         * Adds {@code child}, whose structural hash is {@code childHash}, at
+         * the end of the block being filled.
+         *
+         * @param child
+         *            the finished child
+         * @param childHash
+         *            the structural hash of child
+         */
+        private void add(Tree<StatementLabel> child, int childHash) {
+            this.children.add(this.children.length(), child);
+            this.hash = this.hash * HASH_MULTIPLIER + childHash;
+            this.lastHash = childHash;
+        }
+
+        /**
+         * Assembles the block being filled and returns it, leaving the frame
+         * ready to fill a new, empty block.
+         *
+         * @return the finished block
+         */
+        private Tree<StatementLabel> takeBlock() {
+            Tree<StatementLabel> block = EMPTY_BLOCK;
+            if (this.children.length() > 0) {
+                block = new Tree1<StatementLabel>();
+                block.assemble(StatementLabel.BLOCK, this.children);
+            }
+            this.hash = StatementLabel.BLOCK.seed;
+            return block;
+        }
+
+    }
+
+    /**
+     * {@code Appendable} collecting text in a buffer and writing it to a
+     * channel, encoded in the default charset as {@code SimpleWriter1L} does,
+     * whenever the buffer fills up. Text is only ever written between calls
+     * to {@code append}, never in the middle of one.
+     */
+    private static final class ChannelAppendable implements Appendable {
+
+        /**
+         * Number of characters buffered before they are written.
+         */
+        private static final int BUFFER_SIZE = 1 << 16;
+
+        /**
+         * The channel to write to.
+         */
+        private final WritableByteChannel channel;
+
+        /**
+         * The text not yet written.
+         */
+        private final StringBuilder buffer = new StringBuilder();
+
+        /**
+         * Constructor.
+         *
+         * @param channel
+         *            the channel to write to
+         */
+        private ChannelAppendable(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Writes the buffered text to the channel if there is enough of it, or
+         * if {@code force}.
+         *
+         * @param force
+         *            whether to write however little is buffered
+         * @throws IOException
+         *             if the channel cannot be written
+         */
+        private void drain(boolean force) throws IOException {
+            if (force || this.buffer.length() >= BUFFER_SIZE) {
+                ByteBuffer bytes = Charset.defaultCharset()
+                        .encode(CharBuffer.wrap(this.buffer));
+                while (bytes.hasRemaining()) {
+                    this.channel.write(bytes);
+                }
+                this.buffer.setLength(0);
+            }
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            this.buffer.append(csq);
+            this.drain(false);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end)
+                throws IOException {
+            this.buffer.append(csq, start, end);
+            this.drain(false);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            this.buffer.append(c);
+            this.drain(false);
+            return this;
+        }
+
+    }
+
+    /**
+     * No-argument constructors of {@code Statement2} and its subclasses, looked up
+     * once per class so that {@code newInstance} does not go through
+     * reflection on every call.
+     */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findConstructor(type,
+                                MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Statement2.class));
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(
+                        "Cannot construct object of type " + type, e);
+            }
+        }
+    };
+
+    /**
+     * Odd multiplier used to fold the hashes of the children of a node into
+     * its structural hash.
+     */
+    private static final int HASH_MULTIPLIER = 0x01000193;
+
+    /**
+     * Shift used to spread the bits of a label seed.
+     */
+    private static final int HASH_SHIFT = 16;
+
+    /**
+     * Representation of an empty BLOCK shared by every empty
+     * {@code Statement2} and every empty BLOCK inside one, so that clearing a
+     * statement costs no allocation. It must never be disassembled or
+     * assembled: a kernel method about to change {@code rep} in place first
+     * checks for it and switches to a tree of its own.
+     */
+    private static final Tree<StatementLabel> EMPTY_BLOCK = new Tree1<StatementLabel>();
+
+    static {
+        EMPTY_BLOCK.assemble(StatementLabel.BLOCK,
+                EMPTY_BLOCK.newSequenceOfTree());
+    }
+
+    /**
+     * Number of spaces each nested block is indented by, as in
+     * {@code Statement.prettyPrint}.
+     */
+    static final int INDENT_SIZE = 4;
+
+    /**
+     * Run of spaces that indentation is cut from, so that indenting a line
+     * takes one {@code append} for all but the deepest lines.
+     */
+    private static final String SPACES = "                                "
+            + "                                ";
+
+    /**
+     * Line separator written after each printed line, as by
+     * {@code SimpleWriter.println}.
+     */
+    static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * Printed first lines of IF and IF_ELSE statements, indexed by condition
+     * ordinal, e.g. {@code IF next-is-empty THEN}.
+     */
+    private static final String[] IF_LINES = new String[Condition
+            .values().length];
+
+    /**
+     * Printed first lines of WHILE statements, indexed by condition ordinal,
+     * e.g. {@code WHILE next-is-empty DO}.
+     */
+    private static final String[] WHILE_LINES = new String[Condition
+            .values().length];
+
+    static {
+        for (Condition c : Condition.values()) {
+            String spelling = c.name().toLowerCase().replace('_', '-');
+            IF_LINES[c.ordinal()] = "IF " + spelling + " THEN";
+            WHILE_LINES[c.ordinal()] = "WHILE " + spelling + " DO";
+        }
+    }
+
+    /**
+     * Initial capacity of the per-depth arrays used when printing.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
     /**
      * The tree representation field.
      */
     private Tree<StatementLabel> rep;
 
+    /**
+     * The number of children of the root of {@code rep} when it is a BLOCK,
+     * kept up to date by the kernel methods so that {@code lengthOfBlock} does
+     * not have to take the tree apart.
+     */
+    private int length;
+
+    /**
+     * Structural hash of {@code rep}, meaningful only when {@code hashKnown}.
+     * A node hashes to the seed of its label folded with the hashes of its
+     * children in order, so appending to a BLOCK only needs the old hash and
+     * the hash of the new child.
+     */
+    private int hash;
+
+    /**
+     * Whether {@code hash} is up to date. Kernel methods that cannot update it
+     * cheaply clear this flag, and {@code structuralHash} recomputes it.
+     */
+    private boolean hashKnown;
+
     /**
      * Creator of initial representation.
      */
     private void createNewRep() {
 
-        this.rep = new Tree1<StatementLabel>();
-        this.rep.assemble(new StatementLabel(Kind.BLOCK),
-                this.rep.newSequenceOfTree());
+        this.rep = EMPTY_BLOCK;
+        this.length = 0;
+        this.hash = StatementLabel.BLOCK.seed;
+        this.hashKnown = true;
+
+    }
+
+    /**
+     * Returns a new array of {@code length} trees, all null. Java cannot
+     * create arrays of a generic type, so this is the one place an array of
+     * trees is made and cast.
+     *
+     * @param length
+     *            the length of the array
+     * @return the new array
+     * @requires length >= 0
+     */
+    @SuppressWarnings("unchecked")
+    private static Tree<StatementLabel>[] newTreeArray(int length) {
+        return (Tree<StatementLabel>[]) new Tree<?>[length];
+    }
+
+    /**
+     * Returns the number of children of the root of {@code t} without
+     * touching the shared {@code EMPTY_BLOCK}.
+     *
+     * @param t
+     *            the tree
+     * @return the number of children of the root of t
+     * @requires |t| > 0
+     */
+    private static int childCount(Tree<StatementLabel> t) {
+        int count = 0;
+        if (t != EMPTY_BLOCK) {
+            count = t.numberOfSubtrees();
+        }
+        return count;
+    }
+
+    /**
+     * Computes the structural hash of {@code t}. The walk keeps its own stack
+     * of pending nodes instead of recursing, so that deeply nested statements
+     * do not overflow the call stack.
+     *
+     * @param t
+     *            the tree
+     * @return the structural hash of t
+     * @requires [t is a valid representation of a Statement]
+     */
+    private static int structuralHash(Tree<StatementLabel> t) {
+        final int initialDepth = 16;
+        Tree<StatementLabel>[] nodes = newTreeArray(initialDepth);
+        int[] next = new int[initialDepth];
+        int[] acc = new int[initialDepth];
+        int top = 0;
+        nodes[0] = t;
+        acc[0] = t.root().seed;
+        while (true) {
+            Tree<StatementLabel> node = nodes[top];
+            if (next[top] < childCount(node)) {
+                Tree<StatementLabel> child = node.subtree(next[top]);
+                next[top]++;
+                top++;
+                if (top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * top);
+                    next = Arrays.copyOf(next, 2 * top);
+                    acc = Arrays.copyOf(acc, 2 * top);
+                }
+                nodes[top] = child;
+                next[top] = 0;
+                acc[top] = child.root().seed;
+            } else {
+                int h = acc[top];
+                nodes[top] = null;
+                if (top == 0) {
+                    return h;
+                }
+                top--;
+                acc[top] = acc[top] * HASH_MULTIPLIER + h;
+            }
+        }
+    }
+
+    /**
+     * Reports whether {@code a} and {@code b} represent the same statement.
+     * Labels are shared, so equal labels are the same object.
+     *
+     * @param a
+     *            the first tree
+     * @param b
+     *            the second tree
+     * @return true iff a and b represent the same statement
+     * @requires [a and b are valid representations of Statements]
+     */
+    private static boolean sameTree(Tree<StatementLabel> a,
+            Tree<StatementLabel> b) {
+        Deque<Tree<StatementLabel>> pending = new ArrayDeque<>();
+        pending.push(b);
+        pending.push(a);
+        while (!pending.isEmpty()) {
+            Tree<StatementLabel> x = pending.pop();
+            Tree<StatementLabel> y = pending.pop();
+            if (x != y) {
+                int n = childCount(x);
+                if (x.root() != y.root() || n != childCount(y)
+                        || x.size() != y.size()) {
+                    return false;
+                }
+                for (int i = n - 1; i >= 0; i--) {
+                    pending.push(y.subtree(i));
+                    pending.push(x.subtree(i));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the structural hash of {@code this}, computing and caching it
+     * if the kernel methods could not keep it up to date.
+     *
+     * @return the structural hash of this
+     */
+    private int structuralHash() {
+        if (!this.hashKnown) {
+            this.hash = structuralHash(this.rep);
+            this.hashKnown = true;
+        }
+        return this.hash;
+    }
+
+    /**
+     * Gives {@code this} a tree of its own if {@code rep} is the shared
+     * {@code EMPTY_BLOCK}, so that {@code rep} can then be assembled in
+     * place. The caller must assemble {@code rep} right after.
+     *
+     * @updates this.rep
+     * @ensures this.rep is not EMPTY_BLOCK
+     */
+    private void materialize() {
+        if (this.rep == EMPTY_BLOCK) {
+            this.rep = new Tree1<StatementLabel>();
+        }
+    }
+
+    /**
+     * Makes {@code t} the representation of {@code this}, recording the
+     * length of {@code t} if it is a BLOCK.
+     *
+     * @param t
+     *            the new representation
+     * @updates this
+     * @requires [t is a valid representation of a Statement]
+     * @ensures this.rep = t
+     */
+    private void setRep(Tree<StatementLabel> t) {
+        this.rep = t;
+        StatementLabel label = t.root();
+        if (label.kind == Kind.BLOCK) {
+            this.length = childCount(t);
+        } else {
+            this.length = 0;
+        }
+        this.hash = label.seed;
+        this.hashKnown = (t == EMPTY_BLOCK) || (label.kind == Kind.CALL);
+    }
+
+    /**
+     * Returns a new tree with root {@code label} and the given children, all
+     * of which are BLOCKs.
+     *
+     * @param label
+     *            the root label
+     * @param first
+     *            the first child
+     * @param second
+     *            the second child, or null if there is only one
+     * @return the new tree
+     */
+    private static Tree<StatementLabel> node(StatementLabel label,
+            Tree<StatementLabel> first, Tree<StatementLabel> second) {
+        Tree<StatementLabel> t = new Tree1<StatementLabel>();
+        Sequence<Tree<StatementLabel>> children = t.newSequenceOfTree();
+        children.add(0, first);
+        if (second != null) {
+            children.add(1, second);
+        }
+        t.assemble(label, children);
+        return t;
+    }
+
+    /**
+     * Parses statements from {@code tokens}, building the tree nodes of the
+     * representation directly and bottom-up: each node is assembled exactly
+     * once, from children that are already finished, without going through
+     * intermediate {@code Statement} objects. Statements that are still open
+     * are kept on an explicit stack of {@code ParseFrame}s rather than on the
+     * call stack, so that nesting depth is limited only by the heap. Parsing
+     * stops at the first token that cannot start a statement at the outermost
+     * level or, if {@code single}, right after the first complete statement.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param single
+     *            whether to stop after one statement
+     * @return the outermost frame, holding the parsed statements
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     */
+    private static ParseFrame parseStatements(TokenSource tokens,
+            boolean single) {
+        Deque<ParseFrame> open = new ArrayDeque<>();
+        ParseFrame outer = new ParseFrame(Kind.BLOCK, null);
+        open.push(outer);
+        boolean done = false;
+        while (!done) {
+            ParseFrame top = open.peek();
+            int code = tokens.code();
+            Tree<StatementLabel> finished = null;
+            int finishedHash = 0;
+            if (code == TokenCodes.IDENTIFIER) {
+                StatementLabel label = StatementLabel.call(tokens.dequeue());
+                finished = new Tree1<StatementLabel>();
+                finished.assemble(label, finished.newSequenceOfTree());
+                finishedHash = label.seed;
+            } else if (code == TokenCodes.IF) {
+                tokens.dequeue();
+                Condition c = BLParser.conditionFollowedBy(tokens,
+                        TokenCodes.THEN);
+                open.push(new ParseFrame(Kind.IF, c));
+            } else if (code == TokenCodes.WHILE) {
+                tokens.dequeue();
+                Condition c = BLParser.conditionFollowedBy(tokens,
+                        TokenCodes.DO);
+                open.push(new ParseFrame(Kind.WHILE, c));
+            } else if (top == outer) {
+                done = true;
+            } else if (top.kind == Kind.IF && top.thenBlock == null
+                    && code == TokenCodes.ELSE) {
+                tokens.dequeue();
+                top.thenHash = top.hash;
+                top.thenBlock = top.takeBlock();
+            } else {
+                open.pop();
+                int blockHash = top.hash;
+                Tree<StatementLabel> block = top.takeBlock();
+                StatementLabel label;
+                BLParser.expect(tokens, TokenCodes.END);
+                if (top.kind == Kind.WHILE) {
+                    BLParser.expect(tokens, TokenCodes.WHILE);
+                    label = StatementLabel.of(Kind.WHILE, top.condition);
+                    finished = node(label, block, null);
+                    finishedHash = label.seed * HASH_MULTIPLIER + blockHash;
+                } else if (top.thenBlock == null) {
+                    BLParser.expect(tokens, TokenCodes.IF);
+                    label = StatementLabel.of(Kind.IF, top.condition);
+                    finished = node(label, block, null);
+                    finishedHash = label.seed * HASH_MULTIPLIER + blockHash;
+                } else {
+                    BLParser.expect(tokens, TokenCodes.IF);
+                    label = StatementLabel.of(Kind.IF_ELSE, top.condition);
+                    finished = node(label, top.thenBlock, block);
+                    finishedHash = (label.seed * HASH_MULTIPLIER
+                            + top.thenHash) * HASH_MULTIPLIER + blockHash;
+                }
+            }
+            if (finished != null) {
+                open.peek().add(finished, finishedHash);
+                done = single && open.peek() == outer;
+            }
+        }
+        return outer;
+    }
 
+    /**
+     * Returns the printed first line of an IF or IF_ELSE statement with
+     * condition {@code c}, e.g. {@code IF next-is-empty THEN}.
+     *
+     * @param c
+     *            the condition
+     * @return the first line
+     */
+    static String ifLine(Condition c) {
+        return IF_LINES[c.ordinal()];
+    }
+
+    /**
+     * Returns the printed first line of a WHILE statement with condition
+     * {@code c}, e.g. {@code WHILE next-is-empty DO}.
+     *
+     * @param c
+     *            the condition
+     * @return the first line
+     */
+    static String whileLine(Condition c) {
+        return WHILE_LINES[c.ordinal()];
+    }
+
+    /**
+     * Appends to {@code out} the line {@code line} indented by {@code offset}
+     * spaces.
+     *
+     * @param out
+     *            the output
+     * @param offset
+     *            the indentation
+     * @param line
+     *            the text of the line
+     * @throws IOException
+     *             if out throws it
+     * @updates out
+     * @requires 0 <= offset
+     * @ensures out = #out * [offset spaces] * line * LINE_SEPARATOR
+     */
+    static void printLine(Appendable out, int offset, String line)
+            throws IOException {
+        int left = offset;
+        while (left > SPACES.length()) {
+            out.append(SPACES);
+            left -= SPACES.length();
+        }
+        out.append(SPACES, 0, left);
+        out.append(line);
+        out.append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Appends to {@code out} the tree {@code root} pretty printed starting at
+     * column {@code offset}, in the format of {@code Statement.prettyPrint}.
+     * The tree is read directly and walked with an explicit stack, and every
+     * line is appended as a few precomputed Strings.
+     *
+     * @param root
+     *            the tree to print
+     * @param offset
+     *            the number of spaces to indent the top level by
+     * @param out
+     *            the output
+     * @throws IOException
+     *             if out throws it
+     * @updates out
+     * @requires 0 <= offset
+     * @ensures out = #out * [root pretty printed starting at column offset]
+     */
+    private static void render(Tree<StatementLabel> root, int offset,
+            Appendable out) throws IOException {
+        Tree<StatementLabel>[] path = newTreeArray(INITIAL_DEPTH);
+        int[] next = new int[INITIAL_DEPTH];
+        int[] indent = new int[INITIAL_DEPTH];
+        path[0] = root;
+        indent[0] = offset;
+        int d = 0;
+        boolean opening = true;
+        while (d >= 0) {
+            Tree<StatementLabel> t = path[d];
+            StatementLabel label = t.root();
+            if (opening) {
+                switch (label.kind) {
+                    case IF:
+                    case IF_ELSE:
+                        printLine(out, indent[d],
+                                IF_LINES[label.condition.ordinal()]);
+                        break;
+                    case WHILE:
+                        printLine(out, indent[d],
+                                WHILE_LINES[label.condition.ordinal()]);
+                        break;
+                    case CALL:
+                        printLine(out, indent[d], label.instruction);
+                        break;
+                    default:
+                        break;
+                }
+                opening = false;
+            }
+            if (next[d] < childCount(t)) {
+                int pos = next[d];
+                next[d]++;
+                int childIndent = indent[d];
+                if (label.kind != Kind.BLOCK) {
+                    childIndent += INDENT_SIZE;
+                }
+                if (pos == 1 && label.kind == Kind.IF_ELSE) {
+                    printLine(out, indent[d], "ELSE");
+                }
+                d++;
+                if (d == path.length) {
+                    path = Arrays.copyOf(path, 2 * d);
+                    next = Arrays.copyOf(next, 2 * d);
+                    indent = Arrays.copyOf(indent, 2 * d);
+                }
+                path[d] = t.subtree(pos);
+                next[d] = 0;
+                indent[d] = childIndent;
+                opening = true;
+            } else {
+                if (label.kind == Kind.IF || label.kind == Kind.IF_ELSE) {
+                    printLine(out, indent[d], "END IF");
+                } else if (label.kind == Kind.WHILE) {
+                    printLine(out, indent[d], "END WHILE");
+                }
+                path[d] = null;
+                d--;
+            }
+        }
     }
 
     /*
@@ -132,11 +1112,16 @@ public class Statement2 extends StatementSecondary {
 
     @Override
     public final Statement2 newInstance() {
+        if (this.getClass() == Statement2.class) {
+            return new Statement2();
+        }
         try {
-            return this.getClass().getConstructor().newInstance();
-        } catch (ReflectiveOperationException e) {
+            return (Statement2) CONSTRUCTORS.get(this.getClass()).invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new AssertionError(
-                    "Cannot construct object of type " + this.getClass());
+                    "Cannot construct object of type " + this.getClass(), e);
         }
     }
 
@@ -157,9 +1142,76 @@ public class Statement2 extends StatementSecondary {
          */
         Statement2 localSource = (Statement2) source;
         this.rep = localSource.rep;
+        this.length = localSource.length;
+        this.hash = localSource.hash;
+        this.hashKnown = localSource.hashKnown;
         localSource.createNewRep();
     }
 
+    /*
+     * Secondary methods ------------------------------------------------------
+     */
+
+    @Override
+    public final void parse(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.length() > 0 : ""
+                + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+
+        this.parse(new QueueTokenSource(tokens));
+    }
+
+    @Override
+    public final void parseBlock(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.length() > 0 : ""
+                + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+
+        this.parseBlock(new QueueTokenSource(tokens));
+    }
+
+    @Override
+    public final void prettyPrint(SimpleWriter out, int offset) {
+        assert out != null : "Violation of: out is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+        assert offset >= 0 : "Violation of: 0 <= offset";
+
+        StringBuilder text = new StringBuilder();
+        this.appendTo(text, offset);
+        out.print(text.toString());
+    }
+
+    /**
+     * Compares a {@code Statement2} against another one by first checking the
+     * kind, size and structural hash, which are all O(1) once the hashes are
+     * known. Only statements that pass all three are walked in full. Other
+     * {@code Statement}s are compared by the inherited method. The inherited
+     * {@code hashCode} is kept, so that equal statements of different
+     * implementations still hash alike.
+     */
+    @Override
+    public final boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof Statement2)) {
+            return super.equals(obj);
+        }
+        Statement2 other = (Statement2) obj;
+        if (this.rep.root().kind != other.rep.root().kind
+                || this.rep.size() != other.rep.size()
+                || this.length != other.length
+                || this.structuralHash() != other.structuralHash()) {
+            return false;
+        }
+        return sameTree(this.rep, other.rep);
+    }
+
+    @Override
+    public final int hashCode() {
+        return super.hashCode();
+    }
+
     /*
      * Kernel methods ---------------------------------------------------------
      */
@@ -188,10 +1240,20 @@ public class Statement2 extends StatementSecondary {
          */
         Statement2 localS = (Statement2) s;
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
-        StatementLabel label = this.rep.disassemble(children);
+        if (this.rep == EMPTY_BLOCK) {
+            this.materialize();
+        } else {
+            this.rep.disassemble(children);
+        }
         //Add the localS.rep of statement s to the given position pos.
         children.add(pos, localS.rep);
-        this.rep.assemble(label, children);
+        this.rep.assemble(StatementLabel.BLOCK, children);
+        if (pos == this.length && this.hashKnown && localS.hashKnown) {
+            this.hash = this.hash * HASH_MULTIPLIER + localS.hash;
+        } else {
+            this.hashKnown = false;
+        }
+        this.length++;
         //Clear s.
         localS.createNewRep();
 
@@ -214,8 +1276,10 @@ public class Statement2 extends StatementSecondary {
 
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         StatementLabel label = this.rep.disassemble(children);
-        s.rep = children.remove(pos);
+        s.setRep(children.remove(pos));
         this.rep.assemble(label, children);
+        this.length--;
+        this.hashKnown = false;
 
         return s;
     }
@@ -225,11 +1289,7 @@ public class Statement2 extends StatementSecondary {
         assert this.kind() == Kind.BLOCK : ""
                 + "Violation of: [this is a BLOCK statement]";
 
-        Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
-        StatementLabel label = this.rep.disassemble(children);
-        int length = children.length();
-        this.rep.assemble(label, children);
-        return length;
+        return this.length;
     }
 
     @Override
@@ -241,10 +1301,14 @@ public class Statement2 extends StatementSecondary {
         assert s.kind() == Kind.BLOCK : ""
                 + "Violation of: [s is a BLOCK statement]";
         Statement2 localS = (Statement2) s;
-        StatementLabel label = new StatementLabel(Kind.IF, c);
+        StatementLabel label = StatementLabel.of(Kind.IF, c);
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         children.add(0, localS.rep);
+        this.materialize();
         this.rep.assemble(label, children);
+        this.length = 0;
+        this.hash = label.seed * HASH_MULTIPLIER + localS.hash;
+        this.hashKnown = localS.hashKnown;
         localS.createNewRep(); // clears s
     }
 
@@ -258,7 +1322,7 @@ public class Statement2 extends StatementSecondary {
         Statement2 localS = (Statement2) s;
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         StatementLabel label = this.rep.disassemble(children);
-        localS.rep = children.remove(0);
+        localS.setRep(children.remove(0));
         this.createNewRep(); // clears this
         return label.condition;
     }
@@ -280,11 +1344,16 @@ public class Statement2 extends StatementSecondary {
 
         Statement2 localS1 = (Statement2) s1;
         Statement2 localS2 = (Statement2) s2;
-        StatementLabel label = new StatementLabel(Kind.IF_ELSE, c);
+        StatementLabel label = StatementLabel.of(Kind.IF_ELSE, c);
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         children.add(0, localS1.rep);
         children.add(1, localS2.rep);
+        this.materialize();
         this.rep.assemble(label, children);
+        this.length = 0;
+        this.hash = (label.seed * HASH_MULTIPLIER + localS1.hash)
+                * HASH_MULTIPLIER + localS2.hash;
+        this.hashKnown = localS1.hashKnown && localS2.hashKnown;
         localS1.createNewRep(); // clear s1
         localS2.createNewRep(); // clear s2
 
@@ -306,8 +1375,8 @@ public class Statement2 extends StatementSecondary {
         Statement2 localS2 = (Statement2) s2;
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         StatementLabel label = this.rep.disassemble(children);
-        localS1.rep = children.remove(0);
-        localS2.rep = children.remove(0);
+        localS1.setRep(children.remove(0));
+        localS2.setRep(children.remove(0));
         this.createNewRep(); // clear this
 
         return label.condition;
@@ -322,10 +1391,14 @@ public class Statement2 extends StatementSecondary {
         assert s.kind() == Kind.BLOCK : "Violation of: [s is a BLOCK statement]";
 
         Statement2 localS = (Statement2) s;
-        StatementLabel label = new StatementLabel(Kind.WHILE, c);
+        StatementLabel label = StatementLabel.of(Kind.WHILE, c);
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         children.add(0, localS.rep);
+        this.materialize();
         this.rep.assemble(label, children);
+        this.length = 0;
+        this.hash = label.seed * HASH_MULTIPLIER + localS.hash;
+        this.hashKnown = localS.hashKnown;
         localS.createNewRep(); // clears s
 
     }
@@ -341,7 +1414,7 @@ public class Statement2 extends StatementSecondary {
         Statement2 localS = (Statement2) s;
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         StatementLabel label = this.rep.disassemble(children);
-        localS.rep = children.remove(0);
+        localS.setRep(children.remove(0));
         this.createNewRep(); // clears this
         return label.condition;
     }
@@ -352,9 +1425,13 @@ public class Statement2 extends StatementSecondary {
         assert Tokenizer.isIdentifier(inst) : ""
                 + "Violation of: inst is a valid IDENTIFIER";
 
-        StatementLabel label = new StatementLabel(Kind.CALL, inst);
+        StatementLabel label = StatementLabel.call(inst);
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
+        this.materialize();
         this.rep.assemble(label, children);
+        this.length = 0;
+        this.hash = label.seed;
+        this.hashKnown = true;
 
     }
 
@@ -369,4 +1446,177 @@ public class Statement2 extends StatementSecondary {
         return label.instruction;
     }
 
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Exchanges the values of {@code this} and {@code other} by exchanging
+     * their representations, in constant time and without allocating.
+     *
+     * @param other
+     *            the statement to exchange values with
+     * @updates this, other
+     * @ensures this = #other and other = #this
+     */
+    public final void swap(Statement2 other) {
+        assert other != null : "Violation of: other is not null";
+
+        Tree<StatementLabel> otherRep = other.rep;
+        int otherLength = other.length;
+        int otherHash = other.hash;
+        boolean otherHashKnown = other.hashKnown;
+        other.rep = this.rep;
+        other.length = this.length;
+        other.hash = this.hash;
+        other.hashKnown = this.hashKnown;
+        this.rep = otherRep;
+        this.length = otherLength;
+        this.hash = otherHash;
+        this.hashKnown = otherHashKnown;
+    }
+
+    /**
+     * Parses a single BL statement from {@code tokens} into {@code this}, in
+     * the same way as {@code parse(Queue<String>)}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @updates tokens
+     * @replaces this
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [an is-statement string is a proper prefix of #tokens]  then
+     *  this = [Statement corresponding to the statement string at the start
+     *          of #tokens]  and
+     *  #tokens = [statement string at start of #tokens] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate
+     *   client]
+     * </pre>
+     */
+    public final void parse(TokenSource tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+
+        BLParser.checkStatementStart(tokens);
+        ParseFrame outer = parseStatements(tokens, true);
+        this.setRep(outer.children.remove(0));
+        this.hash = outer.lastHash;
+        this.hashKnown = true;
+    }
+
+    /**
+     * Parses a maximal sequence of BL statements from {@code tokens} into the
+     * BLOCK {@code this}, in the same way as {@code parseBlock(Queue<String>)}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @updates tokens
+     * @replaces this
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string which is a proper prefix of #tokens]  then
+     *  this = [BLOCK Statement corresponding to the longest such block
+     *          string]  and
+     *  #tokens = [that block string] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate
+     *   client]
+     * </pre>
+     */
+    public final void parseBlock(TokenSource tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+
+        ParseFrame outer = parseStatements(tokens, false);
+        this.length = outer.children.length();
+        this.hash = outer.hash;
+        this.hashKnown = true;
+        this.rep = outer.takeBlock();
+    }
+
+    /**
+     * Returns a read-only cursor positioned at the root of {@code this}. The
+     * cursor must not be used after {@code this} is changed.
+     *
+     * @return a cursor at the root of this
+     */
+    public final Cursor cursor() {
+        return new Cursor(this.rep);
+    }
+
+    /**
+     * Appends {@code this} to {@code out}, pretty printed starting at column
+     * {@code offset} exactly as {@code prettyPrint(SimpleWriter, int)} prints
+     * it.
+     *
+     * @param out
+     *            the buffer
+     * @param offset
+     *            the number of spaces to indent the top level by
+     * @updates out
+     * @requires 0 <= offset
+     * @ensures out = #out * [this pretty printed starting at column offset]
+     */
+    public final void appendTo(StringBuilder out, int offset) {
+        assert out != null : "Violation of: out is not null";
+        assert offset >= 0 : "Violation of: 0 <= offset";
+
+        try {
+            render(this.rep, offset, out);
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder cannot throw IOException");
+        }
+    }
+
+    /**
+     * Appends {@code this} to {@code out}, pretty printed starting at column
+     * {@code offset} exactly as {@code prettyPrint(SimpleWriter, int)} prints
+     * it.
+     *
+     * @param out
+     *            the output
+     * @param offset
+     *            the number of spaces to indent the top level by
+     * @throws IOException
+     *             if out throws it
+     * @updates out
+     * @requires 0 <= offset
+     * @ensures out = #out * [this pretty printed starting at column offset]
+     */
+    public final void prettyPrint(Appendable out, int offset)
+            throws IOException {
+        assert out != null : "Violation of: out is not null";
+        assert offset >= 0 : "Violation of: 0 <= offset";
+
+        render(this.rep, offset, out);
+    }
+
+    /**
+     * Writes {@code this} to {@code out}, pretty printed starting at column
+     * {@code offset} and encoded in the default charset, producing the same
+     * bytes as {@code prettyPrint(SimpleWriter, int)} on a file. The text is
+     * written in large blocks as it is produced, so the whole of it is never
+     * held in memory.
+     *
+     * @param out
+     *            the channel
+     * @param offset
+     *            the number of spaces to indent the top level by
+     * @throws IOException
+     *             if out cannot be written
+     * @updates out
+     * @requires out.isOpen() and 0 <= offset
+     * @ensures out = #out * [this pretty printed starting at column offset]
+     */
+    public final void prettyPrint(WritableByteChannel out, int offset)
+            throws IOException {
+        assert out != null : "Violation of: out is not null";
+        assert out.isOpen() : "Violation of: out.isOpen()";
+        assert offset >= 0 : "Violation of: 0 <= offset";
+
+        ChannelAppendable buffered = new ChannelAppendable(out);
+        render(this.rep, offset, buffered);
+        buffered.drain(true);
+    }
+
 }
@@ -0,0 +1,450 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import components.statement.Statement;
+import components.statement.StatementSecondary;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code Statement} represented as a tree of nodes whose BLOCK children are
+ * kept in a circular array, with implementations of primary methods.
+ *
+ * @convention [$this.rep is a valid representation of a Statement] and
+ *             [for every BLOCK node n reachable from $this.rep,
+ *             n.items.length is a power of 2 and n.items[(n.head + i) mod
+ *             n.items.length] for 0 <= i < n.length are its children]
+ * @correspondence this = $this.rep
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class Statement3 extends StatementSecondary {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the children array of a BLOCK node.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Node of the tree representation. IF and WHILE nodes keep their BLOCK
+     * in {@code items[0]}, IF_ELSE nodes in {@code items[0]} and
+     * {@code items[1]}, and BLOCK nodes use {@code items} as a circular
+     * buffer starting at {@code head}.
+     */
+    private static final class Node {
+
+        /**
+         * Statement kind.
+         */
+        private final Kind kind;
+
+        /**
+         * IF/IF_ELSE/WHILE statement condition.
+         */
+        private final Condition condition;
+
+        /**
+         * CALL instruction name.
+         */
+        private final String instruction;
+
+        /**
+         * Children of this node.
+         */
+        private Node[] items;
+
+        /**
+         * Index in {@code items} of the first child of a BLOCK node.
+         */
+        private int head;
+
+        /**
+         * Number of children of this node.
+         */
+        private int length;
+
+        /**
+         * Constructor.
+         *
+         * @param k
+         *            the kind of statement
+         * @param c
+         *            the statement condition, or null
+         * @param i
+         *            the instruction name, or null
+         * @param children
+         *            the children of the node
+         */
+        private Node(Kind k, Condition c, String i, Node... children) {
+            this.kind = k;
+            this.condition = c;
+            this.instruction = i;
+            this.items = children;
+            this.head = 0;
+            this.length = children.length;
+        }
+
+        /**
+         * Returns a new empty BLOCK node.
+         *
+         * @return the new node
+         */
+        private static Node emptyBlock() {
+            Node block = new Node(Kind.BLOCK, null, null,
+                    new Node[INITIAL_CAPACITY]);
+            block.length = 0;
+            return block;
+        }
+
+        /**
+         * Returns the index in {@code items} of the child at {@code pos}.
+         *
+         * @param pos
+         *            the position of the child
+         * @return the index of the child in items
+         */
+        private int slot(int pos) {
+            return (this.head + pos) & (this.items.length - 1);
+        }
+
+        /**
+         * Doubles the capacity of {@code items}, moving the children to the
+         * front of the new array.
+         */
+        private void grow() {
+            Node[] bigger = new Node[this.items.length * 2];
+            int firstRun = Math.min(this.length,
+                    this.items.length - this.head);
+            System.arraycopy(this.items, this.head, bigger, 0, firstRun);
+            System.arraycopy(this.items, 0, bigger, firstRun,
+                    this.length - firstRun);
+            this.items = bigger;
+            this.head = 0;
+        }
+
+        /**
+         * Inserts {@code child} at position {@code pos}, shifting whichever
+         * side of the block is shorter.
+         *
+         * @param pos
+         *            the position to insert at
+         * @param child
+         *            the node to insert
+         */
+        private void insert(int pos, Node child) {
+            if (this.length == this.items.length) {
+                this.grow();
+            }
+            int mask = this.items.length - 1;
+            if (pos < this.length - pos) {
+                this.head = (this.head - 1) & mask;
+                for (int i = 0; i < pos; i++) {
+                    this.items[this.slot(i)] = this.items[this.slot(i + 1)];
+                }
+            } else {
+                for (int i = this.length; i > pos; i--) {
+                    this.items[this.slot(i)] = this.items[this.slot(i - 1)];
+                }
+            }
+            this.items[this.slot(pos)] = child;
+            this.length++;
+        }
+
+        /**
+         * Removes and returns the child at position {@code pos}, shifting
+         * whichever side of the block is shorter.
+         *
+         * @param pos
+         *            the position to remove from
+         * @return the removed node
+         */
+        private Node delete(int pos) {
+            int mask = this.items.length - 1;
+            Node child = this.items[this.slot(pos)];
+            if (pos < this.length - 1 - pos) {
+                for (int i = pos; i > 0; i--) {
+                    this.items[this.slot(i)] = this.items[this.slot(i - 1)];
+                }
+                this.items[this.head] = null;
+                this.head = (this.head + 1) & mask;
+            } else {
+                for (int i = pos; i < this.length - 1; i++) {
+                    this.items[this.slot(i)] = this.items[this.slot(i + 1)];
+                }
+                this.items[this.slot(this.length - 1)] = null;
+            }
+            this.length--;
+            return child;
+        }
+
+    }
+
+    /**
+     * No-argument constructors of {@code Statement3} and its subclasses, looked up
+     * once per class so that {@code newInstance} does not go through
+     * reflection on every call.
+     */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findConstructor(type,
+                                MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Statement3.class));
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(
+                        "Cannot construct object of type " + type, e);
+            }
+        }
+    };
+
+    /**
+     * The tree representation field.
+     */
+    private Node rep;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        this.rep = Node.emptyBlock();
+
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Statement3() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Statement3 newInstance() {
+        if (this.getClass() == Statement3.class) {
+            return new Statement3();
+        }
+        try {
+            return (Statement3) CONSTRUCTORS.get(this.getClass()).invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass(), e);
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Statement source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Statement3 : ""
+                + "Violation of: source is of dynamic type Statement3";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Statement3.
+         */
+        Statement3 localSource = (Statement3) source;
+        this.rep = localSource.rep;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final Kind kind() {
+
+        return this.rep.kind;
+    }
+
+    @Override
+    public final void addToBlock(int pos, Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        assert 0 <= pos : "Violation of: 0 <= pos";
+        assert pos <= this.lengthOfBlock() : ""
+                + "Violation of: pos <= [length of this BLOCK]";
+        assert s.kind() != Kind.BLOCK : "Violation of: [s is not a BLOCK statement]";
+
+        Statement3 localS = (Statement3) s;
+        this.rep.insert(pos, localS.rep);
+        localS.createNewRep();
+
+    }
+
+    @Override
+    public final Statement removeFromBlock(int pos) {
+        assert 0 <= pos : "Violation of: 0 <= pos";
+        assert pos < this.lengthOfBlock() : ""
+                + "Violation of: pos < [length of this BLOCK]";
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        /*
+         * The following call to Statement newInstance method is a violation of
+         * the kernel purity rule. However, there is no way to avoid it and it
+         * is safe because the convention clearly holds at this point in the
+         * code.
+         */
+        Statement3 s = this.newInstance();
+        s.rep = this.rep.delete(pos);
+
+        return s;
+    }
+
+    @Override
+    public final int lengthOfBlock() {
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+
+        return this.rep.length;
+    }
+
+    @Override
+    public final void assembleIf(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert s.kind() == Kind.BLOCK : ""
+                + "Violation of: [s is a BLOCK statement]";
+
+        Statement3 localS = (Statement3) s;
+        this.rep = new Node(Kind.IF, c, null, localS.rep);
+        localS.createNewRep(); // clears s
+    }
+
+    @Override
+    public final Condition disassembleIf(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert this.kind() == Kind.IF : ""
+                + "Violation of: [this is an IF statement]";
+
+        Statement3 localS = (Statement3) s;
+        Condition c = this.rep.condition;
+        localS.rep = this.rep.items[0];
+        this.createNewRep(); // clears this
+        return c;
+    }
+
+    @Override
+    public final void assembleIfElse(Condition c, Statement s1, Statement s2) {
+        assert c != null : "Violation of: c is not null";
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s2 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert s1 instanceof Statement3 : "Violation of: s1 is a Statement3";
+        assert s2 instanceof Statement3 : "Violation of: s2 is a Statement3";
+        assert s1
+                .kind() == Kind.BLOCK : "Violation of: [s1 is a BLOCK statement]";
+        assert s2
+                .kind() == Kind.BLOCK : "Violation of: [s2 is a BLOCK statement]";
+
+        Statement3 localS1 = (Statement3) s1;
+        Statement3 localS2 = (Statement3) s2;
+        this.rep = new Node(Kind.IF_ELSE, c, null, localS1.rep, localS2.rep);
+        localS1.createNewRep(); // clear s1
+        localS2.createNewRep(); // clear s2
+
+    }
+
+    @Override
+    public final Condition disassembleIfElse(Statement s1, Statement s2) {
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s1 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert s1 instanceof Statement3 : "Violation of: s1 is a Statement3";
+        assert s2 instanceof Statement3 : "Violation of: s2 is a Statement3";
+        assert this.kind() == Kind.IF_ELSE : ""
+                + "Violation of: [this is an IF_ELSE statement]";
+
+        Statement3 localS1 = (Statement3) s1;
+        Statement3 localS2 = (Statement3) s2;
+        Condition c = this.rep.condition;
+        localS1.rep = this.rep.items[0];
+        localS2.rep = this.rep.items[1];
+        this.createNewRep(); // clear this
+
+        return c;
+    }
+
+    @Override
+    public final void assembleWhile(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert s.kind() == Kind.BLOCK : "Violation of: [s is a BLOCK statement]";
+
+        Statement3 localS = (Statement3) s;
+        this.rep = new Node(Kind.WHILE, c, null, localS.rep);
+        localS.createNewRep(); // clears s
+
+    }
+
+    @Override
+    public final Condition disassembleWhile(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert this.kind() == Kind.WHILE : ""
+                + "Violation of: [this is a WHILE statement]";
+
+        Statement3 localS = (Statement3) s;
+        Condition c = this.rep.condition;
+        localS.rep = this.rep.items[0];
+        this.createNewRep(); // clears this
+        return c;
+    }
+
+    @Override
+    public final void assembleCall(String inst) {
+        assert inst != null : "Violation of: inst is not null";
+        assert Tokenizer.isIdentifier(inst) : ""
+                + "Violation of: inst is a valid IDENTIFIER";
+
+        this.rep = new Node(Kind.CALL, null, inst);
+
+    }
+
+    @Override
+    public final String disassembleCall() {
+        assert this.kind() == Kind.CALL : ""
+                + "Violation of: [this is a CALL statement]";
+
+        String inst = this.rep.instruction;
+        this.createNewRep(); // clears this
+        return inst;
+    }
+
+}
@@ -0,0 +1,542 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+import components.statement.Statement;
+import components.statement.StatementSecondary;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code Statement} represented as a preorder listing of its nodes stored in
+ * parallel primitive arrays, with implementations of primary methods.
+ *
+ * @convention [$this.kinds, $this.conditions, $this.instructions,
+ *             $this.sizes and $this.arities all have length >= $this.count]
+ *             and [entries 0 through $this.count - 1 of the arrays list the
+ *             nodes of a valid Statement in preorder, node i having subtree
+ *             [i, i + $this.sizes[i]) and $this.arities[i] children] and
+ *             [the shared EMPTY_* arrays are never written]
+ * @correspondence this = [the Statement whose preorder listing is entries 0
+ *                 through $this.count - 1 of the arrays]
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class Statement4 extends StatementSecondary {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Statement kinds indexed by ordinal.
+     */
+    private static final Kind[] KINDS = Kind.values();
+
+    /**
+     * Statement conditions indexed by ordinal.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * Value stored in {@code conditions} and {@code instructions} for nodes
+     * that have no condition or instruction name.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Kinds of an empty BLOCK. The EMPTY_* arrays are shared by every empty
+     * {@code Statement4}; any mutation first replaces them with fresh arrays.
+     */
+    private static final byte[] EMPTY_KINDS = { (byte) Kind.BLOCK.ordinal() };
+
+    /**
+     * Conditions of an empty BLOCK.
+     */
+    private static final byte[] EMPTY_CONDITIONS = { NONE };
+
+    /**
+     * Instructions of an empty BLOCK.
+     */
+    private static final int[] EMPTY_INSTRUCTIONS = { NONE };
+
+    /**
+     * Subtree sizes of an empty BLOCK.
+     */
+    private static final int[] EMPTY_SIZES = { 1 };
+
+    /**
+     * Arities of an empty BLOCK.
+     */
+    private static final int[] EMPTY_ARITIES = { 0 };
+
+    /**
+     * No-argument constructors of {@code Statement4} and its subclasses, looked
+     * up once per class so that {@code newInstance} does not go through
+     * reflection on every call.
+     */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findConstructor(type,
+                                MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Statement4.class));
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(
+                        "Cannot construct object of type " + type, e);
+            }
+        }
+    };
+
+    /**
+     * Kind ordinal of each node.
+     */
+    private byte[] kinds;
+
+    /**
+     * Condition ordinal of each IF/IF_ELSE/WHILE node, NONE otherwise.
+     */
+    private byte[] conditions;
+
+    /**
+     * {@code SymbolTable} id of the instruction of each CALL node, NONE
+     * otherwise.
+     */
+    private int[] instructions;
+
+    /**
+     * Number of nodes in the subtree rooted at each node.
+     */
+    private int[] sizes;
+
+    /**
+     * Number of children of each node.
+     */
+    private int[] arities;
+
+    /**
+     * Number of nodes in use.
+     */
+    private int count;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        this.kinds = EMPTY_KINDS;
+        this.conditions = EMPTY_CONDITIONS;
+        this.instructions = EMPTY_INSTRUCTIONS;
+        this.sizes = EMPTY_SIZES;
+        this.arities = EMPTY_ARITIES;
+        this.count = 1;
+
+    }
+
+    /**
+     * Makes sure the arrays of {@code this} have room for {@code capacity}
+     * nodes, replacing them with larger copies if they do not or if they are
+     * the shared arrays of the empty BLOCK.
+     *
+     * @param capacity
+     *            the number of nodes needed
+     * @updates this
+     * @ensures [the arrays of this have length >= capacity and are not
+     *          shared]
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.kinds.length || this.kinds == EMPTY_KINDS) {
+            int newLength = Math.max(capacity, 2 * this.kinds.length);
+            this.kinds = Arrays.copyOf(this.kinds, newLength);
+            this.conditions = Arrays.copyOf(this.conditions,
+                    newLength);
+            this.instructions = Arrays.copyOf(this.instructions,
+                    newLength);
+            this.sizes = Arrays.copyOf(this.sizes, newLength);
+            this.arities = Arrays.copyOf(this.arities, newLength);
+        }
+    }
+
+    /**
+     * Moves nodes {@code [from, this.count)} by {@code delta} positions.
+     *
+     * @param from
+     *            the first node to move
+     * @param delta
+     *            the distance to move them, negative to move them left
+     * @updates this
+     * @requires [the arrays have room for this.count + delta nodes]
+     */
+    private void shift(int from, int delta) {
+        int n = this.count - from;
+        System.arraycopy(this.kinds, from, this.kinds, from + delta, n);
+        System.arraycopy(this.conditions, from, this.conditions, from + delta,
+                n);
+        System.arraycopy(this.instructions, from, this.instructions,
+                from + delta, n);
+        System.arraycopy(this.sizes, from, this.sizes, from + delta, n);
+        System.arraycopy(this.arities, from, this.arities, from + delta, n);
+    }
+
+    /**
+     * Copies the nodes of {@code source} into {@code this} starting at node
+     * {@code at}.
+     *
+     * @param source
+     *            the statement whose nodes to copy
+     * @param from
+     *            the first node of source to copy
+     * @param n
+     *            the number of nodes to copy
+     * @param at
+     *            the position in this of the first copied node
+     * @updates this
+     * @requires [the arrays of this have room for at + n nodes]
+     */
+    private void copyIn(Statement4 source, int from, int n, int at) {
+        System.arraycopy(source.kinds, from, this.kinds, at, n);
+        System.arraycopy(source.conditions, from, this.conditions, at, n);
+        System.arraycopy(source.instructions, from, this.instructions, at, n);
+        System.arraycopy(source.sizes, from, this.sizes, at, n);
+        System.arraycopy(source.arities, from, this.arities, at, n);
+    }
+
+    /**
+     * Returns the index of the {@code pos}-th child of the root.
+     *
+     * @param pos
+     *            the position of the child
+     * @return the index of the child
+     * @requires 0 <= pos <= [number of children of the root]
+     */
+    private int childIndex(int pos) {
+        int index = 1;
+        for (int i = 0; i < pos; i++) {
+            index += this.sizes[index];
+        }
+        return index;
+    }
+
+    /**
+     * Takes over the arrays of {@code source} and makes room for a new root
+     * in front of the nodes taken, which then is given the kind {@code k},
+     * condition {@code c} and arity {@code arity}. Clears {@code source}.
+     *
+     * @param source
+     *            the statement whose nodes become the first child
+     * @param k
+     *            the kind of the new root
+     * @param c
+     *            the condition of the new root
+     * @param extra
+     *            the number of nodes that will be added after the first child
+     * @param arity
+     *            the number of children of the new root
+     * @updates this, source
+     */
+    private void adoptUnderRoot(Statement4 source, Kind k, Condition c,
+            int extra, int arity) {
+        this.kinds = source.kinds;
+        this.conditions = source.conditions;
+        this.instructions = source.instructions;
+        this.sizes = source.sizes;
+        this.arities = source.arities;
+        this.count = source.count;
+        source.createNewRep();
+        this.ensureCapacity(this.count + 1 + extra);
+        this.shift(0, 1);
+        this.count++;
+        this.kinds[0] = (byte) k.ordinal();
+        this.conditions[0] = (byte) c.ordinal();
+        this.instructions[0] = NONE;
+        this.sizes[0] = this.count;
+        this.arities[0] = arity;
+    }
+
+    /**
+     * Gives {@code target} the arrays of {@code this}, dropping the root and
+     * keeping the first {@code n} nodes that follow it.
+     *
+     * @param target
+     *            the statement to receive the nodes
+     * @param n
+     *            the number of nodes to keep
+     * @updates this, target
+     */
+    private void releaseToChild(Statement4 target, int n) {
+        this.shift(1, -1);
+        target.kinds = this.kinds;
+        target.conditions = this.conditions;
+        target.instructions = this.instructions;
+        target.sizes = this.sizes;
+        target.arities = this.arities;
+        target.count = n;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Statement4() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Statement4 newInstance() {
+        if (this.getClass() == Statement4.class) {
+            return new Statement4();
+        }
+        try {
+            return (Statement4) CONSTRUCTORS.get(this.getClass()).invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass(), e);
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Statement source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Statement4 : ""
+                + "Violation of: source is of dynamic type Statement4";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Statement4.
+         */
+        Statement4 localSource = (Statement4) source;
+        this.kinds = localSource.kinds;
+        this.conditions = localSource.conditions;
+        this.instructions = localSource.instructions;
+        this.sizes = localSource.sizes;
+        this.arities = localSource.arities;
+        this.count = localSource.count;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final Kind kind() {
+
+        return KINDS[this.kinds[0]];
+    }
+
+    @Override
+    public final void addToBlock(int pos, Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        assert 0 <= pos : "Violation of: 0 <= pos";
+        assert pos <= this.lengthOfBlock() : ""
+                + "Violation of: pos <= [length of this BLOCK]";
+        assert s.kind() != Kind.BLOCK : "Violation of: [s is not a BLOCK statement]";
+
+        Statement4 localS = (Statement4) s;
+        int n = localS.count;
+        int index = this.childIndex(pos);
+        this.ensureCapacity(this.count + n);
+        this.shift(index, n);
+        this.copyIn(localS, 0, n, index);
+        this.count += n;
+        this.sizes[0] += n;
+        this.arities[0]++;
+        localS.createNewRep();
+
+    }
+
+    @Override
+    public final Statement removeFromBlock(int pos) {
+        assert 0 <= pos : "Violation of: 0 <= pos";
+        assert pos < this.lengthOfBlock() : ""
+                + "Violation of: pos < [length of this BLOCK]";
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        /*
+         * The following call to Statement newInstance method is a violation of
+         * the kernel purity rule. However, there is no way to avoid it and it
+         * is safe because the convention clearly holds at this point in the
+         * code.
+         */
+        Statement4 s = this.newInstance();
+
+        int index = this.childIndex(pos);
+        int n = this.sizes[index];
+        s.kinds = new byte[n];
+        s.conditions = new byte[n];
+        s.instructions = new int[n];
+        s.sizes = new int[n];
+        s.arities = new int[n];
+        s.copyIn(this, index, n, 0);
+        s.count = n;
+        this.shift(index + n, -n);
+        this.count -= n;
+        this.sizes[0] -= n;
+        this.arities[0]--;
+
+        return s;
+    }
+
+    @Override
+    public final int lengthOfBlock() {
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+
+        return this.arities[0];
+    }
+
+    @Override
+    public final void assembleIf(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert s.kind() == Kind.BLOCK : ""
+                + "Violation of: [s is a BLOCK statement]";
+
+        this.adoptUnderRoot((Statement4) s, Kind.IF, c, 0, 1);
+    }
+
+    @Override
+    public final Condition disassembleIf(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert this.kind() == Kind.IF : ""
+                + "Violation of: [this is an IF statement]";
+
+        Condition c = CONDITIONS[this.conditions[0]];
+        this.releaseToChild((Statement4) s, this.count - 1);
+        this.createNewRep(); // clears this
+        return c;
+    }
+
+    @Override
+    public final void assembleIfElse(Condition c, Statement s1, Statement s2) {
+        assert c != null : "Violation of: c is not null";
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s2 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert s1 instanceof Statement4 : "Violation of: s1 is a Statement4";
+        assert s2 instanceof Statement4 : "Violation of: s2 is a Statement4";
+        assert s1
+                .kind() == Kind.BLOCK : "Violation of: [s1 is a BLOCK statement]";
+        assert s2
+                .kind() == Kind.BLOCK : "Violation of: [s2 is a BLOCK statement]";
+
+        Statement4 localS2 = (Statement4) s2;
+        int n = localS2.count;
+        this.adoptUnderRoot((Statement4) s1, Kind.IF_ELSE, c, n, 2);
+        this.copyIn(localS2, 0, n, this.count);
+        this.count += n;
+        this.sizes[0] += n;
+        localS2.createNewRep(); // clear s2
+
+    }
+
+    @Override
+    public final Condition disassembleIfElse(Statement s1, Statement s2) {
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s1 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert s1 instanceof Statement4 : "Violation of: s1 is a Statement4";
+        assert s2 instanceof Statement4 : "Violation of: s2 is a Statement4";
+        assert this.kind() == Kind.IF_ELSE : ""
+                + "Violation of: [this is an IF_ELSE statement]";
+
+        Statement4 localS2 = (Statement4) s2;
+        Condition c = CONDITIONS[this.conditions[0]];
+        int n1 = this.sizes[1];
+        int n2 = this.count - 1 - n1;
+        localS2.kinds = new byte[n2];
+        localS2.conditions = new byte[n2];
+        localS2.instructions = new int[n2];
+        localS2.sizes = new int[n2];
+        localS2.arities = new int[n2];
+        localS2.copyIn(this, 1 + n1, n2, 0);
+        localS2.count = n2;
+        this.count -= n2;
+        this.releaseToChild((Statement4) s1, n1);
+        this.createNewRep(); // clear this
+
+        return c;
+    }
+
+    @Override
+    public final void assembleWhile(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert s.kind() == Kind.BLOCK : "Violation of: [s is a BLOCK statement]";
+
+        this.adoptUnderRoot((Statement4) s, Kind.WHILE, c, 0, 1);
+
+    }
+
+    @Override
+    public final Condition disassembleWhile(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert this.kind() == Kind.WHILE : ""
+                + "Violation of: [this is a WHILE statement]";
+
+        Condition c = CONDITIONS[this.conditions[0]];
+        this.releaseToChild((Statement4) s, this.count - 1);
+        this.createNewRep(); // clears this
+        return c;
+    }
+
+    @Override
+    public final void assembleCall(String inst) {
+        assert inst != null : "Violation of: inst is not null";
+        assert Tokenizer.isIdentifier(inst) : ""
+                + "Violation of: inst is a valid IDENTIFIER";
+
+        this.kinds = new byte[] { (byte) Kind.CALL.ordinal() };
+        this.conditions = new byte[] { NONE };
+        this.instructions = new int[] { SymbolTable.intern(inst) };
+        this.sizes = new int[] { 1 };
+        this.arities = new int[] { 0 };
+        this.count = 1;
+
+    }
+
+    @Override
+    public final String disassembleCall() {
+        assert this.kind() == Kind.CALL : ""
+                + "Violation of: [this is a CALL statement]";
+
+        String inst = SymbolTable.name(this.instructions[0]);
+        this.createNewRep(); // clears this
+        return inst;
+    }
+
+}
@@ -0,0 +1,720 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+import components.statement.StatementKernel.Condition;
+import components.statement.StatementKernel.Kind;
+import components.utilities.Tokenizer;
+
+/**
+ * Simple timing harness comparing the {@code Statement} kernel implementations
+ * in this project against the library implementation Statement1 on large
+ * generated statements.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class StatementBenchmark {
+
+    /**
+     * Block sizes to run each benchmark with.
+     */
+    private static final int[] SIZES = { 10000, 20000, 50000 };
+
+    /**
+     * Number of untimed runs before each timed run, to let the JIT settle.
+     */
+    private static final int WARMUP_RUNS = 3;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private StatementBenchmark() {
+    }
+
+    /**
+     * Fills the BLOCK {@code s} with {@code n} CALL statements, always adding
+     * at the end of the block.
+     *
+     * @param s
+     *            the statement to fill
+     * @param n
+     *            the number of statements to add
+     * @updates s
+     * @requires s is an empty BLOCK statement and 0 <= n
+     * @ensures s = [BLOCK of n CALL statements]
+     */
+    private static void fillBlock(Statement s, int n) {
+        for (int i = 0; i < n; i++) {
+            Statement call = s.newInstance();
+            call.assembleCall("step");
+            s.addToBlock(s.lengthOfBlock(), call);
+        }
+    }
+
+    /**
+     * Walks the BLOCK {@code s} the way the inherited secondary methods do:
+     * for each position, remove the child, look at it, and put it back.
+     *
+     * @param s
+     *            the statement to walk
+     * @return the number of children visited
+     * @requires s is a BLOCK statement
+     * @ensures walkBlock = |s|
+     */
+    private static int walkBlock(Statement s) {
+        int visited = 0;
+        for (int i = 0; i < s.lengthOfBlock(); i++) {
+            Statement child = s.removeFromBlock(i);
+            visited++;
+            s.addToBlock(i, child);
+        }
+        return visited;
+    }
+
+    /**
+     * Times building and then walking a block of {@code n} statements using
+     * objects created by {@code proto.newInstance()}.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the implementation being timed
+     * @param proto
+     *            an instance of the implementation being timed
+     * @param n
+     *            the size of the block
+     * @updates out.content
+     * @requires out.is_open and 0 <= n
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeBlock(SimpleWriter out, String label,
+            Statement proto, int n) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            Statement s = proto.newInstance();
+            fillBlock(s, n);
+            walkBlock(s);
+        }
+        Statement s = proto.newInstance();
+        long start = System.nanoTime();
+        fillBlock(s, n);
+        long built = System.nanoTime();
+        walkBlock(s);
+        long walked = System.nanoTime();
+        out.println("  " + label + " n=" + n + ": build "
+                + (built - start) / NANOS_PER_MILLI + " ms, walk "
+                + (walked - built) / NANOS_PER_MILLI + " ms");
+    }
+
+    /**
+     * Number of objects created per timed run of the newInstance benchmark.
+     */
+    private static final int INSTANCES = 1000000;
+
+    /**
+     * Creates a new object of the dynamic type of {@code s} the way
+     * {@code newInstance} used to, through reflection.
+     *
+     * @param s
+     *            the statement whose type to instantiate
+     * @return the new statement
+     * @ensures reflectiveNewInstance = [a new object of the dynamic type of s]
+     */
+    private static Statement reflectiveNewInstance(Statement s) {
+        try {
+            return s.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + s.getClass());
+        }
+    }
+
+    /**
+     * Times {@code INSTANCES} calls of {@code proto.newInstance()} against
+     * the same number of reflective constructor calls.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the implementation being timed
+     * @param proto
+     *            an instance of the implementation being timed
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeNewInstance(SimpleWriter out, String label,
+            Statement proto) {
+        int kinds = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < INSTANCES; i++) {
+                kinds += proto.newInstance().kind().ordinal();
+            }
+            long direct = System.nanoTime();
+            for (int i = 0; i < INSTANCES; i++) {
+                kinds += reflectiveNewInstance(proto).kind().ordinal();
+            }
+            long reflective = System.nanoTime();
+            if (run == WARMUP_RUNS) {
+                out.println("  " + label + ": newInstance "
+                        + (double) (direct - start) / INSTANCES
+                        + " ns/op, reflection "
+                        + (double) (reflective - direct) / INSTANCES
+                        + " ns/op");
+            }
+        }
+        assert kinds == 0 : "Violation of: new instances are empty BLOCKs";
+    }
+
+    /**
+     * Number of statement nodes in each statement returned by
+     * {@code whileUnit}.
+     */
+    private static final int NODES_PER_UNIT = 7;
+
+    /**
+     * Number of units in the statement whose retained heap is measured.
+     */
+    private static final int HEAP_UNITS = 100000;
+
+    /**
+     * Bytes per kilobyte.
+     */
+    private static final double BYTES_PER_KILO = 1024.0;
+
+    /**
+     * Number of bytes in a megabyte.
+     */
+    private static final double BYTES_PER_MEGA = 1024.0 * 1024.0;
+
+    /**
+     * Returns a new statement of the dynamic type of {@code proto} of the
+     * form WHILE next-is-empty DO IF random THEN move ELSE turnleft END IF
+     * END WHILE, which has {@code NODES_PER_UNIT} nodes.
+     *
+     * @param proto
+     *            an instance of the implementation to build
+     * @return the new statement
+     */
+    private static Statement whileUnit(Statement proto) {
+        Statement thenCall = proto.newInstance();
+        thenCall.assembleCall("move");
+        Statement thenBlock = proto.newInstance();
+        thenBlock.addToBlock(0, thenCall);
+        Statement elseCall = proto.newInstance();
+        elseCall.assembleCall("turnleft");
+        Statement elseBlock = proto.newInstance();
+        elseBlock.addToBlock(0, elseCall);
+        Statement ifElse = proto.newInstance();
+        ifElse.assembleIfElse(Condition.RANDOM, thenBlock, elseBlock);
+        Statement body = proto.newInstance();
+        body.addToBlock(0, ifElse);
+        Statement loop = proto.newInstance();
+        loop.assembleWhile(Condition.NEXT_IS_EMPTY, body);
+        return loop;
+    }
+
+    /**
+     * Returns the number of bytes currently in use in the heap, after asking
+     * the garbage collector to run.
+     *
+     * @return the heap in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Reports, and returns, the heap retained per statement node by a BLOCK
+     * of {@code HEAP_UNITS} statements built with {@code whileUnit}.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the implementation being measured
+     * @param proto
+     *            an instance of the implementation being measured
+     * @return the number of bytes retained per node
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [heap report line]
+     */
+    private static double measureHeap(SimpleWriter out, String label,
+            Statement proto) {
+        long before = usedHeap();
+        Statement s = proto.newInstance();
+        for (int i = 0; i < HEAP_UNITS; i++) {
+            s.addToBlock(i, whileUnit(proto));
+        }
+        long after = usedHeap();
+        /*
+         * Reading s after the measurement keeps it reachable until then
+         */
+        int nodes = 1 + s.lengthOfBlock() * NODES_PER_UNIT;
+        double perNode = (double) (after - before) / nodes;
+        out.println("  " + label + ": " + (after - before) / BYTES_PER_KILO
+                + " KB for " + nodes + " nodes, " + perNode + " bytes/node");
+        return perNode;
+    }
+
+    /**
+     * Tokens of the statement built by {@code whileUnit}.
+     */
+    private static final String[] UNIT_TOKENS = { "WHILE", "next-is-empty",
+            "DO", "IF", "random", "THEN", "move", "ELSE", "turnleft", "END",
+            "IF", "END", "WHILE" };
+
+    /**
+     * Number of statements, not counting BLOCKs, in each unit.
+     */
+    private static final int STATEMENTS_PER_UNIT = 4;
+
+    /**
+     * Number of units in the token queue parsed by the allocation benchmark.
+     */
+    private static final int PARSE_UNITS = 50000;
+
+    /**
+     * Returns a queue holding {@code units} copies of {@code UNIT_TOKENS}
+     * followed by {@code Tokenizer.END_OF_INPUT}.
+     *
+     * @param units
+     *            the number of units
+     * @return the token queue
+     */
+    private static Queue<String> unitTokens(int units) {
+        Queue<String> tokens = new Queue1L<>();
+        for (int i = 0; i < units; i++) {
+            for (String token : UNIT_TOKENS) {
+                tokens.enqueue(token);
+            }
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        return tokens;
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     *
+     * @return the bytes allocated by this thread
+     */
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean()).getThreadAllocatedBytes(
+                        Thread.currentThread().getId());
+    }
+
+    /**
+     * Reports the bytes allocated per parsed statement by
+     * {@code parseBlock} on {@code PARSE_UNITS} units.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the implementation being measured
+     * @param proto
+     *            an instance of the implementation being measured
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [allocation report line]
+     */
+    private static void measureParseAllocation(SimpleWriter out, String label,
+            Statement proto) {
+        long bytes = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            Queue<String> tokens = unitTokens(PARSE_UNITS);
+            Statement s = proto.newInstance();
+            long before = allocatedBytes();
+            s.parseBlock(tokens);
+            bytes = allocatedBytes() - before;
+        }
+        out.println("  " + label + ": "
+                + (double) bytes / (PARSE_UNITS * STATEMENTS_PER_UNIT)
+                + " bytes/statement");
+    }
+
+    /**
+     * Number of units in the statement walked by the traversal benchmark.
+     */
+    private static final int WALK_UNITS = 20000;
+
+    /**
+     * Reports the number of non-BLOCK statements in {@code s}, going through
+     * the kernel methods the way the inherited secondary methods do.
+     *
+     * @param s
+     *            the statement to count
+     * @return the number of non-BLOCK statements in s
+     * @ensures countStatementsKernel = [number of non-BLOCK statements in s]
+     */
+    private static int countStatementsKernel(Statement s) {
+        int count = 0;
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    count += countStatementsKernel(child);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement body = s.newInstance();
+                Condition c = s.disassembleIf(body);
+                count = 1 + countStatementsKernel(body);
+                s.assembleIf(c, body);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBody = s.newInstance();
+                Statement elseBody = s.newInstance();
+                Condition c = s.disassembleIfElse(thenBody, elseBody);
+                count = 1 + countStatementsKernel(thenBody)
+                        + countStatementsKernel(elseBody);
+                s.assembleIfElse(c, thenBody, elseBody);
+                break;
+            }
+            case WHILE: {
+                Statement body = s.newInstance();
+                Condition c = s.disassembleWhile(body);
+                count = 1 + countStatementsKernel(body);
+                s.assembleWhile(c, body);
+                break;
+            }
+            default: {
+                count = 1;
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Times pretty printing and statement counting through the kernel methods
+     * against the same routines built on {@code Statement2.Cursor}, on a
+     * BLOCK of {@code WALK_UNITS} units. Kernel printing is that of
+     * {@code Statement1}, since {@code Statement2} prints from its
+     * representation. Printed output goes to a temporary file.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report lines]
+     */
+    private static void timeWalks(SimpleWriter out) {
+        Statement ref = new Statement1();
+        Statement2 s = new Statement2();
+        for (int i = 0; i < WALK_UNITS; i++) {
+            ref.addToBlock(i, whileUnit(ref));
+            s.addToBlock(i, whileUnit(s));
+        }
+        File sink;
+        try {
+            sink = File.createTempFile("statement-benchmark", ".bl");
+        } catch (IOException e) {
+            throw new AssertionError("Cannot create temporary file");
+        }
+        sink.deleteOnExit();
+        long[] times = new long[4];
+        int counted = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            SimpleWriter file = new SimpleWriter1L(sink.getPath());
+            long start = System.nanoTime();
+            ref.prettyPrint(file, 0);
+            long kernelPrint = System.nanoTime();
+            StatementWalks.prettyPrint(s, file, 0);
+            long cursorPrint = System.nanoTime();
+            file.close();
+            long countStart = System.nanoTime();
+            counted = countStatementsKernel(s);
+            long kernelCount = System.nanoTime();
+            counted -= StatementWalks.countStatements(s);
+            long cursorCount = System.nanoTime();
+            times[0] = kernelPrint - start;
+            times[1] = cursorPrint - kernelPrint;
+            times[2] = kernelCount - countStart;
+            times[3] = cursorCount - kernelCount;
+        }
+        out.println("  prettyPrint: kernel " + times[0] / NANOS_PER_MILLI
+                + " ms, cursor " + times[1] / NANOS_PER_MILLI + " ms");
+        out.println("  countStatements: kernel " + times[2] / NANOS_PER_MILLI
+                + " ms, cursor " + times[3] / NANOS_PER_MILLI + " ms");
+        assert counted == 0 : "Violation of: both counts agree";
+        assert s.kind() == Kind.BLOCK : "Violation of: s is still a BLOCK";
+    }
+
+    /**
+     * Times {@code parseBlock} on {@code PARSE_UNITS} shallow units.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the name of the implementation being timed
+     * @param proto
+     *            an instance of the implementation being timed
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report line]
+     */
+    private static void timeParse(SimpleWriter out, String label,
+            Statement proto) {
+        long elapsed = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            Queue<String> tokens = unitTokens(PARSE_UNITS);
+            Statement s = proto.newInstance();
+            long start = System.nanoTime();
+            s.parseBlock(tokens);
+            elapsed = System.nanoTime() - start;
+        }
+        out.println("  " + label + ": " + elapsed / NANOS_PER_MILLI + " ms for "
+                + PARSE_UNITS * UNIT_TOKENS.length + " tokens");
+    }
+
+    /**
+     * Times {@code Statement2.parseBlock} on the same {@code PARSE_UNITS}
+     * shallow units read from a {@code Queue<String>} and from a
+     * {@code TokenStream}, and reports the throughput of each in tokens per
+     * second. Building the stream is not timed.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report lines]
+     */
+    private static void timeTokenSources(SimpleWriter out) {
+        long fromQueue = 0;
+        long fromStream = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            Queue<String> tokens = unitTokens(PARSE_UNITS);
+            TokenStream stream = new TokenStream(tokens);
+            Statement2 s = new Statement2();
+            long start = System.nanoTime();
+            s.parseBlock(tokens);
+            long middle = System.nanoTime();
+            s.parseBlock(stream);
+            long end = System.nanoTime();
+            fromQueue = middle - start;
+            fromStream = end - middle;
+        }
+        long count = (long) PARSE_UNITS * UNIT_TOKENS.length;
+        out.println("  Queue<String>: " + count * NANOS_PER_SECOND / fromQueue
+                + " tokens/s");
+        out.println("  TokenStream: " + count * NANOS_PER_SECOND / fromStream
+                + " tokens/s");
+    }
+
+    /**
+     * Times pretty printing a BLOCK of {@code WALK_UNITS} units: through
+     * {@code Statement1.prettyPrint} to a temporary file, and through the
+     * buffered {@code Statement2} printer to a {@code SimpleWriter} on the
+     * same file, to a {@code StringBuilder} and to a {@code FileChannel} on
+     * the same file. Reports the throughput of each in
+     * MB of output per second.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report lines]
+     */
+    private static void timePrinters(SimpleWriter out) {
+        Statement ref = new Statement1();
+        Statement2 s = new Statement2();
+        for (int i = 0; i < WALK_UNITS; i++) {
+            ref.addToBlock(i, whileUnit(ref));
+            s.addToBlock(i, whileUnit(s));
+        }
+        File sink;
+        try {
+            sink = File.createTempFile("statement-benchmark", ".bl");
+        } catch (IOException e) {
+            throw new AssertionError("Cannot create temporary file");
+        }
+        sink.deleteOnExit();
+        long[] times = new long[4];
+        int length = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            long start = System.nanoTime();
+            SimpleWriter file = new SimpleWriter1L(sink.getPath());
+            ref.prettyPrint(file, 0);
+            file.close();
+            long library = System.nanoTime();
+            file = new SimpleWriter1L(sink.getPath());
+            s.prettyPrint(file, 0);
+            file.close();
+            long writer = System.nanoTime();
+            StringBuilder text = new StringBuilder();
+            s.appendTo(text, 0);
+            long builder = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(sink.toPath(),
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                s.prettyPrint(channel, 0);
+            } catch (IOException e) {
+                throw new AssertionError("Cannot write temporary file");
+            }
+            long channel = System.nanoTime();
+            times[0] = library - start;
+            times[1] = writer - library;
+            times[2] = builder - writer;
+            times[3] = channel - builder;
+            length = text.length();
+        }
+        String[] labels = { "Statement1 to SimpleWriter",
+            "Statement2 to SimpleWriter", "Statement2 to StringBuilder",
+            "Statement2 to FileChannel" };
+        double megabytes = length / BYTES_PER_MEGA;
+        for (int i = 0; i < labels.length; i++) {
+            out.println("  " + labels[i] + ": "
+                    + megabytes * NANOS_PER_SECOND / times[i] + " MB/s");
+        }
+    }
+
+    /**
+     * Number of units in the BL file parsed by the file parsing benchmark,
+     * which makes it a few megabytes long.
+     */
+    private static final int FILE_UNITS = 50000;
+
+    /**
+     * Times reading, tokenizing and parsing a generated BL file of
+     * {@code FILE_UNITS} units the way {@code StatementTester} does, with
+     * {@code Tokenizer.tokens} followed by {@code parseBlock}, reporting the
+     * parse alone and the whole path separately, and then the same file parsed
+     * by {@code Statement2} straight from a memory-mapped {@code BLTokenizer}.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     * @ensures out.content = #out.content * [timing report lines]
+     */
+    private static void timeParseFile(SimpleWriter out) {
+        Statement2 source = new Statement2();
+        for (int i = 0; i < FILE_UNITS; i++) {
+            source.addToBlock(i, whileUnit(source));
+        }
+        File input;
+        try {
+            input = File.createTempFile("statement-benchmark", ".bl");
+        } catch (IOException e) {
+            throw new AssertionError("Cannot create temporary file");
+        }
+        input.deleteOnExit();
+        SimpleWriter file = new SimpleWriter1L(input.getPath());
+        source.prettyPrint(file, 0);
+        file.close();
+        double megabytes = input.length() / BYTES_PER_MEGA;
+        out.println("  input: " + megabytes + " MB");
+        Statement[] protos = { new Statement1(), new Statement2() };
+        for (Statement proto : protos) {
+            long total = 0;
+            long parse = 0;
+            for (int run = 0; run <= WARMUP_RUNS; run++) {
+                long start = System.nanoTime();
+                SimpleReader in = new SimpleReader1L(input.getPath());
+                Queue<String> tokens = Tokenizer.tokens(in);
+                in.close();
+                Statement s = proto.newInstance();
+                long parseStart = System.nanoTime();
+                s.parseBlock(tokens);
+                long end = System.nanoTime();
+                total = end - start;
+                parse = end - parseStart;
+                assert s.lengthOfBlock() == FILE_UNITS
+                        : "Violation of: every unit was parsed";
+            }
+            out.println("  " + proto.getClass().getSimpleName() + ": parse "
+                    + parse / NANOS_PER_MILLI + " ms, read+tokenize+parse "
+                    + total / NANOS_PER_MILLI + " ms ("
+                    + megabytes * NANOS_PER_SECOND / total + " MB/s)");
+        }
+        long mapped = 0;
+        for (int run = 0; run <= WARMUP_RUNS; run++) {
+            long start = System.nanoTime();
+            Statement2 s = new Statement2();
+            s.parseBlock(new BLTokenizer(input.getPath()));
+            mapped = System.nanoTime() - start;
+            assert s.lengthOfBlock() == FILE_UNITS
+                    : "Violation of: every unit was parsed";
+        }
+        out.println("  Statement2 from BLTokenizer: map+tokenize+parse "
+                + mapped / NANOS_PER_MILLI + " ms ("
+                + megabytes * NANOS_PER_SECOND / mapped + " MB/s)");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        out.println("Block build and walk (lengthOfBlock in loop condition):");
+        for (int n : SIZES) {
+            timeBlock(out, "Statement1", new Statement1(), n);
+            timeBlock(out, "Statement2", new Statement2(), n);
+            timeBlock(out, "Statement3", new Statement3(), n);
+            timeBlock(out, "Statement4", new Statement4(), n);
+        }
+        out.println("newInstance against reflective construction:");
+        timeNewInstance(out, "Statement2", new Statement2());
+        timeNewInstance(out, "Statement3", new Statement3());
+        timeNewInstance(out, "Statement4", new Statement4());
+        out.println("Retained heap per node:");
+        double heap1 = measureHeap(out, "Statement1", new Statement1());
+        double heap2 = measureHeap(out, "Statement2", new Statement2());
+        measureHeap(out, "Statement3", new Statement3());
+        double heap4 = measureHeap(out, "Statement4", new Statement4());
+        out.println("  Statement4 uses " + heap1 / heap4
+                + "x less than Statement1, " + heap2 / heap4
+                + "x less than Statement2");
+        out.println("Allocation while parsing:");
+        measureParseAllocation(out, "Statement1", new Statement1());
+        measureParseAllocation(out, "Statement2", new Statement2());
+        measureParseAllocation(out, "Statement3", new Statement3());
+        measureParseAllocation(out, "Statement4", new Statement4());
+        out.println("parseBlock on shallow statements:");
+        timeParse(out, "Statement1", new Statement1());
+        timeParse(out, "Statement2", new Statement2());
+        out.println("Statement2.parseBlock by token source:");
+        timeTokenSources(out);
+        out.println("Parsing a generated BL file:");
+        timeParseFile(out);
+        out.println("Pretty printing throughput:");
+        timePrinters(out);
+        out.println("Read-only walks over Statement2:");
+        timeWalks(out);
+        out.close();
+    }
+
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Utility class rendering BL statements into a {@code StringBuilder} in the
+ * format of {@code Statement.prettyPrint}, so that parts of a program can be
+ * rendered independently, e.g. on different threads, and written out later.
+ * {@code Statement2} objects print themselves from their representation; any
+ * other {@code Statement} implementation is rendered through the kernel
+ * methods, with the indentation and lines of the {@code Statement2} printer.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class StatementPrinter {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private StatementPrinter() {
+    }
+
+    /**
+     * Appends to {@code out} the line {@code line} indented by {@code offset}
+     * spaces.
+     *
+     * @param out
+     *            the buffer
+     * @param offset
+     *            the indentation
+     * @param line
+     *            the text of the line
+     * @updates out
+     * @requires 0 <= offset
+     * @ensures <pre>
+     * out = #out * [offset spaces] * line * Statement2.LINE_SEPARATOR
+     * </pre>
+     */
+    static void appendLine(StringBuilder out, int offset, String line) {
+        try {
+            Statement2.printLine(out, offset, line);
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder cannot throw IOException");
+        }
+    }
+
+    /**
+     * Appends {@code s} to {@code out}, pretty printed starting at column
+     * {@code offset} exactly as {@code s.prettyPrint(out, offset)} would print
+     * it.
+     *
+     * @param s
+     *            the statement to render
+     * @param offset
+     *            the number of spaces to indent the top level by
+     * @param out
+     *            the buffer
+     * @updates out
+     * @requires 0 <= offset
+     * @ensures <pre>
+     * out = #out * [s pretty printed starting at column offset]
+     * </pre>
+     */
+    public static void render(Statement s, int offset, StringBuilder out) {
+        assert s != null : "Violation of: s is not null";
+        assert out != null : "Violation of: out is not null";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+
+        if (s instanceof Statement2) {
+            ((Statement2) s).appendTo(out, offset);
+            return;
+        }
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    render(child, offset, out);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement body = s.newInstance();
+                Condition c = s.disassembleIf(body);
+                appendLine(out, offset, Statement2.ifLine(c));
+                render(body, offset + Statement2.INDENT_SIZE, out);
+                appendLine(out, offset, "END IF");
+                s.assembleIf(c, body);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBody = s.newInstance();
+                Statement elseBody = s.newInstance();
+                Condition c = s.disassembleIfElse(thenBody, elseBody);
+                appendLine(out, offset, Statement2.ifLine(c));
+                render(thenBody, offset + Statement2.INDENT_SIZE, out);
+                appendLine(out, offset, "ELSE");
+                render(elseBody, offset + Statement2.INDENT_SIZE, out);
+                appendLine(out, offset, "END IF");
+                s.assembleIfElse(c, thenBody, elseBody);
+                break;
+            }
+            case WHILE: {
+                Statement body = s.newInstance();
+                Condition c = s.disassembleWhile(body);
+                appendLine(out, offset, Statement2.whileLine(c));
+                render(body, offset + Statement2.INDENT_SIZE, out);
+                appendLine(out, offset, "END WHILE");
+                s.assembleWhile(c, body);
+                break;
+            }
+            case CALL: {
+                String inst = s.disassembleCall();
+                appendLine(out, offset, inst);
+                s.assembleCall(inst);
+                break;
+            }
+            default: {
+                break;
+            }
+        }
+    }
+
+}
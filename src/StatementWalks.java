@@ -0,0 +1,194 @@
+import java.util.Arrays;
+
+import components.simplewriter.SimpleWriter;
+import components.statement.StatementKernel.Kind;
+
+/**
+ * Utility class with read-only walks over a {@code Statement2} built on
+ * {@code Statement2.Cursor}. Unlike the kernel-based secondary methods they
+ * never take the statement apart, and they keep their own stack of pending
+ * children instead of recursing. The pretty printer takes its indentation
+ * and lines from the buffered printer of {@code Statement2}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class StatementWalks {
+
+    /**
+     * Initial capacity of the per-depth arrays.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private StatementWalks() {
+    }
+
+    /**
+     * Appends to {@code text} the line that opens the node under {@code c},
+     * if it has one.
+     *
+     * @param c
+     *            the cursor
+     * @param text
+     *            the buffer
+     * @param offset
+     *            the indentation of the node
+     * @updates text
+     * @requires 0 <= offset
+     */
+    private static void appendOpening(Statement2.Cursor c, StringBuilder text,
+            int offset) {
+        switch (c.kind()) {
+            case IF:
+            case IF_ELSE:
+                StatementPrinter.appendLine(text, offset,
+                        Statement2.ifLine(c.condition()));
+                break;
+            case WHILE:
+                StatementPrinter.appendLine(text, offset,
+                        Statement2.whileLine(c.condition()));
+                break;
+            case CALL:
+                StatementPrinter.appendLine(text, offset, c.instruction());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Appends to {@code text} the line that closes the node under {@code c},
+     * if it has one.
+     *
+     * @param c
+     *            the cursor
+     * @param text
+     *            the buffer
+     * @param offset
+     *            the indentation of the node
+     * @updates text
+     * @requires 0 <= offset
+     */
+    private static void appendClosing(Statement2.Cursor c, StringBuilder text,
+            int offset) {
+        switch (c.kind()) {
+            case IF:
+            case IF_ELSE:
+                StatementPrinter.appendLine(text, offset, "END IF");
+                break;
+            case WHILE:
+                StatementPrinter.appendLine(text, offset, "END WHILE");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Pretty prints {@code s} to {@code out}, producing the same output as
+     * {@code s.prettyPrint(out, offset)}.
+     *
+     * @param s
+     *            the statement to print
+     * @param out
+     *            the output stream
+     * @param offset
+     *            the number of spaces to indent the top level by
+     * @updates out.content
+     * @requires out.is_open and 0 <= offset
+     * @ensures <pre>
+     * out.content =
+     *   #out.content * [s pretty printed starting at column offset]
+     * </pre>
+     */
+    public static void prettyPrint(Statement2 s, SimpleWriter out,
+            int offset) {
+        assert s != null : "Violation of: s is not null";
+        assert out != null : "Violation of: out is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+
+        StringBuilder text = new StringBuilder();
+        Statement2.Cursor c = s.cursor();
+        int[] next = new int[INITIAL_DEPTH];
+        int[] indent = new int[INITIAL_DEPTH];
+        indent[0] = offset;
+        appendOpening(c, text, offset);
+        int d = 0;
+        while (d >= 0) {
+            if (next[d] < c.numberOfChildren()) {
+                int pos = next[d];
+                next[d]++;
+                int childIndent = indent[d];
+                if (c.kind() != Kind.BLOCK) {
+                    childIndent += Statement2.INDENT_SIZE;
+                }
+                if (pos == 1 && c.kind() == Kind.IF_ELSE) {
+                    StatementPrinter.appendLine(text, indent[d], "ELSE");
+                }
+                c.toChild(pos);
+                d++;
+                if (d == next.length) {
+                    next = Arrays.copyOf(next, 2 * d);
+                    indent = Arrays.copyOf(indent, 2 * d);
+                }
+                next[d] = 0;
+                indent[d] = childIndent;
+                appendOpening(c, text, childIndent);
+            } else {
+                appendClosing(c, text, indent[d]);
+                if (d > 0) {
+                    c.toParent();
+                }
+                d--;
+            }
+        }
+        out.print(text.toString());
+    }
+
+    /**
+     * Reports the number of IF, IF_ELSE, WHILE and CALL statements in
+     * {@code s}, at any depth.
+     *
+     * @param s
+     *            the statement to count
+     * @return the number of non-BLOCK statements in s
+     * @ensures countStatements = [number of non-BLOCK statements in s]
+     */
+    public static int countStatements(Statement2 s) {
+        assert s != null : "Violation of: s is not null";
+
+        Statement2.Cursor c = s.cursor();
+        int[] next = new int[INITIAL_DEPTH];
+        int count = 0;
+        int d = 0;
+        while (d >= 0) {
+            if (next[d] < c.numberOfChildren()) {
+                c.toChild(next[d]);
+                next[d]++;
+                d++;
+                if (d == next.length) {
+                    next = Arrays.copyOf(next, 2 * d);
+                }
+                next[d] = 0;
+                if (c.kind() != Kind.BLOCK) {
+                    count++;
+                }
+            } else {
+                if (d > 0) {
+                    c.toParent();
+                }
+                d--;
+            }
+        }
+        if (s.kind() != Kind.BLOCK) {
+            count++;
+        }
+        return count;
+    }
+
+}
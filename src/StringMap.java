@@ -0,0 +1,568 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map} with String keys represented as an open-addressing hash table,
+ * so that {@code add}, {@code remove}, {@code value} and {@code hasKey} take
+ * expected amortized constant time. Entries are kept in dense arrays in the
+ * order they were added, and the hash table holds indices into those arrays;
+ * iteration therefore follows insertion order, which keeps printing a
+ * program's instructions deterministic. {@code value} and {@code hasKey}
+ * write nothing, so they may be called from several threads at once while no
+ * thread changes the map.
+ *
+ * @param <V>
+ *            type of {@code Map} range (values)
+ * @convention <pre>
+ * $this.table.length is a power of two  and
+ * 2 * $this.count <= $this.table.length  and
+ * $this.keys.length = $this.values.length = $this.hashes.length =
+ *   $this.table.length / 2  and
+ * [every entry of $this.table is EMPTY, REMOVED or the index of a non-null
+ *  entry of $this.keys[0, $this.count)]  and
+ * [the non-null entries of $this.keys[0, $this.count) are distinct, each is
+ *  reached from $this.table by linear probing from the slot of its hash, and
+ *  $this.hashes and $this.values hold its hash and non-null value]  and
+ * $this.size = [number of non-null entries of $this.keys[0, $this.count)]
+ * </pre>
+ * @correspondence <pre>
+ * this = {(k, v): [for some 0 <= i < $this.count,
+ *   k = $this.keys[i] /= null and v = $this.values[i]]}
+ * </pre>
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class StringMap<V> extends MapSecondary<String, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * A key/value pair returned by {@code remove}, {@code removeAny} and the
+     * iterator.
+     *
+     * @param <V>
+     *            type of the value
+     */
+    private static final class SimplePair<V> implements Map.Pair<String, V> {
+
+        /**
+         * The key.
+         */
+        private final String key;
+
+        /**
+         * The value.
+         */
+        private final V value;
+
+        /**
+         * Constructor.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         */
+        private SimplePair(String key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String key() {
+            return this.key;
+        }
+
+        @Override
+        public V value() {
+            return this.value;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + this.key + "," + this.value + ")";
+        }
+
+    }
+
+    /**
+     * Iterator over the entries in insertion order.
+     */
+    private final class Entries implements Iterator<Map.Pair<String, V>> {
+
+        /**
+         * Index of the next entry to look at.
+         */
+        private int next;
+
+        /**
+         * Constructor.
+         */
+        private Entries() {
+            this.next = StringMap.this.first;
+            this.skipRemoved();
+        }
+
+        /**
+         * Moves {@code next} past removed entries.
+         */
+        private void skipRemoved() {
+            while (this.next < StringMap.this.count
+                    && StringMap.this.keys[this.next] == null) {
+                this.next++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next < StringMap.this.count;
+        }
+
+        @Override
+        public Map.Pair<String, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Pair<String, V> result = new SimplePair<V>(
+                    StringMap.this.keys[this.next],
+                    StringMap.this.values[this.next]);
+            this.next++;
+            this.skipRemoved();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+    /**
+     * Initial length of the hash table; a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Table entry that has never held an index.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Table entry whose entry has been removed.
+     */
+    private static final int REMOVED = -2;
+
+    /**
+     * Multiplier spreading String hashes over the table (2^32 divided by the
+     * golden ratio), so that keys with similar hashes, like "step1" and
+     * "step2", do not land in one run of slots.
+     */
+    private static final int SPREAD = 0x9E3779B9;
+
+    /**
+     * Number of bits in an int.
+     */
+    private static final int INT_BITS = 32;
+
+    /**
+     * No-argument constructors of the subclasses of {@code StringMap}, looked
+     * up once per class so that {@code newInstance} does not go through
+     * reflection on every call.
+     */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findConstructor(type,
+                                MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(StringMap.class));
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(
+                        "Cannot construct object of type " + type, e);
+            }
+        }
+    };
+
+    /**
+     * Hash table of indices into the entry arrays.
+     */
+    private int[] table;
+
+    /**
+     * Shift taking the top bits of a spread hash to a slot of {@code table}.
+     */
+    private int shift;
+
+    /**
+     * Keys, in insertion order; null for removed entries.
+     */
+    private String[] keys;
+
+    /**
+     * Values, parallel to {@code keys}.
+     */
+    private V[] values;
+
+    /**
+     * Hashes of the keys, parallel to {@code keys}.
+     */
+    private int[] hashes;
+
+    /**
+     * Number of entry slots used, including removed ones.
+     */
+    private int count;
+
+    /**
+     * Index at or before the first entry that is not removed.
+     */
+    private int first;
+
+    /**
+     * Number of entries in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Returns the slot of {@code table} where probing for a key with hash
+     * {@code h} starts.
+     *
+     * @param h
+     *            the hash of the key
+     * @return the first slot to probe
+     */
+    private int slot(int h) {
+        return (h * SPREAD) >>> this.shift;
+    }
+
+    /**
+     * Returns the index in the entry arrays of {@code key}, or -1 if it is
+     * not a key of {@code this}.
+     *
+     * @param key
+     *            the key
+     * @return the index of key, or -1
+     */
+    private int indexOf(String key) {
+        int h = key.hashCode();
+        int mask = this.table.length - 1;
+        int i = this.slot(h);
+        while (this.table[i] != EMPTY) {
+            int e = this.table[i];
+            if (e != REMOVED && this.hashes[e] == h
+                    && this.keys[e].equals(key)) {
+                return e;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the table slot that holds index {@code e}.
+     *
+     * @param e
+     *            the index of a live entry
+     * @return the slot holding e
+     */
+    private int slotOf(int e) {
+        int mask = this.table.length - 1;
+        int i = this.slot(this.hashes[e]);
+        while (this.table[i] != e) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Rebuilds the representation with room for at least {@code n} entries,
+     * dropping removed entries.
+     *
+     * @param n
+     *            the number of entries to make room for
+     * @requires n >= this.size
+     */
+    @SuppressWarnings("unchecked")
+    private void rebuild(int n) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < 2 * n) {
+            capacity *= 2;
+        }
+        this.shift = INT_BITS - Integer.numberOfTrailingZeros(capacity);
+        String[] oldKeys = this.keys;
+        V[] oldValues = this.values;
+        int[] oldHashes = this.hashes;
+        int oldCount = this.count;
+        this.table = new int[capacity];
+        Arrays.fill(this.table, EMPTY);
+        this.keys = new String[capacity / 2];
+        this.values = (V[]) new Object[capacity / 2];
+        this.hashes = new int[capacity / 2];
+        this.count = 0;
+        this.first = 0;
+        int mask = capacity - 1;
+        for (int e = 0; e < oldCount; e++) {
+            if (oldKeys[e] != null) {
+                this.keys[this.count] = oldKeys[e];
+                this.values[this.count] = oldValues[e];
+                this.hashes[this.count] = oldHashes[e];
+                int i = this.slot(oldHashes[e]);
+                while (this.table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                this.table[i] = this.count;
+                this.count++;
+            }
+        }
+    }
+
+    /**
+     * Drops removed entries in place, moving the live ones to the front of the
+     * entry arrays in the same order, and refills {@code table}.
+     */
+    private void compact() {
+        Arrays.fill(this.table, EMPTY);
+        int mask = this.table.length - 1;
+        int live = 0;
+        for (int e = 0; e < this.count; e++) {
+            if (this.keys[e] != null) {
+                this.keys[live] = this.keys[e];
+                this.values[live] = this.values[e];
+                this.hashes[live] = this.hashes[e];
+                int i = this.slot(this.hashes[live]);
+                while (this.table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                this.table[i] = live;
+                live++;
+            }
+        }
+        Arrays.fill(this.keys, live, this.count, null);
+        Arrays.fill(this.values, live, this.count, null);
+        this.count = live;
+        this.first = 0;
+    }
+
+    /**
+     * Removes the entry at index {@code e} and returns it.
+     *
+     * @param e
+     *            the index of a live entry
+     * @return the removed entry
+     */
+    private Map.Pair<String, V> removeAt(int e) {
+        this.table[this.slotOf(e)] = REMOVED;
+        Map.Pair<String, V> result = new SimplePair<V>(this.keys[e],
+                this.values[e]);
+        this.keys[e] = null;
+        this.values[e] = null;
+        this.size--;
+        return result;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.keys = null;
+        this.count = 0;
+        this.size = 0;
+        this.rebuild(0);
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public StringMap() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<String, V> newInstance() {
+        if (this.getClass() == StringMap.class) {
+            return new StringMap<V>();
+        }
+        try {
+            return (StringMap<V>) CONSTRUCTORS.get(this.getClass())
+                    .invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass(), e);
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Map<String, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof StringMap<?> : ""
+                + "Violation of: source is of dynamic type StringMap<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * StringMap<?>, and the ? must be V or the call would not have
+         * compiled.
+         */
+        StringMap<V> localSource = (StringMap<V>) source;
+        this.table = localSource.table;
+        this.keys = localSource.keys;
+        this.values = localSource.values;
+        this.hashes = localSource.hashes;
+        this.shift = localSource.shift;
+        this.count = localSource.count;
+        this.first = localSource.first;
+        this.size = localSource.size;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        if (this.count == this.keys.length) {
+            /*
+             * Leave room for as many entries again as are live, so that a
+             * full map under removes and adds does not rebuild on every add.
+             */
+            if (this.size > this.keys.length / 2) {
+                this.rebuild(2 * this.size + 1);
+            } else {
+                this.compact();
+            }
+        }
+        int h = key.hashCode();
+        int mask = this.table.length - 1;
+        int i = this.slot(h);
+        while (this.table[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        this.keys[this.count] = key;
+        this.values[this.count] = value;
+        this.hashes[this.count] = h;
+        this.table[i] = this.count;
+        this.count++;
+        this.size++;
+    }
+
+    @Override
+    public final Map.Pair<String, V> remove(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.removeAt(this.indexOf(key));
+    }
+
+    @Override
+    public final Map.Pair<String, V> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        while (this.keys[this.first] == null) {
+            this.first++;
+        }
+        return this.removeAt(this.first);
+    }
+
+    @Override
+    public final V value(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.values[this.indexOf(key)];
+    }
+
+    @Override
+    public final boolean hasKey(String key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.indexOf(key) >= 0;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Map.Pair<String, V>> iterator() {
+        return new Entries();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Exchanges the values of {@code this} and {@code other} by exchanging
+     * their representations, in constant time and without allocating.
+     *
+     * @param other
+     *            the map to exchange values with
+     * @updates this, other
+     * @ensures this = #other and other = #this
+     */
+    public final void swap(StringMap<V> other) {
+        assert other != null : "Violation of: other is not null";
+
+        int[] otherTable = other.table;
+        int otherShift = other.shift;
+        String[] otherKeys = other.keys;
+        V[] otherValues = other.values;
+        int[] otherHashes = other.hashes;
+        int otherCount = other.count;
+        int otherFirst = other.first;
+        int otherSize = other.size;
+        other.table = this.table;
+        other.shift = this.shift;
+        other.keys = this.keys;
+        other.values = this.values;
+        other.hashes = this.hashes;
+        other.count = this.count;
+        other.first = this.first;
+        other.size = this.size;
+        this.table = otherTable;
+        this.shift = otherShift;
+        this.keys = otherKeys;
+        this.values = otherValues;
+        this.hashes = otherHashes;
+        this.count = otherCount;
+        this.first = otherFirst;
+        this.size = otherSize;
+    }
+
+}
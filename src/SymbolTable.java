@@ -0,0 +1,181 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Utility class interning BL instruction names to dense int ids, shared by
+ * all the statements and programs in the JVM. The five primitive
+ * instructions have the fixed ids {@code MOVE} through {@code SKIP}, below
+ * {@code PRIMITIVES}; every other name gets the next unused id the first time
+ * it is interned, and keeps it. Ids can be compared, switched on and used as
+ * array indices in place of the names. Interning and looking up are safe from
+ * any thread.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class SymbolTable {
+
+    /**
+     * Id of {@code move}.
+     */
+    public static final int MOVE = 0;
+
+    /**
+     * Id of {@code turnleft}.
+     */
+    public static final int TURNLEFT = 1;
+
+    /**
+     * Id of {@code turnright}.
+     */
+    public static final int TURNRIGHT = 2;
+
+    /**
+     * Id of {@code infect}.
+     */
+    public static final int INFECT = 3;
+
+    /**
+     * Id of {@code skip}.
+     */
+    public static final int SKIP = 4;
+
+    /**
+     * Number of primitive instructions; every id below it is a primitive.
+     */
+    public static final int PRIMITIVES = 5;
+
+    /**
+     * Initial capacity of the table of names.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Ids by name.
+     */
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+
+    /**
+     * Names by id. Replaced, never shrunk, when it fills up; an id read from
+     * {@code IDS} always indexes a filled entry of the array read after it.
+     */
+    private static volatile String[] names = new String[INITIAL_CAPACITY];
+
+    /**
+     * Number of ids in use; only read and written while holding the class
+     * lock.
+     */
+    private static int count;
+
+    static {
+        String[] primitives = { "move", "turnleft", "turnright", "infect",
+                "skip" };
+        for (String p : primitives) {
+            intern(p);
+        }
+        assert count == PRIMITIVES : "Violation of: primitive ids are fixed";
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private SymbolTable() {
+    }
+
+    /**
+     * Assigns the next unused id to {@code name} unless another thread has
+     * just done so, and returns its id.
+     *
+     * @param name
+     *            the name
+     * @return the id of name
+     */
+    private static synchronized int add(String name) {
+        Integer id = IDS.get(name);
+        if (id == null) {
+            String[] table = names;
+            if (count == table.length) {
+                table = Arrays.copyOf(table, 2 * count);
+            }
+            table[count] = name;
+            names = table;
+            id = count;
+            count++;
+            IDS.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of {@code name}, assigning the next unused id the first
+     * time a name is seen.
+     *
+     * @param name
+     *            the name
+     * @return the id of name
+     * @ensures name(intern) = name
+     */
+    public static int intern(String name) {
+        assert name != null : "Violation of: name is not null";
+
+        Integer id = IDS.get(name);
+        if (id == null) {
+            return add(name);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of {@code name}, or -1 if it has never been interned.
+     * Unlike {@code intern}, never assigns an id.
+     *
+     * @param name
+     *            the name
+     * @return the id of name, or -1
+     */
+    public static int lookup(String name) {
+        assert name != null : "Violation of: name is not null";
+
+        Integer id = IDS.get(name);
+        if (id == null) {
+            return -1;
+        }
+        return id;
+    }
+
+    /**
+     * Returns the name with id {@code id}.
+     *
+     * @param id
+     *            the id
+     * @return the name with id id
+     * @requires [id has been returned by intern]
+     */
+    public static String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Reports whether {@code id} is the id of a primitive instruction.
+     *
+     * @param id
+     *            the id
+     * @return true iff id is the id of a primitive instruction
+     */
+    public static boolean isPrimitive(int id) {
+        return 0 <= id && id < PRIMITIVES;
+    }
+
+    /**
+     * Reports whether {@code name} is the name of a primitive instruction.
+     *
+     * @param name
+     *            the name
+     * @return true iff name is the name of a primitive instruction
+     */
+    public static boolean isPrimitive(String name) {
+        return isPrimitive(lookup(name));
+    }
+
+}
@@ -0,0 +1,200 @@
+import java.util.HashMap;
+
+import components.statement.StatementKernel.Condition;
+import components.utilities.Tokenizer;
+
+/**
+ * Utility class with the int codes of BL tokens reported by
+ * {@code TokenSource.code}, so that parsers can dispatch on ints instead of
+ * comparing Strings. Every keyword and every condition has its own fixed code;
+ * all IDENTIFIERs share the code {@code IDENTIFIER}, and everything else the
+ * code {@code OTHER}. Condition {@code c} has code
+ * {@code FIRST_CONDITION + c.ordinal()}, so every code from
+ * {@code FIRST_CONDITION} up is a condition.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class TokenCodes {
+
+    /**
+     * Code of {@code Tokenizer.END_OF_INPUT}.
+     */
+    public static final int END_OF_INPUT = 0;
+
+    /**
+     * Code of keyword PROGRAM.
+     */
+    public static final int PROGRAM = 1;
+
+    /**
+     * Code of keyword IS.
+     */
+    public static final int IS = 2;
+
+    /**
+     * Code of keyword INSTRUCTION.
+     */
+    public static final int INSTRUCTION = 3;
+
+    /**
+     * Code of keyword BEGIN.
+     */
+    public static final int BEGIN = 4;
+
+    /**
+     * Code of keyword END.
+     */
+    public static final int END = 5;
+
+    /**
+     * Code of keyword IF.
+     */
+    public static final int IF = 6;
+
+    /**
+     * Code of keyword THEN.
+     */
+    public static final int THEN = 7;
+
+    /**
+     * Code of keyword ELSE.
+     */
+    public static final int ELSE = 8;
+
+    /**
+     * Code of keyword WHILE.
+     */
+    public static final int WHILE = 9;
+
+    /**
+     * Code of keyword DO.
+     */
+    public static final int DO = 10;
+
+    /**
+     * Code of every IDENTIFIER.
+     */
+    public static final int IDENTIFIER = 11;
+
+    /**
+     * Code of every token that is not a keyword, a condition or an
+     * IDENTIFIER.
+     */
+    public static final int OTHER = 12;
+
+    /**
+     * Code of the first condition.
+     */
+    public static final int FIRST_CONDITION = 13;
+
+    /**
+     * The conditions, indexed by ordinal.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * One more than the largest code.
+     */
+    public static final int LIMIT = FIRST_CONDITION + CONDITIONS.length;
+
+    /**
+     * Spellings of the keywords and conditions, and of END_OF_INPUT, indexed
+     * by code; null for IDENTIFIER and OTHER.
+     */
+    private static final String[] SPELLINGS = new String[LIMIT];
+
+    /**
+     * Codes of the keywords and conditions, and of END_OF_INPUT, keyed by
+     * spelling.
+     */
+    private static final HashMap<String, Integer> CODES = new HashMap<>();
+
+    static {
+        String[] keywords = { "PROGRAM", "IS", "INSTRUCTION", "BEGIN", "END",
+            "IF", "THEN", "ELSE", "WHILE", "DO" };
+        SPELLINGS[END_OF_INPUT] = Tokenizer.END_OF_INPUT;
+        for (int i = 0; i < keywords.length; i++) {
+            SPELLINGS[PROGRAM + i] = keywords[i].intern();
+        }
+        for (Condition c : CONDITIONS) {
+            SPELLINGS[FIRST_CONDITION + c.ordinal()] = c.name().toLowerCase()
+                    .replace('_', '-').intern();
+        }
+        for (int code = 0; code < LIMIT; code++) {
+            if (SPELLINGS[code] != null) {
+                CODES.put(SPELLINGS[code], code);
+            }
+        }
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private TokenCodes() {
+    }
+
+    /**
+     * Reports the code of {@code token}.
+     *
+     * @param token
+     *            the token
+     * @return the code of token
+     * @ensures codeOf = [the code of token]
+     */
+    public static int codeOf(String token) {
+        assert token != null : "Violation of: token is not null";
+        Integer code = CODES.get(token);
+        int result;
+        if (code != null) {
+            result = code;
+        } else if (Tokenizer.isIdentifier(token)) {
+            result = IDENTIFIER;
+        } else {
+            result = OTHER;
+        }
+        return result;
+    }
+
+    /**
+     * Reports the spelling of the keyword, condition or END_OF_INPUT with code
+     * {@code code}.
+     *
+     * @param code
+     *            the code
+     * @return the spelling, a shared constant
+     * @requires [code is the code of a keyword, a condition or END_OF_INPUT]
+     */
+    public static String spelling(int code) {
+        assert 0 <= code && code < LIMIT && SPELLINGS[code] != null : ""
+                + "Violation of: code is the code of a fixed token";
+        return SPELLINGS[code];
+    }
+
+    /**
+     * Reports whether {@code code} is the code of a condition.
+     *
+     * @param code
+     *            the code
+     * @return true iff code is the code of a condition
+     */
+    public static boolean isCondition(int code) {
+        return code >= FIRST_CONDITION;
+    }
+
+    /**
+     * Reports the condition with code {@code code}.
+     *
+     * @param code
+     *            the code
+     * @return the condition
+     * @requires FIRST_CONDITION <= code < LIMIT
+     */
+    public static Condition condition(int code) {
+        assert isCondition(code) && code < LIMIT : ""
+                + "Violation of: code is the code of a condition";
+        return CONDITIONS[code - FIRST_CONDITION];
+    }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * A source of BL tokens, consumed from the front one at a time. The parsers in
+ * this project read their input through this interface so that they can take
+ * tokens either from a {@code Queue<String>} built by {@code Tokenizer.tokens}
+ * (see {@code QueueTokenSource}) or directly from a file with
+ * {@code BLTokenizer}, without first materializing every token.
+ *
+ * @mathmodel type TokenSource is modeled by string of string of character
+ * @initially this = [the tokens of the input, followed by
+ *            <Tokenizer.END_OF_INPUT>]
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public interface TokenSource {
+
+    /**
+     * Reports the front of {@code this}.
+     *
+     * @return the front token
+     * @requires this /= <>
+     * @ensures <front> is prefix of this
+     */
+    String front();
+
+    /**
+     * Reports the code of the front of {@code this}, one of the constants in
+     * {@code TokenCodes}.
+     *
+     * @return the code of the front token
+     * @requires this /= <>
+     * @ensures code = TokenCodes.codeOf(front)
+     */
+    int code();
+
+    /**
+     * Removes and returns the front of {@code this}.
+     *
+     * @return the removed token
+     * @updates this
+     * @requires this /= <>
+     * @ensures #this = <dequeue> * this
+     */
+    String dequeue();
+
+}
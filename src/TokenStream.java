@@ -0,0 +1,302 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.queue.Queue;
+
+/**
+ * {@code TokenSource} holding a whole sequence of BL tokens in two primitive
+ * arrays: the id of each token and its offset in the source. Keywords,
+ * conditions and END_OF_INPUT have ids equal to their fixed
+ * {@code TokenCodes} codes; every other distinct spelling has an id of its own
+ * from {@code TokenCodes.LIMIT} up, with the spelling stored once. Dispatching
+ * on {@code code} therefore costs an array read rather than a String
+ * comparison, and a token takes eight bytes instead of a String object. Once
+ * only END_OF_INPUT is left, dequeuing it leaves it in place.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public final class TokenStream implements TokenSource {
+
+    /**
+     * Initial capacity of the token arrays.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Ids of the tokens, ending with END_OF_INPUT.
+     */
+    private int[] ids;
+
+    /**
+     * Offsets in the source of the tokens.
+     */
+    private int[] offsets;
+
+    /**
+     * Number of tokens, including the final END_OF_INPUT.
+     */
+    private int count;
+
+    /**
+     * Index of the front token.
+     */
+    private int position;
+
+    /**
+     * Spellings of the tokens, indexed by id; null for the ids of IDENTIFIER
+     * and OTHER.
+     */
+    private String[] names;
+
+    /**
+     * Codes of the tokens, indexed by id.
+     */
+    private int[] codes;
+
+    /**
+     * Number of ids in use.
+     */
+    private int nameCount;
+
+    /**
+     * Ids of the spellings seen so far that have no fixed code; only used
+     * while the stream is being built.
+     */
+    private HashMap<String, Integer> nameIds;
+
+    /**
+     * Returns the id of {@code token}, whose code is {@code code}, creating
+     * one if needed.
+     *
+     * @param token
+     *            the token
+     * @param code
+     *            its code
+     * @return the id of token
+     */
+    private int idOf(String token, int code) {
+        if (code != TokenCodes.IDENTIFIER && code != TokenCodes.OTHER) {
+            return code;
+        }
+        Integer id = this.nameIds.get(token);
+        if (id == null) {
+            if (this.nameCount == this.names.length) {
+                this.names = Arrays.copyOf(this.names, 2 * this.nameCount);
+                this.codes = Arrays.copyOf(this.codes, 2 * this.nameCount);
+            }
+            id = this.nameCount;
+            this.names[this.nameCount] = token;
+            this.codes[this.nameCount] = code;
+            this.nameCount++;
+            this.nameIds.put(token, id);
+        }
+        return id;
+    }
+
+    /**
+     * Appends {@code token}, whose code is {@code code}, at offset
+     * {@code offset}.
+     *
+     * @param token
+     *            the token
+     * @param code
+     *            its code
+     * @param offset
+     *            its offset in the source
+     */
+    private void append(String token, int code, int offset) {
+        if (this.count == this.ids.length) {
+            this.ids = Arrays.copyOf(this.ids, 2 * this.count);
+            this.offsets = Arrays.copyOf(this.offsets, 2 * this.count);
+        }
+        this.ids[this.count] = this.idOf(token, code);
+        this.offsets[this.count] = offset;
+        this.count++;
+    }
+
+    /**
+     * Creates the empty stream, with the fixed spellings in place.
+     */
+    private TokenStream() {
+        this.ids = new int[INITIAL_CAPACITY];
+        this.offsets = new int[INITIAL_CAPACITY];
+        this.names = new String[2 * TokenCodes.LIMIT];
+        this.codes = new int[2 * TokenCodes.LIMIT];
+        for (int c = 0; c < TokenCodes.LIMIT; c++) {
+            if (c != TokenCodes.IDENTIFIER && c != TokenCodes.OTHER) {
+                this.names[c] = TokenCodes.spelling(c);
+            }
+            this.codes[c] = c;
+        }
+        this.nameCount = TokenCodes.LIMIT;
+        this.nameIds = new HashMap<>();
+    }
+
+    /**
+     * Constructor from all the remaining tokens of {@code tokens}, with their
+     * offsets in its text.
+     *
+     * @param tokens
+     *            the tokenizer
+     * @updates tokens
+     * @ensures this = #tokens and tokens = <Tokenizer.END_OF_INPUT>
+     */
+    public TokenStream(BLTokenizer tokens) {
+        this();
+        assert tokens != null : "Violation of: tokens is not null";
+        while (tokens.code() != TokenCodes.END_OF_INPUT) {
+            this.append(tokens.front(), tokens.code(), tokens.offset());
+            tokens.dequeue();
+        }
+        this.append(tokens.front(), TokenCodes.END_OF_INPUT, tokens.offset());
+        this.nameIds = null;
+    }
+
+    /**
+     * Constructor from the file named {@code fileName}.
+     *
+     * @param fileName
+     *            the name of the file
+     * @requires [fileName names a readable file of at most Integer.MAX_VALUE
+     *           bytes]
+     */
+    public TokenStream(String fileName) {
+        this(new BLTokenizer(fileName));
+    }
+
+    /**
+     * Constructor from a queue of tokens such as the one returned by
+     * {@code Tokenizer.tokens}. The offset of each token is its position in
+     * the queue.
+     *
+     * @param tokens
+     *            the tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures this = tokens
+     */
+    public TokenStream(Queue<String> tokens) {
+        this();
+        assert tokens != null : "Violation of: tokens is not null";
+        for (String token : tokens) {
+            this.append(token, TokenCodes.codeOf(token), this.count);
+        }
+        this.nameIds = null;
+    }
+
+    /**
+     * Constructor of a view of {@code source} whose front is the token at
+     * index {@code position}. The view shares the token arrays of
+     * {@code source}, which are never changed once built.
+     *
+     * @param source
+     *            the stream to view
+     * @param position
+     *            the index of the front token of the view
+     */
+    private TokenStream(TokenStream source, int position) {
+        this.ids = source.ids;
+        this.offsets = source.offsets;
+        this.count = source.count;
+        this.names = source.names;
+        this.codes = source.codes;
+        this.nameCount = source.nameCount;
+        this.position = position;
+    }
+
+    /**
+     * Reports the index of the front token among all the tokens {@code this}
+     * was built from.
+     *
+     * @return the index of the front token
+     */
+    public int position() {
+        return this.position;
+    }
+
+    /**
+     * Reports the code of the token at index {@code index} among all the
+     * tokens {@code this} was built from, which may already be dequeued.
+     *
+     * @param index
+     *            the index of the token
+     * @return the code of the token at index
+     * @requires 0 <= index < [number of tokens this was built from]
+     */
+    public int codeAt(int index) {
+        assert 0 <= index && index < this.count : ""
+                + "Violation of: 0 <= index < [number of tokens]";
+        return this.codes[this.ids[index]];
+    }
+
+    /**
+     * Dequeues tokens up to, but not including, the one at index
+     * {@code index}.
+     *
+     * @param index
+     *            the index of the new front token
+     * @updates this
+     * @requires position <= index < [number of tokens this was built from]
+     */
+    public void skipTo(int index) {
+        assert this.position <= index && index < this.count : ""
+                + "Violation of: position <= index < [number of tokens]";
+        this.position = index;
+    }
+
+    /**
+     * Returns a new stream over the same tokens as {@code this} whose front is
+     * the token at index {@code index}. Dequeuing from either stream does not
+     * affect the other, so views may be read by different threads at once.
+     *
+     * @param index
+     *            the index of the front token of the view
+     * @return the view
+     * @requires 0 <= index < [number of tokens this was built from]
+     */
+    public TokenStream view(int index) {
+        assert 0 <= index && index < this.count : ""
+                + "Violation of: 0 <= index < [number of tokens]";
+        return new TokenStream(this, index);
+    }
+
+    /**
+     * Reports the offset in the source of the front token.
+     *
+     * @return the offset of the front token
+     * @requires this /= <>
+     */
+    public int offset() {
+        return this.offsets[this.position];
+    }
+
+    /**
+     * Reports the number of tokens in {@code this}.
+     *
+     * @return |this|
+     */
+    public int length() {
+        return this.count - this.position;
+    }
+
+    @Override
+    public String front() {
+        return this.names[this.ids[this.position]];
+    }
+
+    @Override
+    public int code() {
+        return this.codes[this.ids[this.position]];
+    }
+
+    @Override
+    public String dequeue() {
+        String result = this.names[this.ids[this.position]];
+        if (this.position < this.count - 1) {
+            this.position++;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,401 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import components.map.Map;
+import components.map.MapSecondary;
+import components.statement.Statement;
+import components.statement.StatementKernel.Kind;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code Map<String, Statement>} for program contexts that keeps track of the
+ * conditions on names {@code Program.swapContext} requires of a context, so
+ * that they can be checked without scanning it. The number of names that are
+ * not IDENTIFIERs and of names of primitive instructions are counted as
+ * entries are added and removed. Whether all bodies are BLOCK statements is
+ * not kept: bodies are taken in by {@code add} and handed out by
+ * {@code value} and the iterator by reference, and a client may change the
+ * kind of a body through such a reference at any time, so
+ * {@code allBlocks} scans the bodies on every call.
+ * Names that are IDENTIFIERs are interned in the {@code SymbolTable}, and
+ * instructions can also be looked up by symbol. That costs an array read for
+ * symbols below the length of an array the context keeps, of at most
+ * {@code SYMBOLS_PER_ENTRY} slots per instruction, and a lookup by name for
+ * the others, so a small context does not pay for every name ever interned.
+ *
+ * @convention <pre>
+ * $this.badNames = [number of keys of $this.entries that are not
+ *   IDENTIFIERs]  and
+ * $this.primitiveNames = [number of keys of $this.entries that are names
+ *   of primitive instructions]  and
+ * [for every symbol id < |$this.bySymbol|, if $this.entries has key
+ *   SymbolTable.name(id) then $this.bySymbol[id] =
+ *   $this.entries.value(SymbolTable.name(id)) else $this.bySymbol[id] =
+ *   null]  and
+ * |$this.bySymbol| <= SYMBOLS_PER_ENTRY * [largest size of $this.entries
+ *   since $this was last cleared]
+ * </pre>
+ * @correspondence this = $this.entries
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class ValidatedContext extends MapSecondary<String, Statement> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Shared empty {@code bySymbol}; never written, since adding to it makes
+     * a copy.
+     */
+    private static final Statement[] NO_BODIES = {};
+
+    /**
+     * No-argument constructors of the subclasses of
+     * {@code ValidatedContext}, looked up once per class so that
+     * {@code newInstance} does not go through reflection on every call.
+     */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findConstructor(type,
+                                MethodType.methodType(void.class))
+                        .asType(MethodType
+                                .methodType(ValidatedContext.class));
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(
+                        "Cannot construct object of type " + type, e);
+            }
+        }
+    };
+
+    /**
+     * The instructions.
+     */
+    private StringMap<Statement> entries;
+
+    /**
+     * Largest number of slots of {@code bySymbol} per instruction; bodies
+     * whose symbols lie beyond are looked up by name.
+     */
+    private static final int SYMBOLS_PER_ENTRY = 8;
+
+    /**
+     * The instruction bodies indexed by the symbol of their names, for the
+     * symbols below its length.
+     */
+    private Statement[] bySymbol;
+
+    /**
+     * Number of names that are not IDENTIFIERs.
+     */
+    private int badNames;
+
+    /**
+     * Number of names of primitive instructions.
+     */
+    private int primitiveNames;
+
+    /**
+     * Updates the name counts and {@code bySymbol} for the addition of
+     * {@code key} with body {@code value}, or for the removal of {@code key}
+     * if {@code value} is null.
+     *
+     * @param key
+     *            the name
+     * @param value
+     *            the body added, or null
+     */
+    private void index(String key, Statement value) {
+        int delta = 1;
+        if (value == null) {
+            delta = -1;
+        }
+        if (!Tokenizer.isIdentifier(key)) {
+            this.badNames += delta;
+            return;
+        }
+        int symbol;
+        if (value == null) {
+            symbol = SymbolTable.lookup(key);
+        } else {
+            symbol = SymbolTable.intern(key);
+        }
+        if (SymbolTable.isPrimitive(symbol)) {
+            this.primitiveNames += delta;
+        }
+        int limit = SYMBOLS_PER_ENTRY * this.entries.size();
+        if (value != null && symbol >= this.bySymbol.length
+                && symbol < limit) {
+            this.grow(Math.min(Math.max(2 * this.bySymbol.length, symbol + 1),
+                    limit));
+        }
+        if (symbol < this.bySymbol.length) {
+            this.bySymbol[symbol] = value;
+        }
+    }
+
+    /**
+     * Lengthens {@code bySymbol} to {@code length} slots, filling in the
+     * bodies of the instructions whose symbols are in the new slots.
+     *
+     * @param length
+     *            the new length
+     * @requires length > |this.bySymbol|
+     */
+    private void grow(int length) {
+        int oldLength = this.bySymbol.length;
+        this.bySymbol = Arrays.copyOf(this.bySymbol, length);
+        for (Map.Pair<String, Statement> pair : this.entries) {
+            int symbol = SymbolTable.lookup(pair.key());
+            if (symbol >= oldLength && symbol < length) {
+                this.bySymbol[symbol] = pair.value();
+            }
+        }
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.entries = new StringMap<Statement>();
+        this.bySymbol = NO_BODIES;
+        this.badNames = 0;
+        this.primitiveNames = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public ValidatedContext() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Map<String, Statement> newInstance() {
+        if (this.getClass() == ValidatedContext.class) {
+            return new ValidatedContext();
+        }
+        try {
+            return (ValidatedContext) CONSTRUCTORS.get(this.getClass())
+                    .invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass(), e);
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Map<String, Statement> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof ValidatedContext : ""
+                + "Violation of: source is of dynamic type ValidatedContext";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * ValidatedContext.
+         */
+        ValidatedContext localSource = (ValidatedContext) source;
+        this.entries = localSource.entries;
+        this.bySymbol = localSource.bySymbol;
+        this.badNames = localSource.badNames;
+        this.primitiveNames = localSource.primitiveNames;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String key, Statement value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        this.entries.add(key, value);
+        this.index(key, value);
+    }
+
+    @Override
+    public final Map.Pair<String, Statement> remove(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        Map.Pair<String, Statement> result = this.entries.remove(key);
+        this.index(key, null);
+        return result;
+    }
+
+    @Override
+    public final Map.Pair<String, Statement> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Map.Pair<String, Statement> result = this.entries.removeAny();
+        this.index(result.key(), null);
+        return result;
+    }
+
+    @Override
+    public final Statement value(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.entries.value(key);
+    }
+
+    @Override
+    public final boolean hasKey(String key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.entries.hasKey(key);
+    }
+
+    @Override
+    public final int size() {
+        return this.entries.size();
+    }
+
+    @Override
+    public final Iterator<Map.Pair<String, Statement>> iterator() {
+        return this.entries.iterator();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports whether {@code this} has an instruction whose name has the
+     * {@code SymbolTable} id {@code symbol}.
+     *
+     * @param symbol
+     *            the symbol of the name
+     * @return true iff SymbolTable.name(symbol) is in DOMAIN(this)
+     * @requires [symbol has been returned by SymbolTable.intern]
+     */
+    public final boolean hasKey(int symbol) {
+        assert symbol >= 0 : "Violation of: symbol >= 0";
+
+        if (symbol < this.bySymbol.length) {
+            return this.bySymbol[symbol] != null;
+        }
+        return this.entries.hasKey(SymbolTable.name(symbol));
+    }
+
+    /**
+     * Reports the body of the instruction whose name has the
+     * {@code SymbolTable} id {@code symbol}.
+     *
+     * @param symbol
+     *            the symbol of the name
+     * @return the body of the instruction named SymbolTable.name(symbol)
+     * @aliases reference returned by value
+     * @requires SymbolTable.name(symbol) is in DOMAIN(this)
+     */
+    public final Statement value(int symbol) {
+        assert this.hasKey(symbol) : ""
+                + "Violation of: SymbolTable.name(symbol) is in DOMAIN(this)";
+
+        if (symbol < this.bySymbol.length) {
+            return this.bySymbol[symbol];
+        }
+        return this.entries.value(SymbolTable.name(symbol));
+    }
+
+    /**
+     * Reports whether all the names in {@code this} are valid IDENTIFIERs, in
+     * constant time.
+     *
+     * @return true iff all the names in this are valid IDENTIFIERs
+     * @ensures <pre>
+     * allIdentifiers = [all the names of instructions in this are valid
+     *   IDENTIFIERs]
+     * </pre>
+     */
+    public final boolean allIdentifiers() {
+        return this.badNames == 0;
+    }
+
+    /**
+     * Reports whether no name in {@code this} is the name of a primitive
+     * instruction, in constant time.
+     *
+     * @return true iff no name in this is the name of a primitive instruction
+     * @ensures <pre>
+     * noPrimitiveInstructions =
+     *   [no instruction name in this is the name of a primitive instruction]
+     * </pre>
+     */
+    public final boolean noPrimitiveInstructions() {
+        return this.primitiveNames == 0;
+    }
+
+    /**
+     * Reports whether all the bodies in {@code this} are BLOCK statements, by
+     * checking each of them, in time linear in the size of {@code this}.
+     *
+     * @return true iff all the bodies in this are BLOCK statements
+     * @ensures <pre>
+     * allBlocks = [all the bodies of instructions in this are BLOCK
+     *   statements]
+     * </pre>
+     */
+    public final boolean allBlocks() {
+        for (Map.Pair<String, Statement> pair : this.entries) {
+            if (pair.value().kind() != Kind.BLOCK) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Exchanges the values of {@code this} and {@code other} by exchanging
+     * their representations, in constant time and without allocating.
+     *
+     * @param other
+     *            the context to exchange values with
+     * @updates this, other
+     * @ensures this = #other and other = #this
+     */
+    public final void swap(ValidatedContext other) {
+        assert other != null : "Violation of: other is not null";
+
+        this.entries.swap(other.entries);
+        Statement[] otherBySymbol = other.bySymbol;
+        other.bySymbol = this.bySymbol;
+        this.bySymbol = otherBySymbol;
+        int otherBadNames = other.badNames;
+        int otherPrimitiveNames = other.primitiveNames;
+        other.badNames = this.badNames;
+        other.primitiveNames = this.primitiveNames;
+        this.badNames = otherBadNames;
+        this.primitiveNames = otherPrimitiveNames;
+    }
+
+}
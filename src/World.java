@@ -0,0 +1,50 @@
+import components.statement.StatementKernel.Condition;
+
+/**
+ * The world a BL program runs in, as seen by the creature running it: the
+ * five primitive instructions act on the world, and each condition is a
+ * question about what the creature faces. Execution engines call these
+ * methods in program order, so the calls a world receives are the execution
+ * trace of the program.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public interface World {
+
+    /**
+     * Moves the creature one cell forward if that cell is empty.
+     */
+    void move();
+
+    /**
+     * Turns the creature 90 degrees to its left.
+     */
+    void turnLeft();
+
+    /**
+     * Turns the creature 90 degrees to its right.
+     */
+    void turnRight();
+
+    /**
+     * Turns the creature in front into a friend if it is an enemy.
+     */
+    void infect();
+
+    /**
+     * Does nothing for one turn.
+     */
+    void skip();
+
+    /**
+     * Reports whether condition {@code c} holds for the creature.
+     *
+     * @param c
+     *            the condition
+     * @return true iff c holds
+     */
+    boolean test(Condition c);
+
+}
@@ -0,0 +1,218 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code Bytecode} and {@code BytecodeMachine}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class BytecodeTest {
+
+    /**
+     * The sample program, which repeats turnleft, turnleft, move forever.
+     */
+    private static final String SAMPLE = "PROGRAM Test IS"
+            + " INSTRUCTION one IS move END one"
+            + " INSTRUCTION two IS turnleft turnleft END two"
+            + " BEGIN WHILE true DO two one END WHILE END Test";
+
+    /**
+     * A program using every kind of statement and the random condition.
+     */
+    private static final String MIX = "PROGRAM Mix IS"
+            + " INSTRUCTION turn IS IF random THEN turnleft ELSE turnright"
+            + " END IF END turn INSTRUCTION go IS WHILE next-is-empty DO"
+            + " move IF random THEN turn END IF END WHILE END go"
+            + " BEGIN WHILE true DO IF next-is-enemy THEN infect ELSE go"
+            + " turn END IF skip END WHILE END Mix";
+
+    /**
+     * Parses the BL program {@code text}, whose tokens are separated by
+     * spaces, into {@code p}.
+     *
+     * @param p
+     *            the program to parse into
+     * @param text
+     *            the program
+     * @return p
+     */
+    private static Program parse(Program p, String text) {
+        Queue<String> tokens = new Queue1L<>();
+        for (String token : text.split(" ")) {
+            tokens.enqueue(token);
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        p.parse(tokens);
+        return p;
+    }
+
+    /**
+     * Returns a {@code Program2} with {@code Statement2} bodies parsed from
+     * {@code text}.
+     *
+     * @param text
+     *            the program
+     * @return the program
+     */
+    private static Program2 program(String text) {
+        return (Program2) parse(
+                new Program2(new ValidatedContext(), new Statement2()), text);
+    }
+
+    /**
+     * Runs {@code text} for {@code budget} steps with {@code Interpreter} and
+     * with {@code BytecodeMachine}, in equal worlds, and checks that they
+     * take the same steps and execute the same primitives.
+     *
+     * @param text
+     *            the program
+     * @param budget
+     *            the number of steps
+     */
+    private static void assertSameRun(String text, long budget) {
+        Program2 p = program(text);
+        PrimitiveTrace expected = new PrimitiveTrace();
+        PrimitiveTrace actual = new PrimitiveTrace();
+        Interpreter interpreter = new Interpreter(p, new GridWorld(16, 16, 3),
+                expected);
+        BytecodeMachine machine = new BytecodeMachine(Bytecode.compile(p),
+                new GridWorld(16, 16, 3), actual);
+        assertEquals(interpreter.run(budget), machine.run(budget));
+        assertEquals(interpreter.isDone(), machine.isDone());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test the sample program against the interpreter.
+     */
+    @Test
+    public final void testSample() {
+        assertSameRun(SAMPLE, 1000);
+    }
+
+    /**
+     * Test a program with every kind of statement against the interpreter.
+     */
+    @Test
+    public final void testMix() {
+        assertSameRun(MIX, 100000);
+    }
+
+    /**
+     * Test a program that finishes against the interpreter.
+     */
+    @Test
+    public final void testRunToEnd() {
+        assertSameRun("PROGRAM P IS INSTRUCTION a IS move turnleft END a"
+                + " BEGIN a IF next-is-wall THEN skip ELSE a infect END IF"
+                + " END P", 100);
+    }
+
+    /**
+     * Test that running in small pieces gives the same trace as one run.
+     */
+    @Test
+    public final void testResume() {
+        /*
+         * Setup
+         */
+        Bytecode code = Bytecode.compile(program(MIX));
+        PrimitiveTrace whole = new PrimitiveTrace();
+        PrimitiveTrace pieces = new PrimitiveTrace();
+        new BytecodeMachine(code, new GridWorld(8, 8, 1), whole).run(1000);
+        BytecodeMachine machine = new BytecodeMachine(code,
+                new GridWorld(8, 8, 1), pieces);
+
+        /*
+         * The call
+         */
+        for (int i = 0; i < 1000 / 7; i++) {
+            machine.run(7);
+        }
+        machine.run(1000 % 7);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(1000, machine.steps());
+        assertEquals(whole, pieces);
+    }
+
+    /**
+     * Test pausing after each primitive.
+     */
+    @Test
+    public final void testNextPrimitive() {
+        /*
+         * Setup
+         */
+        BytecodeMachine machine = new BytecodeMachine(
+                Bytecode.compile(program(SAMPLE)), new GridWorld(8, 8, 1),
+                null);
+
+        /*
+         * The call
+         */
+        int first = machine.nextPrimitive(100);
+        int second = machine.nextPrimitive(100);
+        int third = machine.nextPrimitive(100);
+        int none = machine.nextPrimitive(0);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(SymbolTable.TURNLEFT, first);
+        assertEquals(SymbolTable.TURNLEFT, second);
+        assertEquals(SymbolTable.MOVE, third);
+        assertEquals(-1, none);
+        assertEquals(6, machine.steps());
+    }
+
+    /**
+     * Test that a call cycle without primitives stops at the budget.
+     */
+    @Test
+    public final void testCallCycle() {
+        assertSameRun("PROGRAM P IS INSTRUCTION a IS b END a"
+                + " INSTRUCTION b IS a END b BEGIN a END P", 10000);
+    }
+
+    /**
+     * Test compiling a {@code Program1}, which leaves it unchanged.
+     */
+    @Test
+    public final void testCompileProgram1() {
+        /*
+         * Setup
+         */
+        Program p = parse(new Program1(), SAMPLE);
+        Program pExpected = parse(new Program1(), SAMPLE);
+        PrimitiveTrace trace = new PrimitiveTrace();
+
+        /*
+         * The call
+         */
+        Bytecode code = Bytecode.compile(p);
+
+        /*
+         * Evaluation
+         */
+        new BytecodeMachine(code, new GridWorld(8, 8, 1), trace).run(6);
+        assertEquals(pExpected, p);
+        assertEquals(3, trace.length());
+        assertEquals("0: BRANCH TRUE 9\n" + "3: CALL 10\n" + "5: CALL 13\n"
+                + "7: JUMP 0\n" + "9: HALT\n" + "10: turnleft\n"
+                + "11: turnleft\n" + "12: RETURN\n" + "13: move\n"
+                + "14: RETURN\n", code.toString());
+    }
+
+}
@@ -0,0 +1,205 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code ClosureEngine}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class ClosureEngineTest {
+
+    /**
+     * The sample program, which repeats turnleft, turnleft, move forever.
+     */
+    private static final String SAMPLE = "PROGRAM Test IS"
+            + " INSTRUCTION one IS move END one"
+            + " INSTRUCTION two IS turnleft turnleft END two"
+            + " BEGIN WHILE true DO two one END WHILE END Test";
+
+    /**
+     * A program using every kind of statement and the random condition.
+     */
+    private static final String MIX = "PROGRAM Mix IS"
+            + " INSTRUCTION turn IS IF random THEN turnleft ELSE turnright"
+            + " END IF END turn INSTRUCTION go IS WHILE next-is-empty DO"
+            + " move IF random THEN turn END IF END WHILE END go"
+            + " BEGIN WHILE true DO IF next-is-enemy THEN infect ELSE go"
+            + " turn END IF skip END WHILE END Mix";
+
+    /**
+     * Parses the BL program {@code text}, whose tokens are separated by
+     * spaces, into {@code p}.
+     *
+     * @param p
+     *            the program to parse into
+     * @param text
+     *            the program
+     * @return p
+     */
+    private static Program parse(Program p, String text) {
+        Queue<String> tokens = new Queue1L<>();
+        for (String token : text.split(" ")) {
+            tokens.enqueue(token);
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        p.parse(tokens);
+        return p;
+    }
+
+    /**
+     * Runs {@code text} for {@code budget} steps with {@code Interpreter} and
+     * with {@code ClosureEngine}, in equal worlds, and checks that they take
+     * the same steps and execute the same primitives.
+     *
+     * @param text
+     *            the program
+     * @param budget
+     *            the number of steps
+     */
+    private static void assertSameRun(String text, long budget) {
+        Program2 p = (Program2) parse(
+                new Program2(new ValidatedContext(), new Statement2()), text);
+        PrimitiveTrace expected = new PrimitiveTrace();
+        PrimitiveTrace actual = new PrimitiveTrace();
+        Interpreter interpreter = new Interpreter(p, new GridWorld(16, 16, 3),
+                expected);
+        ClosureEngine engine = new ClosureEngine(p, new GridWorld(16, 16, 3),
+                actual);
+        assertEquals(interpreter.run(budget), engine.run(budget));
+        assertEquals(interpreter.isDone(), engine.isDone());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test the sample program against the interpreter.
+     */
+    @Test
+    public final void testSample() {
+        assertSameRun(SAMPLE, 1000);
+    }
+
+    /**
+     * Test a program with every kind of statement against the interpreter.
+     */
+    @Test
+    public final void testMix() {
+        assertSameRun(MIX, 100000);
+    }
+
+    /**
+     * Test a program that finishes against the interpreter.
+     */
+    @Test
+    public final void testRunToEnd() {
+        assertSameRun("PROGRAM P IS INSTRUCTION a IS move turnleft END a"
+                + " BEGIN a IF next-is-wall THEN skip ELSE a infect END IF"
+                + " END P", 100);
+    }
+
+    /**
+     * Test that a call cycle without primitives stops at the budget.
+     */
+    @Test
+    public final void testCallCycle() {
+        assertSameRun("PROGRAM P IS INSTRUCTION a IS b END a"
+                + " INSTRUCTION b IS a END b BEGIN a END P", 1000);
+    }
+
+    /**
+     * Test that an instruction ending in a call of itself runs for a budget
+     * far beyond the depth of the Java stack.
+     */
+    @Test
+    public final void testTailRecursionLargeBudget() {
+        assertSameRun("PROGRAM P IS INSTRUCTION go IS move go END go"
+                + " BEGIN go END P", 1000000);
+    }
+
+    /**
+     * Test that instructions calling each other from the ends of IF_ELSE
+     * branches run for a large budget.
+     */
+    @Test
+    public final void testMutualTailRecursionLargeBudget() {
+        assertSameRun("PROGRAM P IS INSTRUCTION a IS IF next-is-empty THEN"
+                + " move b ELSE turnleft a END IF END a"
+                + " INSTRUCTION b IS turnright a END b"
+                + " BEGIN a END P", 1000000);
+    }
+
+    /**
+     * Test a recursive call that is not in tail position, nested to the
+     * largest depth allowed.
+     */
+    @Test
+    public final void testNestedRecursion() {
+        assertSameRun("PROGRAM P IS INSTRUCTION go IS move go turnleft END go"
+                + " BEGIN go END P", 2 * ClosureEngine.MAX_CALL_DEPTH);
+    }
+
+    /**
+     * Test that each run starts again from the beginning of the program.
+     */
+    @Test
+    public final void testRunAgain() {
+        /*
+         * Setup
+         */
+        Program p = parse(new Program1(), SAMPLE);
+        PrimitiveTrace trace = new PrimitiveTrace();
+        ClosureEngine engine = new ClosureEngine(p, new GridWorld(8, 8, 1),
+                trace);
+        engine.run(5);
+
+        /*
+         * The call
+         */
+        long taken = engine.run(5);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(5, taken);
+        assertEquals(false, engine.isDone());
+        PrimitiveTrace expected = new PrimitiveTrace();
+        expected.add(SymbolTable.TURNLEFT);
+        expected.add(SymbolTable.TURNLEFT);
+        expected.add(SymbolTable.TURNLEFT);
+        expected.add(SymbolTable.TURNLEFT);
+        assertEquals(expected, trace);
+    }
+
+    /**
+     * Test compiling a {@code Program1}, which leaves it unchanged.
+     */
+    @Test
+    public final void testCompileProgram1() {
+        /*
+         * Setup
+         */
+        Program p = parse(new Program1(), MIX);
+        Program pExpected = parse(new Program1(), MIX);
+
+        /*
+         * The call
+         */
+        ClosureEngine engine = new ClosureEngine(p, new GridWorld(8, 8, 1),
+                null);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pExpected, p);
+        assertEquals(1000, engine.run(1000));
+    }
+
+}
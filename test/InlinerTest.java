@@ -0,0 +1,258 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code Inliner}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class InlinerTest {
+
+    /**
+     * The sample program, which repeats turnleft, turnleft, move forever.
+     */
+    private static final String SAMPLE = "PROGRAM Test IS"
+            + " INSTRUCTION one IS move END one"
+            + " INSTRUCTION two IS turnleft turnleft END two"
+            + " BEGIN WHILE true DO two one END WHILE END Test";
+
+    /**
+     * A program using every kind of statement and the random condition.
+     */
+    private static final String MIX = "PROGRAM Mix IS"
+            + " INSTRUCTION turn IS IF random THEN turnleft ELSE turnright"
+            + " END IF END turn INSTRUCTION go IS WHILE next-is-empty DO"
+            + " move IF random THEN turn END IF END WHILE END go"
+            + " BEGIN WHILE true DO IF next-is-enemy THEN infect ELSE go"
+            + " turn END IF skip END WHILE END Mix";
+
+    /**
+     * Parses the BL program {@code text}, whose tokens are separated by
+     * spaces, into {@code p}.
+     *
+     * @param p
+     *            the program to parse into
+     * @param text
+     *            the program
+     * @return p
+     */
+    private static Program parse(Program p, String text) {
+        Queue<String> tokens = new Queue1L<>();
+        for (String token : text.split(" ")) {
+            tokens.enqueue(token);
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        p.parse(tokens);
+        return p;
+    }
+
+    /**
+     * Returns a {@code Program2} with {@code Statement2} bodies parsed from
+     * {@code text}.
+     *
+     * @param text
+     *            the program
+     * @return the program
+     */
+    private static Program2 program(String text) {
+        return (Program2) parse(
+                new Program2(new ValidatedContext(), new Statement2()), text);
+    }
+
+    /**
+     * Runs {@code original} and {@code inlined} for {@code budget} steps each
+     * in equal worlds and checks that the primitives executed by the original
+     * come first, in order, among those executed by the inlined program,
+     * which takes fewer steps per primitive.
+     *
+     * @param original
+     *            the program
+     * @param inlined
+     *            the inlined program
+     * @param budget
+     *            the number of steps
+     */
+    private static void assertSameTrace(Program2 original, Program2 inlined,
+            long budget) {
+        PrimitiveTrace expected = new PrimitiveTrace();
+        PrimitiveTrace actual = new PrimitiveTrace();
+        new Interpreter(original, new GridWorld(16, 16, 3), expected)
+                .run(budget);
+        new Interpreter(inlined, new GridWorld(16, 16, 3), actual)
+                .run(budget);
+        assertEquals(true, expected.length() <= actual.length());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.symbol(i), actual.symbol(i));
+        }
+    }
+
+    /**
+     * Test inlining the sample program with a large budget.
+     */
+    @Test
+    public final void testSample() {
+        /*
+         * Setup
+         */
+        Program2 p = program(SAMPLE);
+        Program2 pExpected = program(SAMPLE);
+        Program2 expected = program("PROGRAM Test IS"
+                + " INSTRUCTION one IS move END one"
+                + " INSTRUCTION two IS turnleft turnleft END two"
+                + " BEGIN WHILE true DO turnleft turnleft move END WHILE"
+                + " END Test");
+
+        /*
+         * The call
+         */
+        Program inlined = Inliner.inline(p, 100);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pExpected, p);
+        assertEquals(expected, inlined);
+        assertSameTrace(p, (Program2) inlined, 1000);
+    }
+
+    /**
+     * Test that inlining stops at the size budget.
+     */
+    @Test
+    public final void testBudget() {
+        /*
+         * Setup
+         */
+        Program2 p = program(SAMPLE);
+        Program2 expected = program("PROGRAM Test IS"
+                + " INSTRUCTION one IS move END one"
+                + " INSTRUCTION two IS turnleft turnleft END two"
+                + " BEGIN WHILE true DO two move END WHILE END Test");
+
+        /*
+         * The call
+         */
+        Program inlined = Inliner.inline(p, 3);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(expected, inlined);
+    }
+
+    /**
+     * Test that a body over the size budget is left alone.
+     */
+    @Test
+    public final void testBudgetTooSmall() {
+        /*
+         * Setup
+         */
+        Program2 p = program(SAMPLE);
+
+        /*
+         * The call
+         */
+        Program inlined = Inliner.inline(p, 2);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(p, inlined);
+    }
+
+    /**
+     * Test that recursive calls are left alone.
+     */
+    @Test
+    public final void testRecursion() {
+        /*
+         * Setup
+         */
+        Program2 p = program("PROGRAM P IS INSTRUCTION a IS move b END a"
+                + " INSTRUCTION b IS turnleft a END b BEGIN a END P");
+        Program2 expected = program("PROGRAM P IS"
+                + " INSTRUCTION a IS move turnleft a END a"
+                + " INSTRUCTION b IS turnleft move b END b"
+                + " BEGIN move turnleft a END P");
+
+        /*
+         * The call
+         */
+        Program inlined = Inliner.inline(p, 100);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(expected, inlined);
+        assertSameTrace(p, (Program2) inlined, 1000);
+    }
+
+    /**
+     * Test a program with every kind of statement against the original.
+     */
+    @Test
+    public final void testMix() {
+        /*
+         * Setup
+         */
+        Program2 p = program(MIX);
+        Program2 expected = program("PROGRAM Mix IS"
+                + " INSTRUCTION turn IS IF random THEN turnleft ELSE"
+                + " turnright END IF END turn INSTRUCTION go IS WHILE"
+                + " next-is-empty DO move IF random THEN IF random THEN"
+                + " turnleft ELSE turnright END IF END IF END WHILE END go"
+                + " BEGIN WHILE true DO IF next-is-enemy THEN infect ELSE"
+                + " WHILE next-is-empty DO move IF random THEN IF random"
+                + " THEN turnleft ELSE turnright END IF END IF END WHILE"
+                + " IF random THEN turnleft ELSE turnright END IF END IF"
+                + " skip END WHILE END Mix");
+
+        /*
+         * The call
+         */
+        Program inlined = Inliner.inline(p, 100);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(expected, inlined);
+        assertSameTrace(p, (Program2) inlined, 100000);
+    }
+
+    /**
+     * Test inlining a {@code Program1}.
+     */
+    @Test
+    public final void testProgram1() {
+        /*
+         * Setup
+         */
+        Program p = parse(new Program1(), SAMPLE);
+        Program expected = parse(new Program1(), "PROGRAM Test IS"
+                + " INSTRUCTION one IS move END one"
+                + " INSTRUCTION two IS turnleft turnleft END two"
+                + " BEGIN WHILE true DO turnleft turnleft move END WHILE"
+                + " END Test");
+
+        /*
+         * The call
+         */
+        Program inlined = Inliner.inline(p, 100);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(expected, inlined);
+    }
+
+}
@@ -0,0 +1,248 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.statement.StatementKernel.Condition;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code Interpreter}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class InterpreterTest {
+
+    /**
+     * The sample program, which repeats turnleft, turnleft, move forever.
+     */
+    private static final String SAMPLE = "PROGRAM Test IS"
+            + " INSTRUCTION one IS move END one"
+            + " INSTRUCTION two IS turnleft turnleft END two"
+            + " BEGIN WHILE true DO two one END WHILE END Test";
+
+    /**
+     * {@code World} that answers every condition the same way and records
+     * nothing beyond what the interpreter traces.
+     */
+    private static final class ConstantWorld implements World {
+
+        /**
+         * The answer to every condition.
+         */
+        private final boolean answer;
+
+        /**
+         * Constructor.
+         *
+         * @param answer
+         *            the answer to every condition
+         */
+        private ConstantWorld(boolean answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public void move() {
+        }
+
+        @Override
+        public void turnLeft() {
+        }
+
+        @Override
+        public void turnRight() {
+        }
+
+        @Override
+        public void infect() {
+        }
+
+        @Override
+        public void skip() {
+        }
+
+        @Override
+        public boolean test(Condition c) {
+            return this.answer;
+        }
+
+    }
+
+    /**
+     * Returns a {@code Program2} with {@code Statement2} bodies parsed from
+     * the BL program {@code text}, whose tokens are separated by spaces.
+     *
+     * @param text
+     *            the program
+     * @return the program
+     */
+    private static Program2 program(String text) {
+        Queue<String> tokens = new Queue1L<>();
+        for (String token : text.split(" ")) {
+            tokens.enqueue(token);
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        Program2 p = new Program2(new ValidatedContext(), new Statement2());
+        p.parse(new TokenStream(tokens));
+        return p;
+    }
+
+    /**
+     * Returns the trace of the names in {@code names}.
+     *
+     * @param names
+     *            the names of primitives
+     * @return the trace
+     */
+    private static PrimitiveTrace traceOf(String... names) {
+        PrimitiveTrace trace = new PrimitiveTrace();
+        for (String name : names) {
+            trace.add(SymbolTable.intern(name));
+        }
+        return trace;
+    }
+
+    /**
+     * Test running a program that finishes within the budget.
+     */
+    @Test
+    public final void testRunToEnd() {
+        /*
+         * Setup
+         */
+        Program2 p = program("PROGRAM P IS BEGIN move IF true THEN turnleft"
+                + " ELSE turnright END IF infect END P");
+        PrimitiveTrace trace = new PrimitiveTrace();
+        Interpreter interpreter = new Interpreter(p, new ConstantWorld(false),
+                trace);
+
+        /*
+         * The call
+         */
+        long taken = interpreter.run(100);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(4, taken);
+        assertEquals(true, interpreter.isDone());
+        assertEquals(traceOf("move", "turnright", "infect"), trace);
+    }
+
+    /**
+     * Test running the sample program until the budget runs out.
+     */
+    @Test
+    public final void testSampleBudget() {
+        /*
+         * Setup
+         */
+        Program2 p = program(SAMPLE);
+        PrimitiveTrace trace = new PrimitiveTrace();
+        Interpreter interpreter = new Interpreter(p, new ConstantWorld(true),
+                trace);
+
+        /*
+         * The call
+         */
+        long taken = interpreter.run(13);
+
+        /*
+         * Evaluation: each round tests the condition, calls two, runs two
+         * turnlefts, calls one and runs a move, in 6 steps
+         */
+        assertEquals(13, taken);
+        assertEquals(false, interpreter.isDone());
+        assertEquals(traceOf("turnleft", "turnleft", "move", "turnleft",
+                "turnleft", "move"), trace);
+    }
+
+    /**
+     * Test that running in small pieces gives the same trace as one run.
+     */
+    @Test
+    public final void testResume() {
+        /*
+         * Setup
+         */
+        Program2 p = program(SAMPLE);
+        PrimitiveTrace whole = new PrimitiveTrace();
+        PrimitiveTrace pieces = new PrimitiveTrace();
+        new Interpreter(p, new GridWorld(8, 8, 1), whole).run(1000);
+        Interpreter interpreter = new Interpreter(p, new GridWorld(8, 8, 1),
+                pieces);
+
+        /*
+         * The call
+         */
+        for (int i = 0; i < 1000 / 7; i++) {
+            interpreter.run(7);
+        }
+        interpreter.run(1000 % 7);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(1000, interpreter.steps());
+        assertEquals(whole, pieces);
+    }
+
+    /**
+     * Test that a call cycle without primitives stops at the budget.
+     */
+    @Test
+    public final void testCallCycle() {
+        /*
+         * Setup
+         */
+        Program2 p = program("PROGRAM P IS INSTRUCTION a IS b END a"
+                + " INSTRUCTION b IS a END b BEGIN a END P");
+        PrimitiveTrace trace = new PrimitiveTrace();
+        Interpreter interpreter = new Interpreter(p, new ConstantWorld(true),
+                trace);
+
+        /*
+         * The call
+         */
+        long taken = interpreter.run(10000);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(10000, taken);
+        assertEquals(false, interpreter.isDone());
+        assertEquals(0, trace.length());
+    }
+
+    /**
+     * Test a loop that ends because of the state of a {@code GridWorld}.
+     */
+    @Test
+    public final void testGridWorldLoop() {
+        /*
+         * Setup
+         */
+        Program2 p = program("PROGRAM P IS BEGIN WHILE next-is-not-wall DO"
+                + " IF next-is-enemy THEN infect ELSE move END IF END WHILE"
+                + " END P");
+        GridWorld w = new GridWorld(9, 9, 2);
+        Interpreter interpreter = new Interpreter(p, w, null);
+
+        /*
+         * The call
+         */
+        interpreter.run(1000);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(true, interpreter.isDone());
+        assertEquals(0, w.y());
+        assertEquals(4, w.x());
+    }
+
+}
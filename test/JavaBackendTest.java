@@ -0,0 +1,271 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.statement.StatementKernel.Condition;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code JavaBackend} and {@code CompiledProgram}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class JavaBackendTest {
+
+    /**
+     * The sample program, which repeats turnleft, turnleft, move forever.
+     */
+    private static final String SAMPLE = "PROGRAM Test IS"
+            + " INSTRUCTION one IS move END one"
+            + " INSTRUCTION two IS turnleft turnleft END two"
+            + " BEGIN WHILE true DO two one END WHILE END Test";
+
+    /**
+     * A program using every kind of statement and the random condition.
+     */
+    private static final String MIX = "PROGRAM Mix IS"
+            + " INSTRUCTION turn IS IF random THEN turnleft ELSE turnright"
+            + " END IF END turn INSTRUCTION go IS WHILE next-is-empty DO"
+            + " move IF random THEN turn END IF END WHILE END go"
+            + " BEGIN WHILE true DO IF next-is-enemy THEN infect ELSE go"
+            + " turn END IF skip END WHILE END Mix";
+
+    /**
+     * Parses the BL program {@code text}, whose tokens are separated by
+     * spaces, into {@code p}.
+     *
+     * @param p
+     *            the program to parse into
+     * @param text
+     *            the program
+     * @return p
+     */
+    private static Program parse(Program p, String text) {
+        Queue<String> tokens = new Queue1L<>();
+        for (String token : text.split(" ")) {
+            tokens.enqueue(token);
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        p.parse(tokens);
+        return p;
+    }
+
+    /**
+     * Runs {@code text} for {@code budget} steps with {@code Interpreter} and
+     * as a generated class, in equal worlds, and checks that they take the
+     * same steps and execute the same primitives.
+     *
+     * @param text
+     *            the program
+     * @param budget
+     *            the number of steps
+     */
+    private static void assertSameRun(String text, long budget) {
+        Program2 p = (Program2) parse(
+                new Program2(new ValidatedContext(), new Statement2()), text);
+        PrimitiveTrace expected = new PrimitiveTrace();
+        PrimitiveTrace actual = new PrimitiveTrace();
+        Interpreter interpreter = new Interpreter(p, new GridWorld(16, 16, 3),
+                expected);
+        CompiledProgram compiled = JavaBackend.newProgram(p,
+                new GridWorld(16, 16, 3), actual);
+        assertEquals(interpreter.run(budget), compiled.run(budget));
+        assertEquals(interpreter.isDone(), compiled.isDone());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test the sample program against the interpreter.
+     */
+    @Test
+    public final void testSample() {
+        assertSameRun(SAMPLE, 1000);
+    }
+
+    /**
+     * Test a program with every kind of statement against the interpreter.
+     */
+    @Test
+    public final void testMix() {
+        assertSameRun(MIX, 100000);
+    }
+
+    /**
+     * Test a program whose body is too large for one Java method against the
+     * interpreter.
+     */
+    @Test
+    public final void testLargeBody() {
+        StringBuilder text = new StringBuilder(
+                "PROGRAM Large IS BEGIN WHILE true DO");
+        for (int i = 0; i < 20000; i++) {
+            text.append(" move");
+        }
+        text.append(" turnleft END WHILE END Large");
+        assertSameRun(text.toString(), 50000);
+    }
+
+    /**
+     * Test a program that finishes against the interpreter.
+     */
+    @Test
+    public final void testRunToEnd() {
+        assertSameRun("PROGRAM P IS INSTRUCTION a IS move turnleft END a"
+                + " BEGIN a IF next-is-wall THEN skip ELSE a infect END IF"
+                + " END P", 100);
+    }
+
+    /**
+     * Test that a call cycle without primitives stops at the budget.
+     */
+    @Test
+    public final void testCallCycle() {
+        assertSameRun("PROGRAM P IS INSTRUCTION a IS b END a"
+                + " INSTRUCTION b IS a END b BEGIN a END P", 1000);
+    }
+
+    /**
+     * Test that an instruction ending in a call of itself runs for a budget
+     * far beyond the depth of the Java stack.
+     */
+    @Test
+    public final void testTailRecursionLargeBudget() {
+        assertSameRun("PROGRAM P IS INSTRUCTION go IS move go END go"
+                + " BEGIN go END P", 1000000);
+    }
+
+    /**
+     * Test that instructions calling each other from the ends of IF_ELSE
+     * branches run for a large budget.
+     */
+    @Test
+    public final void testMutualTailRecursionLargeBudget() {
+        assertSameRun("PROGRAM P IS INSTRUCTION a IS IF next-is-empty THEN"
+                + " move b ELSE turnleft a END IF END a"
+                + " INSTRUCTION b IS turnright a END b"
+                + " BEGIN a END P", 1000000);
+    }
+
+    /**
+     * Test that an instruction too large for one Java method, ending in a
+     * call of itself, runs for a large budget.
+     */
+    @Test
+    public final void testLargeTailRecursion() {
+        StringBuilder text = new StringBuilder(
+                "PROGRAM Large IS INSTRUCTION go IS");
+        for (int i = 0; i < 2000; i++) {
+            text.append(" turnleft");
+        }
+        text.append(" go END go BEGIN go END Large");
+        assertSameRun(text.toString(), 1000000);
+    }
+
+    /**
+     * Test a recursive call that is not in tail position, nested to the
+     * largest depth allowed.
+     */
+    @Test
+    public final void testNestedRecursion() {
+        assertSameRun("PROGRAM P IS INSTRUCTION go IS move go turnleft END go"
+                + " BEGIN go END P", 2 * CompiledProgram.MAX_CALL_DEPTH);
+    }
+
+    /**
+     * Test that programs with the same content share one class.
+     */
+    @Test
+    public final void testCache() {
+        /*
+         * Setup
+         */
+        Program p = parse(new Program1(), MIX);
+        Program q = parse(
+                new Program2(new ValidatedContext(), new Statement2()), MIX);
+
+        /*
+         * The call
+         */
+        Class<? extends CompiledProgram> pClass = JavaBackend.compile(p);
+        Class<? extends CompiledProgram> qClass = JavaBackend.compile(q);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pClass, qClass);
+    }
+
+    /**
+     * Test that programs with different content get different classes.
+     */
+    @Test
+    public final void testCacheDifferent() {
+        /*
+         * Setup
+         */
+        Program p = parse(new Program1(), SAMPLE);
+        Program q = parse(new Program1(), MIX);
+
+        /*
+         * The call
+         */
+        Class<? extends CompiledProgram> pClass = JavaBackend.compile(p);
+        Class<? extends CompiledProgram> qClass = JavaBackend.compile(q);
+
+        /*
+         * Evaluation
+         */
+        assertNotEquals(pClass, qClass);
+    }
+
+    /**
+     * Test the methods generated for the sample program, which leaves it
+     * unchanged.
+     */
+    @Test
+    public final void testMethods() {
+        /*
+         * Setup
+         */
+        Program p = parse(new Program1(), SAMPLE);
+        Program pExpected = parse(new Program1(), SAMPLE);
+        int one = SymbolTable.intern("one");
+        int two = SymbolTable.intern("two");
+
+        /*
+         * The call
+         */
+        String methods = JavaBackend.methods(p);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pExpected, p);
+        assertEquals("    @Override\n" + "    protected void body() {\n"
+                + "        while (test("
+                + Condition.TRUE.ordinal() + ")) {\n" + "            call();\n"
+                + "            i" + two + "();\n" + "            drain();\n"
+                + "            call();\n" + "            i" + one + "();\n"
+                + "            drain();\n" + "        }\n" + "    }\n"
+                + "    private void i" + two + "() {\n"
+                + "        turnLeft();\n" + "        turnLeft();\n"
+                + "    }\n" + "    private void i" + one + "() {\n"
+                + "        move();\n" + "    }\n" + "    @Override\n"
+                + "    protected void dispatch(int symbol) {\n"
+                + "        switch (symbol) {\n" + "            case " + two
+                + ":\n" + "                i" + two + "();\n"
+                + "                break;\n" + "            case " + one
+                + ":\n" + "                i" + one + "();\n"
+                + "                break;\n" + "            default:\n"
+                + "                break;\n" + "        }\n" + "    }\n",
+                methods);
+    }
+
+}
@@ -0,0 +1,20 @@
+import components.program.Program;
+import components.program.Program1;
+
+/**
+ * Customized JUnit test fixture for {@code Program2} with a
+ * {@code ValidatedContext} context and {@code Statement2} bodies.
+ */
+public class Program2FastTest extends ProgramTest {
+
+    @Override
+    protected final Program constructorTest() {
+        return new Program2(new ValidatedContext(), new Statement2());
+    }
+
+    @Override
+    protected final Program constructorRef() {
+        return new Program1();
+    }
+
+}
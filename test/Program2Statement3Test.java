@@ -0,0 +1,22 @@
+import components.map.Map1L;
+import components.program.Program;
+import components.program.Program1;
+import components.statement.Statement;
+
+/**
+ * Customized JUnit test fixture for {@code Program2} with {@code Statement3}
+ * bodies.
+ */
+public class Program2Statement3Test extends ProgramTest {
+
+    @Override
+    protected final Program constructorTest() {
+        return new Program2(new Map1L<String, Statement>(), new Statement3());
+    }
+
+    @Override
+    protected final Program constructorRef() {
+        return new Program1();
+    }
+
+}
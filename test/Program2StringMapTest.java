@@ -0,0 +1,21 @@
+import components.program.Program;
+import components.program.Program1;
+import components.statement.Statement;
+
+/**
+ * Customized JUnit test fixture for {@code Program2} with a {@code StringMap}
+ * context.
+ */
+public class Program2StringMapTest extends ProgramTest {
+
+    @Override
+    protected final Program constructorTest() {
+        return new Program2(new StringMap<Statement>());
+    }
+
+    @Override
+    protected final Program constructorRef() {
+        return new Program1();
+    }
+
+}
@@ -1,11 +1,71 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import components.map.Map;
 import components.program.Program;
 import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
 
 /**
  * Customized JUnit test fixture for {@code Program2}.
  */
 public class Program2Test extends ProgramTest {
 
+    /**
+     * Subclass of {@code Program2}, for testing {@code newInstance}.
+     */
+    public static final class SubProgram extends Program2 {
+
+        /**
+         * Constructor.
+         *
+         * @param contextType
+         *            a map of the type to use for the context
+         * @param bodyType
+         *            a statement of the type to use for bodies
+         */
+        public SubProgram(Map<String, Statement> contextType,
+                Statement bodyType) {
+            super(contextType, bodyType);
+        }
+
+    }
+
+    /**
+     * Subclass of {@code Program2} with only a no-argument constructor, for
+     * testing {@code newInstance}.
+     */
+    public static final class PlainSubProgram extends Program2 {
+
+        /**
+         * No-argument constructor.
+         */
+        public PlainSubProgram() {
+            super(new StringMap<Statement>(), new Statement2());
+        }
+
+    }
+
+    /**
+     * The name of a file containing a BL program.
+     */
+    private static final String FILE_NAME_1 = "data/program-sample.bl";
+
+    /**
+     * The name of a file containing a messily formatted BL program.
+     */
+    private static final String FILE_NAME_MESSY = "data/program-TestPrettyPrint.bl";
+
     @Override
     protected final Program constructorTest() {
         return new Program2();
@@ -16,4 +76,217 @@ public class Program2Test extends ProgramTest {
         return new Program1();
     }
 
+    /**
+     * Parses the file with the given name with {@code Program1} and with
+     * {@code Program2.parse} from a {@code BLTokenizer}, and checks that the
+     * two agree.
+     *
+     * @param filename
+     *            the name of the file containing a BL program
+     */
+    private static void checkParseBLTokenizer(String filename) {
+        /*
+         * Setup
+         */
+        Program pRef = new Program1();
+        SimpleReader file = new SimpleReader1L(filename);
+        pRef.parse(file);
+        file.close();
+        Program2 pTest = new Program2();
+
+        /*
+         * The call
+         */
+        pTest.parse(new BLTokenizer(filename));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test parse from a BLTokenizer on a sample program.
+     */
+    @Test
+    public final void testParseBLTokenizerSample() {
+        checkParseBLTokenizer(FILE_NAME_1);
+    }
+
+    /**
+     * Test parse from a BLTokenizer on a messily formatted program.
+     */
+    @Test
+    public final void testParseBLTokenizerMessy() {
+        checkParseBLTokenizer(FILE_NAME_MESSY);
+    }
+
+    /**
+     * Test parse from a TokenStream on a sample program.
+     */
+    @Test
+    public final void testParseTokenStreamSample() {
+        /*
+         * Setup
+         */
+        Program pRef = new Program1();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_1);
+        pRef.parse(file);
+        file.close();
+        Program2 pTest = new Program2();
+
+        /*
+         * The call
+         */
+        pTest.parse(new TokenStream(FILE_NAME_1));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Parses the file with the given name with {@code Program2.parse} from a
+     * {@code TokenStream}, sequentially and on a pool of {@code threads}
+     * threads, and checks that the two agree.
+     *
+     * @param filename
+     *            the name of the file containing a BL program
+     * @param threads
+     *            the number of threads of the pool
+     */
+    private static void checkParseParallel(String filename, int threads) {
+        /*
+         * Setup
+         */
+        Program2 pRef = new Program2();
+        pRef.parse(new TokenStream(filename));
+        Program2 pTest = new Program2();
+        TokenStream tokens = new TokenStream(filename);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        /*
+         * The call
+         */
+        pTest.parse(tokens, pool);
+
+        /*
+         * Evaluation
+         */
+        pool.shutdown();
+        assertEquals(pRef, pTest);
+        assertEquals(TokenCodes.END_OF_INPUT, tokens.code());
+    }
+
+    /**
+     * Test parallel parse on a sample program.
+     */
+    @Test
+    public final void testParseParallelSample() {
+        final int threads = 4;
+        checkParseParallel(FILE_NAME_1, threads);
+    }
+
+    /**
+     * Test parallel parse on a messily formatted program, with one thread.
+     */
+    @Test
+    public final void testParseParallelMessyOneThread() {
+        checkParseParallel(FILE_NAME_MESSY, 1);
+    }
+
+    /**
+     * Test parallel prettyPrint against Program1.prettyPrint on a messily
+     * formatted program, comparing the printed files byte for byte.
+     *
+     * @throws IOException
+     *             if a temporary file cannot be created or read
+     */
+    @Test
+    public final void testPrettyPrintParallel() throws IOException {
+        /*
+         * Setup
+         */
+        final int threads = 4;
+        Program pRef = new Program1();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_MESSY);
+        pRef.parse(file);
+        file.close();
+        Program2 pTest = new Program2();
+        pTest.parse(new TokenStream(FILE_NAME_MESSY));
+        File refFile = File.createTempFile("program2-test-ref", ".bl");
+        refFile.deleteOnExit();
+        File testFile = File.createTempFile("program2-test", ".bl");
+        testFile.deleteOnExit();
+        SimpleWriter refOut = new SimpleWriter1L(refFile.getPath());
+        pRef.prettyPrint(refOut);
+        refOut.close();
+        SimpleWriter testOut = new SimpleWriter1L(testFile.getPath());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        /*
+         * The call
+         */
+        pTest.prettyPrint(testOut, pool);
+
+        /*
+         * Evaluation
+         */
+        testOut.close();
+        pool.shutdown();
+        String expected = new String(Files.readAllBytes(refFile.toPath()));
+        String actual = new String(Files.readAllBytes(testFile.toPath()));
+        assertEquals(expected, actual);
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test that newInstance of a subclass keeps the class and the context and
+     * body types.
+     */
+    @Test
+    public final void testNewInstanceSubclass() {
+        /*
+         * Setup
+         */
+        Program p = new SubProgram(new StringMap<Statement>(),
+                new Statement2());
+
+        /*
+         * The call
+         */
+        Program q = p.newInstance();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(SubProgram.class, q.getClass());
+        assertEquals(StringMap.class, q.newContext().getClass());
+        assertEquals(Statement2.class, q.newBody().getClass());
+    }
+
+    /**
+     * Test newInstance of a subclass with only a no-argument constructor.
+     */
+    @Test
+    public final void testNewInstanceNoArgumentSubclass() {
+        /*
+         * Setup
+         */
+        Program p = new PlainSubProgram();
+
+        /*
+         * The call
+         */
+        Program q = p.newInstance();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(PlainSubProgram.class, q.getClass());
+        assertEquals(StringMap.class, q.newContext().getClass());
+        assertEquals(Statement2.class, q.newBody().getClass());
+    }
+
 }
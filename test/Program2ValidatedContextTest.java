@@ -0,0 +1,20 @@
+import components.program.Program;
+import components.program.Program1;
+
+/**
+ * Customized JUnit test fixture for {@code Program2} with a
+ * {@code ValidatedContext} context.
+ */
+public class Program2ValidatedContextTest extends ProgramTest {
+
+    @Override
+    protected final Program constructorTest() {
+        return new Program2(new ValidatedContext());
+    }
+
+    @Override
+    protected final Program constructorRef() {
+        return new Program1();
+    }
+
+}
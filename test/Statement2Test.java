@@ -1,11 +1,46 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
 import components.statement.Statement;
 import components.statement.Statement1;
+import components.statement.StatementKernel.Condition;
+import components.statement.StatementKernel.Kind;
+import components.utilities.Tokenizer;
 
 /**
  * Customized JUnit test fixture for {@code Statement2}.
  */
 public class Statement2Test extends StatementTest {
 
+    /**
+     * The name of a file containing a sequence of BL statements.
+     */
+    private static final String FILE_NAME_1 = "data/statement-sample.bl";
+
+    /**
+     * Nesting depth of the statements used by the stack-safety tests.
+     */
+    private static final int DEEP = 100000;
+
+    /**
+     * Nesting depth used by the pretty printing stack-safety test, smaller
+     * than DEEP because the printed size grows with the square of the depth.
+     */
+    private static final int DEEP_PRINT = 2000;
+
     @Override
     protected final Statement constructorTest() {
         return new Statement2();
@@ -16,4 +51,451 @@ public class Statement2Test extends StatementTest {
         return new Statement1();
     }
 
+    /**
+     * Creates and returns a block {@code Statement2} from the file with the
+     * given name.
+     *
+     * @param filename
+     *            the name of the file to be parsed for the sequence of
+     *            statements to go in the block statement
+     * @return the constructed block statement
+     * @ensures <pre>
+     * createFromFile = [the block statement containing the statements
+     * parsed from the file]
+     * </pre>
+     */
+    private static Statement2 createFromFile(String filename) {
+        Statement2 s = new Statement2();
+        SimpleReader file = new SimpleReader1L(filename);
+        Queue<String> tokens = Tokenizer.tokens(file);
+        s.parseBlock(tokens);
+        file.close();
+        return s;
+    }
+
+    /**
+     * Test equals on two Statement2s parsed from the same file.
+     */
+    @Test
+    public final void testEqualsSameParse() {
+        /*
+         * Setup
+         */
+        Statement2 s1 = createFromFile(FILE_NAME_1);
+        Statement2 s2 = createFromFile(FILE_NAME_1);
+
+        /*
+         * The call
+         */
+        boolean result = s1.equals(s2);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(true, result);
+    }
+
+    /**
+     * Test equals on two Statement2s of the same size that differ.
+     */
+    @Test
+    public final void testEqualsSameSizeDifferent() {
+        /*
+         * Setup
+         */
+        Statement2 s1 = createFromFile(FILE_NAME_1);
+        Statement2 s2 = createFromFile(FILE_NAME_1);
+        Statement first = s2.removeFromBlock(0);
+        s2.addToBlock(s2.lengthOfBlock(), first);
+
+        /*
+         * The call
+         */
+        boolean result = s1.equals(s2);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(false, result);
+    }
+
+    /**
+     * Test equals after a Statement2 is taken apart and put back together in
+     * the middle of a block.
+     */
+    @Test
+    public final void testEqualsAfterRemoveAndAdd() {
+        /*
+         * Setup
+         */
+        final int pos = 2;
+        Statement2 s1 = createFromFile(FILE_NAME_1);
+        Statement2 s2 = createFromFile(FILE_NAME_1);
+        Statement nested = s2.removeFromBlock(pos);
+
+        /*
+         * The call
+         */
+        boolean resultRemoved = s1.equals(s2);
+        s2.addToBlock(pos, nested);
+        boolean resultRestored = s1.equals(s2);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(false, resultRemoved);
+        assertEquals(true, resultRestored);
+    }
+
+    /**
+     * Returns the tokens of {@code depth} nested WHILE statements around a
+     * single CALL to {@code inst}, followed by
+     * {@code Tokenizer.END_OF_INPUT}.
+     *
+     * @param depth
+     *            the nesting depth
+     * @param inst
+     *            the innermost instruction
+     * @return the tokens
+     */
+    private static Queue<String> nestedWhileTokens(int depth, String inst) {
+        Queue<String> tokens = new Queue1L<>();
+        for (int i = 0; i < depth; i++) {
+            tokens.enqueue("WHILE");
+            tokens.enqueue("true");
+            tokens.enqueue("DO");
+        }
+        tokens.enqueue(inst);
+        for (int i = 0; i < depth; i++) {
+            tokens.enqueue("END");
+            tokens.enqueue("WHILE");
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        return tokens;
+    }
+
+    /**
+     * Test parseBlock on statements nested DEEP levels deep.
+     */
+    @Test
+    public final void testParseBlockDeeplyNested() {
+        /*
+         * Setup
+         */
+        Queue<String> tokens = nestedWhileTokens(DEEP, "move");
+        Statement2 s = new Statement2();
+
+        /*
+         * The call
+         */
+        s.parseBlock(tokens);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(1, s.lengthOfBlock());
+        assertEquals(Kind.WHILE, s.removeFromBlock(0).kind());
+        assertEquals(1, tokens.length());
+        assertEquals(Tokenizer.END_OF_INPUT, tokens.front());
+    }
+
+    /**
+     * Test parse on a statement nested DEEP levels deep.
+     */
+    @Test
+    public final void testParseDeeplyNested() {
+        /*
+         * Setup
+         */
+        Queue<String> tokens = nestedWhileTokens(DEEP, "move");
+        Statement2 s = new Statement2();
+
+        /*
+         * The call
+         */
+        s.parse(tokens);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(Kind.WHILE, s.kind());
+        assertEquals(1, tokens.length());
+    }
+
+    /**
+     * Test equals on statements nested DEEP levels deep.
+     */
+    @Test
+    public final void testEqualsDeeplyNested() {
+        /*
+         * Setup
+         */
+        Statement2 s1 = new Statement2();
+        s1.parseBlock(nestedWhileTokens(DEEP, "move"));
+        Statement2 s2 = new Statement2();
+        s2.parseBlock(nestedWhileTokens(DEEP, "move"));
+        Statement2 s3 = new Statement2();
+        s3.parseBlock(nestedWhileTokens(DEEP, "skip"));
+
+        /*
+         * The call
+         */
+        boolean same = s1.equals(s2);
+        boolean different = s1.equals(s3);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(true, same);
+        assertEquals(false, different);
+    }
+
+    /**
+     * Test prettyPrint on statements nested DEEP_PRINT levels deep, by parsing
+     * the printed output back.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be created
+     */
+    @Test
+    public final void testPrettyPrintDeeplyNested() throws IOException {
+        /*
+         * Setup
+         */
+        Statement2 s = new Statement2();
+        s.parseBlock(nestedWhileTokens(DEEP_PRINT, "move"));
+        File printed = File.createTempFile("statement2-test", ".bl");
+        printed.deleteOnExit();
+        SimpleWriter out = new SimpleWriter1L(printed.getPath());
+
+        /*
+         * The call
+         */
+        s.prettyPrint(out, 0);
+
+        /*
+         * Evaluation
+         */
+        out.close();
+        Statement2 reparsed = createFromFile(printed.getPath());
+        assertEquals(s, reparsed);
+    }
+
+    /**
+     * Test parseBlock from a BLTokenizer over a file against parseBlock from
+     * the queue of tokens of the same file.
+     */
+    @Test
+    public final void testParseBlockBLTokenizer() {
+        /*
+         * Setup
+         */
+        Statement2 expected = createFromFile(FILE_NAME_1);
+        BLTokenizer tokens = new BLTokenizer(FILE_NAME_1);
+        Statement2 s = new Statement2();
+
+        /*
+         * The call
+         */
+        s.parseBlock(tokens);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(expected, s);
+        assertEquals(Tokenizer.END_OF_INPUT, tokens.front());
+    }
+
+    /**
+     * Test parseBlock from a TokenStream against parseBlock from the queue of
+     * tokens it was built from.
+     */
+    @Test
+    public final void testParseBlockTokenStream() {
+        /*
+         * Setup
+         */
+        Statement2 expected = createFromFile(FILE_NAME_1);
+        SimpleReader file = new SimpleReader1L(FILE_NAME_1);
+        TokenStream tokens = new TokenStream(Tokenizer.tokens(file));
+        file.close();
+        Statement2 s = new Statement2();
+
+        /*
+         * The call
+         */
+        s.parseBlock(tokens);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(expected, s);
+        assertEquals(1, tokens.length());
+        assertEquals(TokenCodes.END_OF_INPUT, tokens.code());
+    }
+
+    /**
+     * Test prettyPrint to a channel against Statement1.prettyPrint, comparing
+     * the printed files byte for byte.
+     *
+     * @throws IOException
+     *             if a temporary file cannot be created, written or read
+     */
+    @Test
+    public final void testPrettyPrintChannel() throws IOException {
+        /*
+         * Setup
+         */
+        final int offset = 2;
+        Statement2 s = createFromFile(FILE_NAME_1);
+        Statement ref = new Statement1();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_1);
+        ref.parseBlock(Tokenizer.tokens(file));
+        file.close();
+        File refFile = File.createTempFile("statement2-test-ref", ".bl");
+        refFile.deleteOnExit();
+        File testFile = File.createTempFile("statement2-test", ".bl");
+        testFile.deleteOnExit();
+        SimpleWriter refOut = new SimpleWriter1L(refFile.getPath());
+        ref.prettyPrint(refOut, offset);
+        refOut.close();
+        FileChannel channel = FileChannel.open(testFile.toPath(),
+                StandardOpenOption.WRITE);
+
+        /*
+         * The call
+         */
+        s.prettyPrint(channel, offset);
+
+        /*
+         * Evaluation
+         */
+        channel.close();
+        String expected = new String(Files.readAllBytes(refFile.toPath()));
+        String actual = new String(Files.readAllBytes(testFile.toPath()));
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test StatementWalks.prettyPrint against Statement1.prettyPrint,
+     * comparing the printed files byte for byte.
+     *
+     * @throws IOException
+     *             if a temporary file cannot be created or read
+     */
+    @Test
+    public final void testCursorPrettyPrint() throws IOException {
+        /*
+         * Setup
+         */
+        final int offset = 2;
+        Statement2 s = createFromFile(FILE_NAME_1);
+        Statement ref = new Statement1();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_1);
+        ref.parseBlock(Tokenizer.tokens(file));
+        file.close();
+        File refFile = File.createTempFile("statement2-test-ref", ".bl");
+        refFile.deleteOnExit();
+        File testFile = File.createTempFile("statement2-test", ".bl");
+        testFile.deleteOnExit();
+        SimpleWriter refOut = new SimpleWriter1L(refFile.getPath());
+        ref.prettyPrint(refOut, offset);
+        refOut.close();
+        SimpleWriter testOut = new SimpleWriter1L(testFile.getPath());
+
+        /*
+         * The call
+         */
+        StatementWalks.prettyPrint(s, testOut, offset);
+
+        /*
+         * Evaluation
+         */
+        testOut.close();
+        String expected = new String(Files.readAllBytes(refFile.toPath()));
+        String actual = new String(Files.readAllBytes(testFile.toPath()));
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test swap.
+     */
+    @Test
+    public final void testSwap() {
+        /*
+         * Setup
+         */
+        Statement2 s1 = createFromFile(FILE_NAME_1);
+        Statement2 s2 = new Statement2();
+        s2.assembleCall("turnleft");
+        Statement2 s1Expected = new Statement2();
+        s1Expected.assembleCall("turnleft");
+        Statement2 s2Expected = createFromFile(FILE_NAME_1);
+
+        /*
+         * The call
+         */
+        s1.swap(s2);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(s1Expected, s1);
+        assertEquals(s2Expected, s2);
+    }
+
+    /**
+     * Test equals and hashCode on statements assembled into a BLOCK that used
+     * to have children.
+     */
+    @Test
+    public final void testAssembleIntoFormerBlock() {
+        /*
+         * Setup
+         */
+        Statement2[] formerBlocks = new Statement2[4];
+        for (int k = 0; k < formerBlocks.length; k++) {
+            formerBlocks[k] = new Statement2();
+            for (int i = 0; i < 3; i++) {
+                Statement2 child = new Statement2();
+                child.assembleCall("move");
+                formerBlocks[k].addToBlock(0, child);
+            }
+        }
+        Statement2 sIf = formerBlocks[0];
+        Statement2 sIfElse = formerBlocks[1];
+        Statement2 sWhile = formerBlocks[2];
+        Statement2 sCall = formerBlocks[3];
+        Statement2 expectedIf = new Statement2();
+        Statement2 expectedIfElse = new Statement2();
+        Statement2 expectedWhile = new Statement2();
+        Statement2 expectedCall = new Statement2();
+
+        /*
+         * The call
+         */
+        sIf.assembleIf(Condition.RANDOM, new Statement2());
+        sIfElse.assembleIfElse(Condition.TRUE, new Statement2(),
+                new Statement2());
+        sWhile.assembleWhile(Condition.NEXT_IS_WALL, new Statement2());
+        sCall.assembleCall("infect");
+        expectedIf.assembleIf(Condition.RANDOM, new Statement2());
+        expectedIfElse.assembleIfElse(Condition.TRUE, new Statement2(),
+                new Statement2());
+        expectedWhile.assembleWhile(Condition.NEXT_IS_WALL, new Statement2());
+        expectedCall.assembleCall("infect");
+
+        /*
+         * Evaluation
+         */
+        assertEquals(expectedIf, sIf);
+        assertEquals(expectedIf.hashCode(), sIf.hashCode());
+        assertEquals(expectedIfElse, sIfElse);
+        assertEquals(expectedIfElse.hashCode(), sIfElse.hashCode());
+        assertEquals(expectedWhile, sWhile);
+        assertEquals(expectedWhile.hashCode(), sWhile.hashCode());
+        assertEquals(expectedCall, sCall);
+        assertEquals(expectedCall.hashCode(), sCall.hashCode());
+    }
+
 }
@@ -0,0 +1,19 @@
+import components.statement.Statement;
+import components.statement.Statement1;
+
+/**
+ * Customized JUnit test fixture for {@code Statement3}.
+ */
+public class Statement3Test extends StatementTest {
+
+    @Override
+    protected final Statement constructorTest() {
+        return new Statement3();
+    }
+
+    @Override
+    protected final Statement constructorRef() {
+        return new Statement1();
+    }
+
+}
@@ -0,0 +1,19 @@
+import components.statement.Statement;
+import components.statement.Statement1;
+
+/**
+ * Customized JUnit test fixture for {@code Statement4}.
+ */
+public class Statement4Test extends StatementTest {
+
+    @Override
+    protected final Statement constructorTest() {
+        return new Statement4();
+    }
+
+    @Override
+    protected final Statement constructorRef() {
+        return new Statement1();
+    }
+
+}
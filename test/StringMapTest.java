@@ -0,0 +1,269 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * JUnit test fixture for {@code StringMap}, checked against {@code Map1L}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class StringMapTest {
+
+    /**
+     * Number of entries used by the tests that make the table grow.
+     */
+    private static final int MANY = 1000;
+
+    /**
+     * Adds the keys "k0" to "k{n - 1}", mapped to their indices, to both
+     * {@code mTest} and {@code mRef}.
+     *
+     * @param mTest
+     *            the map under test
+     * @param mRef
+     *            the reference map
+     * @param n
+     *            the number of keys
+     */
+    private static void addKeys(Map<String, Integer> mTest,
+            Map<String, Integer> mRef, int n) {
+        for (int i = 0; i < n; i++) {
+            mTest.add("k" + i, i);
+            mRef.add("k" + i, i);
+        }
+    }
+
+    /**
+     * Test the constructor.
+     */
+    @Test
+    public final void testConstructor() {
+        /*
+         * The call
+         */
+        Map<String, Integer> mTest = new StringMap<Integer>();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(0, mTest.size());
+        assertEquals(new Map1L<String, Integer>(), mTest);
+    }
+
+    /**
+     * Test add, growing the table well past its initial capacity.
+     */
+    @Test
+    public final void testAddMany() {
+        /*
+         * Setup
+         */
+        Map<String, Integer> mTest = new StringMap<Integer>();
+        Map<String, Integer> mRef = new Map1L<String, Integer>();
+
+        /*
+         * The call
+         */
+        addKeys(mTest, mRef, MANY);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(MANY, mTest.size());
+        assertEquals(mRef, mTest);
+        for (int i = 0; i < MANY; i++) {
+            assertEquals(true, mTest.hasKey("k" + i));
+            assertEquals(Integer.valueOf(i), mTest.value("k" + i));
+        }
+        assertEquals(false, mTest.hasKey("k" + MANY));
+    }
+
+    /**
+     * Test remove of every other key, then add again, so that removed slots
+     * are reused.
+     */
+    @Test
+    public final void testRemoveAndAdd() {
+        /*
+         * Setup
+         */
+        Map<String, Integer> mTest = new StringMap<Integer>();
+        Map<String, Integer> mRef = new Map1L<String, Integer>();
+        addKeys(mTest, mRef, MANY);
+
+        /*
+         * The call
+         */
+        for (int i = 0; i < MANY; i += 2) {
+            Map.Pair<String, Integer> pTest = mTest.remove("k" + i);
+            Map.Pair<String, Integer> pRef = mRef.remove("k" + i);
+            assertEquals(pRef.key(), pTest.key());
+            assertEquals(pRef.value(), pTest.value());
+        }
+        for (int i = 0; i < MANY; i += 2) {
+            mTest.add("k" + i, -i);
+            mRef.add("k" + i, -i);
+        }
+
+        /*
+         * Evaluation
+         */
+        assertEquals(mRef, mTest);
+    }
+
+    /**
+     * Test many removes and adds on a map filled to a power-of-two size, where
+     * the entry arrays are full.
+     */
+    @Test
+    public final void testChurnFull() {
+        /*
+         * Setup
+         */
+        final int full = 4096;
+        final int rounds = 100000;
+        Map<String, Integer> mTest = new StringMap<Integer>();
+        Map<String, Integer> mRef = new Map1L<String, Integer>();
+        addKeys(mTest, mRef, full);
+
+        /*
+         * The call
+         */
+        for (int i = 0; i < rounds; i++) {
+            String key = "k" + (i % full);
+            mTest.remove(key);
+            mTest.add(key, i);
+        }
+        for (int i = rounds - full; i < rounds; i++) {
+            String key = "k" + (i % full);
+            mRef.remove(key);
+            mRef.add(key, i);
+        }
+
+        /*
+         * Evaluation
+         */
+        assertEquals(mRef, mTest);
+    }
+
+    /**
+     * Test removeAny until empty.
+     */
+    @Test
+    public final void testRemoveAnyUntilEmpty() {
+        /*
+         * Setup
+         */
+        Map<String, Integer> mTest = new StringMap<Integer>();
+        Map<String, Integer> mRef = new Map1L<String, Integer>();
+        addKeys(mTest, mRef, MANY);
+
+        /*
+         * The call
+         */
+        for (int i = 0; i < MANY; i++) {
+            Map.Pair<String, Integer> p = mTest.removeAny();
+            Map.Pair<String, Integer> pRef = mRef.remove(p.key());
+            assertEquals(pRef.value(), p.value());
+        }
+
+        /*
+         * Evaluation
+         */
+        assertEquals(0, mTest.size());
+        assertEquals(mRef, mTest);
+    }
+
+    /**
+     * Test that iteration follows insertion order.
+     */
+    @Test
+    public final void testIteratorOrder() {
+        /*
+         * Setup
+         */
+        Map<String, Integer> mTest = new StringMap<Integer>();
+        Map<String, Integer> mRef = new Map1L<String, Integer>();
+        addKeys(mTest, mRef, MANY);
+        mTest.remove("k0");
+
+        /*
+         * The call
+         */
+        int i = 1;
+        for (Map.Pair<String, Integer> p : mTest) {
+            /*
+             * Evaluation
+             */
+            assertEquals("k" + i, p.key());
+            assertEquals(Integer.valueOf(i), p.value());
+            i++;
+        }
+        assertEquals(MANY, i);
+    }
+
+    /**
+     * Test transferFrom.
+     */
+    @Test
+    public final void testTransferFrom() {
+        /*
+         * Setup
+         */
+        Map<String, Integer> mTest = new StringMap<Integer>();
+        Map<String, Integer> mSource = new StringMap<Integer>();
+        Map<String, Integer> mRef = new Map1L<String, Integer>();
+        addKeys(mSource, mRef, MANY);
+        mTest.add("other", 0);
+
+        /*
+         * The call
+         */
+        mTest.transferFrom(mSource);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(mRef, mTest);
+        assertEquals(0, mSource.size());
+        mSource.add("k0", 0);
+        assertEquals(1, mSource.size());
+    }
+
+
+    /**
+     * Test swap.
+     */
+    @Test
+    public final void testSwap() {
+        /*
+         * Setup
+         */
+        StringMap<Integer> m1 = new StringMap<Integer>();
+        StringMap<Integer> m2 = new StringMap<Integer>();
+        Map<String, Integer> m1Expected = new Map1L<String, Integer>();
+        Map<String, Integer> m2Expected = new Map1L<String, Integer>();
+        addKeys(m1, m2Expected, MANY);
+        m2.add("other", 0);
+        m1Expected.add("other", 0);
+
+        /*
+         * The call
+         */
+        m1.swap(m2);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(m1Expected, m1);
+        assertEquals(m2Expected, m2);
+        assertEquals(true, m2.hasKey("k0"));
+        assertEquals(false, m1.hasKey("k0"));
+    }
+
+}
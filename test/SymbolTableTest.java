@@ -0,0 +1,100 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code SymbolTable}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class SymbolTableTest {
+
+    /**
+     * Test that the primitives have their fixed ids.
+     */
+    @Test
+    public final void testPrimitiveIds() {
+        /*
+         * The call and evaluation
+         */
+        assertEquals(SymbolTable.MOVE, SymbolTable.intern("move"));
+        assertEquals(SymbolTable.TURNLEFT, SymbolTable.intern("turnleft"));
+        assertEquals(SymbolTable.TURNRIGHT, SymbolTable.intern("turnright"));
+        assertEquals(SymbolTable.INFECT, SymbolTable.intern("infect"));
+        assertEquals(SymbolTable.SKIP, SymbolTable.intern("skip"));
+        assertEquals(true, SymbolTable.isPrimitive("skip"));
+        assertEquals(false, SymbolTable.isPrimitive("skipping"));
+    }
+
+    /**
+     * Test that interning the same name twice gives the same id, and that the
+     * id leads back to the name.
+     */
+    @Test
+    public final void testInternTwice() {
+        /*
+         * Setup
+         */
+        String name = "symbolTableTestName";
+
+        /*
+         * The call
+         */
+        int first = SymbolTable.intern(name);
+        int second = SymbolTable.intern(new String(name));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(first, second);
+        assertEquals(name, SymbolTable.name(first));
+        assertEquals(first, SymbolTable.lookup(name));
+        assertEquals(false, SymbolTable.isPrimitive(first));
+    }
+
+    /**
+     * Test that lookup does not intern.
+     */
+    @Test
+    public final void testLookupUnknown() {
+        /*
+         * The call
+         */
+        int id = SymbolTable.lookup("symbolTableTestNeverInterned");
+
+        /*
+         * Evaluation
+         */
+        assertEquals(-1, id);
+        assertEquals(-1, SymbolTable.lookup("symbolTableTestNeverInterned"));
+    }
+
+    /**
+     * Test interning enough names to grow the table.
+     */
+    @Test
+    public final void testInternMany() {
+        /*
+         * Setup
+         */
+        final int many = 1000;
+        int[] ids = new int[many];
+
+        /*
+         * The call
+         */
+        for (int i = 0; i < many; i++) {
+            ids[i] = SymbolTable.intern("symbolTableTestMany" + i);
+        }
+
+        /*
+         * Evaluation
+         */
+        for (int i = 0; i < many; i++) {
+            assertEquals("symbolTableTestMany" + i, SymbolTable.name(ids[i]));
+        }
+    }
+
+}
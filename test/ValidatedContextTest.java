@@ -0,0 +1,313 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.statement.Statement;
+import components.statement.Statement1;
+
+/**
+ * JUnit test fixture for the checks kept by {@code ValidatedContext}.
+ *
+ * @author Zheyuan Gao
+ * @author Cedric Fausey
+ *
+ */
+public class ValidatedContextTest {
+
+    /**
+     * Returns a new BLOCK statement holding a single call of {@code inst}.
+     *
+     * @param inst
+     *            the name of the instruction to call
+     * @return the new BLOCK
+     */
+    private static Statement block(String inst) {
+        Statement call = new Statement1();
+        call.assembleCall(inst);
+        Statement block = new Statement1();
+        block.addToBlock(0, call);
+        return block;
+    }
+
+    /**
+     * Test the checks on a new context.
+     */
+    @Test
+    public final void testConstructor() {
+        /*
+         * The call
+         */
+        ValidatedContext c = new ValidatedContext();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(true, c.allIdentifiers());
+        assertEquals(true, c.noPrimitiveInstructions());
+        assertEquals(true, c.allBlocks());
+    }
+
+    /**
+     * Test the checks after adding valid instructions.
+     */
+    @Test
+    public final void testAddValid() {
+        /*
+         * Setup
+         */
+        ValidatedContext c = new ValidatedContext();
+
+        /*
+         * The call
+         */
+        c.add("one", block("move"));
+        c.add("two", block("one"));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(2, c.size());
+        assertEquals(true, c.allIdentifiers());
+        assertEquals(true, c.noPrimitiveInstructions());
+        assertEquals(true, c.allBlocks());
+    }
+
+    /**
+     * Test the name checks after adding, then removing, bad names.
+     */
+    @Test
+    public final void testBadNamesAddRemove() {
+        /*
+         * Setup
+         */
+        ValidatedContext c = new ValidatedContext();
+        c.add("one", block("move"));
+
+        /*
+         * The call
+         */
+        c.add("2bad", block("move"));
+        c.add("turnleft", block("move"));
+        boolean identifiers = c.allIdentifiers();
+        boolean noPrimitives = c.noPrimitiveInstructions();
+        c.remove("2bad");
+        c.removeAny();
+        c.removeAny();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(false, identifiers);
+        assertEquals(false, noPrimitives);
+        assertEquals(0, c.size());
+        assertEquals(true, c.allIdentifiers());
+        assertEquals(true, c.noPrimitiveInstructions());
+    }
+
+    /**
+     * Test that allBlocks notices a body changed through the reference
+     * returned by value.
+     */
+    @Test
+    public final void testAllBlocksAfterValueChanged() {
+        /*
+         * Setup
+         */
+        ValidatedContext c = new ValidatedContext();
+        c.add("one", block("move"));
+        boolean before = c.allBlocks();
+
+        /*
+         * The call
+         */
+        c.value("one").assembleCall("move");
+
+        /*
+         * Evaluation
+         */
+        assertEquals(true, before);
+        assertEquals(false, c.allBlocks());
+    }
+
+    /**
+     * Test that allBlocks notices a body changed, through the reference
+     * returned by value, after the context has been swapped into a program.
+     */
+    @Test
+    public final void testAllBlocksAfterSwapContext() {
+        /*
+         * Setup
+         */
+        ValidatedContext c = new ValidatedContext();
+        c.add("one", block("move"));
+        Statement one = c.value("one");
+        Program2 p = new Program2(new ValidatedContext());
+        p.swapContext(c);
+
+        /*
+         * The call
+         */
+        one.assembleCall("move");
+        p.swapContext(c);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(true, c.hasKey("one"));
+        assertEquals(false, c.allBlocks());
+    }
+
+    /**
+     * Test that allBlocks notices a body changed through the iterator, and
+     * that removing it makes all the bodies BLOCKs again.
+     */
+    @Test
+    public final void testAllBlocksIteratorAndRemove() {
+        /*
+         * Setup
+         */
+        ValidatedContext c = new ValidatedContext();
+        c.add("one", block("move"));
+        c.add("two", block("one"));
+
+        /*
+         * The call
+         */
+        for (Map.Pair<String, Statement> pair : c) {
+            if (pair.key().equals("two")) {
+                pair.value().assembleCall("one");
+            }
+        }
+        boolean changed = c.allBlocks();
+        c.remove("two");
+
+        /*
+         * Evaluation
+         */
+        assertEquals(false, changed);
+        assertEquals(true, c.allBlocks());
+    }
+
+    /**
+     * Test that swap exchanges the checks along with the instructions.
+     */
+    @Test
+    public final void testSwap() {
+        /*
+         * Setup
+         */
+        ValidatedContext c1 = new ValidatedContext();
+        ValidatedContext c2 = new ValidatedContext();
+        c1.add("move", block("move"));
+        c2.add("two", block("move"));
+
+        /*
+         * The call
+         */
+        c1.swap(c2);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(true, c1.hasKey("two"));
+        assertEquals(true, c1.noPrimitiveInstructions());
+        assertEquals(true, c2.hasKey("move"));
+        assertEquals(false, c2.noPrimitiveInstructions());
+    }
+
+    /**
+     * Test hasKey and value by symbol, before and after removing.
+     */
+    @Test
+    public final void testValueBySymbol() {
+        /*
+         * Setup
+         */
+        ValidatedContext c = new ValidatedContext();
+        Statement one = block("move");
+        c.add("one", one);
+        c.add("two", block("one"));
+        int symbol = SymbolTable.intern("one");
+
+        /*
+         * The call
+         */
+        boolean before = c.hasKey(symbol);
+        Statement value = c.value(symbol);
+        c.remove("one");
+
+        /*
+         * Evaluation
+         */
+        assertEquals(true, before);
+        assertEquals(true, value == one);
+        assertEquals(false, c.hasKey(symbol));
+        assertEquals(true, c.hasKey(SymbolTable.intern("two")));
+        assertEquals(false, c.hasKey(SymbolTable.MOVE));
+    }
+
+    /**
+     * Test hasKey and value by symbol for names interned after many others,
+     * whose symbols lie beyond the array the context keeps, and for names
+     * whose symbols lie in it once the context has grown.
+     */
+    @Test
+    public final void testValueByLargeSymbol() {
+        /*
+         * Setup
+         */
+        final int fillers = 100;
+        for (int i = 0; i < fillers; i++) {
+            SymbolTable.intern("validatedFiller" + i);
+        }
+        ValidatedContext c = new ValidatedContext();
+        Statement late = block("move");
+        int lateSymbol = SymbolTable.intern("validatedLate");
+        int fillerSymbol = SymbolTable.intern("validatedFiller0");
+
+        /*
+         * The call
+         */
+        c.add("validatedLate", late);
+        boolean fillerBefore = c.hasKey(fillerSymbol);
+        for (int i = 0; i < fillers; i++) {
+            c.add("validatedFiller" + i, block("move"));
+        }
+
+        /*
+         * Evaluation
+         */
+        assertEquals(true, c.hasKey(lateSymbol));
+        assertEquals(true, c.value(lateSymbol) == late);
+        assertEquals(false, fillerBefore);
+        assertEquals(true, c.hasKey(fillerSymbol));
+        assertEquals(true,
+                c.value(fillerSymbol) == c.value("validatedFiller0"));
+    }
+
+    /**
+     * Test that adding and removing a name that is not an IDENTIFIER does not
+     * intern it.
+     */
+    @Test
+    public final void testBadNameNotInterned() {
+        /*
+         * Setup
+         */
+        ValidatedContext c = new ValidatedContext();
+
+        /*
+         * The call
+         */
+        c.add("not-an identifier", block("move"));
+        c.remove("not-an identifier");
+
+        /*
+         * Evaluation
+         */
+        assertEquals(-1, SymbolTable.lookup("not-an identifier"));
+        assertEquals(true, c.allIdentifiers());
+    }
+
+}